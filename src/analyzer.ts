@@ -0,0 +1,607 @@
+import * as fs from 'fs';
+import * as jvm from './jvm';
+import * as path from 'path';
+import * as vscode from 'vscode';
+
+import { ChildProcess, spawn } from 'child_process';
+import { createHash } from 'crypto';
+import { AnalysisCache, FileFingerprint } from './cache';
+import { JvmSettings } from './commons';
+import { Nerd4JSetting } from './config';
+
+
+/** Prefix of the lines delimiting a response block. */
+const BLOCK_BEGIN = '#begin ';
+
+/** Prefix of the lines closing a response block. */
+const BLOCK_END = '#end ';
+
+/** Prefix of the lines reporting the files an outcome depends on, followed by their modification time, size and path. */
+const DEPENDS = '#depends ';
+
+/** Name of the folder storing the outcomes of the analyses, one file for each module. */
+const CACHE_FOLDER = 'analysis-cache';
+
+/** Name of the file storing the outcomes of all the modules in the previous versions. */
+const LEGACY_CACHE_FILE = 'analysis-cache.bin';
+
+/** Maximum number of classes preloaded when the server is warmed up. */
+const WARM_UP_CLASSES = 100;
+
+
+/**
+ * Represents a request sent to the ClassAnalyzer server
+ * and waiting for the related response.
+ */
+interface PendingRequest {
+
+    /** The lines of the response collected so far. */
+    readonly lines : string[];
+
+    /** Callback to complete the request successfully. */
+    readonly resolve : ( lines : string[] ) => void;
+
+    /** Callback to complete the request with a failure. */
+    readonly reject : ( error : Error ) => void;
+
+}
+
+
+/**
+ * Handles a long-lived ClassAnalyzer process running in server mode.
+ *
+ * Spawning a new JVM for each analysis costs hundreds of milliseconds.
+ * The server keeps the JVM and the loaded classes warm and answers
+ * to the requests sent through the standard input.
+ *
+ * @author Massimo Coluzzi
+ */
+class ClassAnalyzerServer {
+
+    /** Identifies the command used to start the server. */
+    public readonly key : string;
+
+    /** The process running the ClassAnalyzer in server mode. */
+    private readonly process : ChildProcess;
+
+    /** The requests waiting for a response, by request id. */
+    private readonly pendingRequests : Map<string,PendingRequest>;
+
+    /** The request whose response is currently being received. */
+    private currentRequest : PendingRequest|null;
+
+    /** The output received but not yet split into lines. */
+    private buffer : string;
+
+    /** Counter used to generate the request ids. */
+    private requestCounter : number;
+
+    /** Tells if the process is still running. */
+    private running : boolean;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param javaCommand the command used to start the server
+     */
+    private constructor( javaCommand : jvm.JavaCommand ) {
+
+        this.key = ClassAnalyzerServer.keyOf( javaCommand );
+        this.pendingRequests = new Map<string,PendingRequest>();
+        this.currentRequest = null;
+        this.requestCounter = 0;
+        this.running = true;
+        this.buffer = '';
+
+        this.process = spawn( javaCommand.command, javaCommand.args, { stdio: 'pipe' } );
+        this.process.stdout!.setEncoding( 'utf-8' );
+        this.process.stdout!.on( 'data', (data : string) => this.receive(data) );
+
+        let errors = '';
+        this.process.stderr!.setEncoding( 'utf-8' );
+        this.process.stderr!.on( 'data', (data : string) => errors += data );
+
+        this.process.on( 'error', error => this.terminate(error) );
+        this.process.on( 'exit', () => this.terminate(new Error(errors || 'The code analyzer terminated unexpectedly')) );
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Handles the output of the server splitting it into lines.
+     *
+     * @param data the output received
+     */
+    private receive( data : string ) : void {
+
+        this.buffer += data;
+
+        let newLineIndex = this.buffer.indexOf( '\n' );
+        while( newLineIndex >= 0 ) {
+
+            const line = this.buffer.slice( 0, newLineIndex ).replace( /\r$/, '' );
+            this.buffer = this.buffer.slice( newLineIndex + 1 );
+            this.receiveLine( line );
+
+            newLineIndex = this.buffer.indexOf( '\n' );
+
+        }
+
+    }
+
+
+    /**
+     * Handles a single line of output of the server.
+     *
+     * @param line the line to handle
+     */
+    private receiveLine( line : string ) : void {
+
+        /* The beginning of a response block defines the request it refers to. */
+        if( line.startsWith(BLOCK_BEGIN) ) {
+
+            const requestId = line.slice( BLOCK_BEGIN.length ).trim();
+            this.currentRequest = this.pendingRequests.get( requestId ) || null;
+            return;
+
+        }
+
+        /* The end of a response block completes the related request. */
+        if( line.startsWith(BLOCK_END) ) {
+
+            const outcome = line.slice( BLOCK_END.length ).split( ' ' );
+            const requestId = outcome[0];
+            const request = this.pendingRequests.get( requestId );
+
+            this.pendingRequests.delete( requestId );
+            this.currentRequest = null;
+
+            if( ! request ) {
+                return;
+            }
+
+            if( outcome[1] === 'ok' ) {
+                request.resolve( request.lines );
+            } else {
+                request.reject( new Error(outcome.slice(2).join(' ')) );
+            }
+            return;
+
+        }
+
+        /* Any other line belongs to the current response. */
+        if( this.currentRequest && line.length > 0 ) {
+            this.currentRequest.lines.push( line );
+        }
+
+    }
+
+
+    /**
+     * Asks the server to stop the analysis related to the given request
+     * and rejects the request with a cancellation error.
+     *
+     * @param requestId the id of the request to cancel
+     */
+    private cancel( requestId : string ) : void {
+
+        const request = this.pendingRequests.get( requestId );
+        if( ! request ) {
+            return;
+        }
+
+        /* The response of the server, if any, will be ignored. */
+        this.pendingRequests.delete( requestId );
+        if( this.running ) {
+            this.process.stdin!.write( `${++this.requestCounter} cancel ${requestId}\n` );
+        }
+
+        request.reject( new vscode.CancellationError() );
+
+    }
+
+
+    /**
+     * Marks the server as terminated and rejects all pending requests.
+     *
+     * @param error the cause of the termination
+     */
+    private terminate( error : Error ) : void {
+
+        this.running = false;
+        this.currentRequest = null;
+
+        for( const request of this.pendingRequests.values() ) {
+            request.reject( error );
+        }
+        this.pendingRequests.clear();
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Tells if the server is still running.
+     *
+     * @returns true if the server is running
+     */
+    public isRunning() : boolean {
+
+        return this.running;
+
+    }
+
+
+    /**
+     * Sends a request to the server.
+     *
+     * If the given token is cancelled before the response is received,
+     * the server is asked to stop the related work and the request is
+     * rejected with a cancellation error.
+     *
+     * @param command the command to execute
+     * @param args    the arguments of the command
+     * @param token   the token notifying that the response is no longer needed
+     * @returns the lines of the response
+     */
+    public request( command : string, args : string[], token? : vscode.CancellationToken ) : Promise<string[]> {
+
+        return new Promise( (resolve, reject) => {
+
+            if( ! this.running ) {
+                reject( new Error('The code analyzer is not running') );
+                return;
+            }
+
+            if( token?.isCancellationRequested ) {
+                reject( new vscode.CancellationError() );
+                return;
+            }
+
+            const requestId = `${++this.requestCounter}`;
+            const subscription = token?.onCancellationRequested( () => this.cancel(requestId) );
+            this.pendingRequests.set( requestId, {
+                lines   : [],
+                resolve : lines => { subscription?.dispose(); resolve( lines ); },
+                reject  : error => { subscription?.dispose(); reject( error ); }
+            });
+            this.process.stdin!.write( `${requestId} ${command} ${args.join(' ')}\n` );
+
+        });
+
+    }
+
+
+    /**
+     * Asks the server to exit and releases the related resources.
+     *
+     */
+    public shutdown() : void {
+
+        if( this.running ) {
+            this.process.stdin!.end( `0 exit\n` );
+        }
+        this.terminate( new Error('The code analyzer has been stopped') );
+
+    }
+
+
+    /* ***************** */
+    /*  FACTORY METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the key identifying the given command.
+     *
+     * @param javaCommand the command to identify
+     * @returns the key of the command
+     */
+    public static keyOf( javaCommand : jvm.JavaCommand ) : string {
+
+        return [javaCommand.command, ...javaCommand.args].join( '\n' );
+
+    }
+
+
+    /**
+     * Factory method, starts a new server using the given command.
+     *
+     * @param javaCommand the command used to start the server
+     * @returns a new running server
+     */
+    public static start( javaCommand : jvm.JavaCommand ) : ClassAnalyzerServer {
+
+        return new ClassAnalyzerServer( javaCommand );
+
+    }
+
+}
+
+
+/** The ClassAnalyzer server currently in use, if any. */
+let server : ClassAnalyzerServer|null = null;
+
+/** The folder where to store the data related to the current workspace, if any. */
+let storageFolder : string|null = null;
+
+/** The persistent caches of the outcomes opened so far, by class path. */
+const caches = new Map<string,AnalysisCache>();
+
+
+/* ******************* */
+/*  PRIVATE FUNCTIONS  */
+/* ******************* */
+
+
+/**
+ * Parses a line reporting a file the outcome depends on.
+ *
+ * The line has the form "#depends <mtime> <size> <path>", where the
+ * modification time and the size are taken before the file is read.
+ *
+ * @param line the line to parse
+ * @returns the fingerprint of the file, null if the line is malformed
+ */
+function parseDependency( line : string ) : FileFingerprint|null {
+
+    const match = /^(\d+) (\d+) (.+)$/.exec( line.slice(DEPENDS.length) );
+    return match ? { path: match[3], mtime: Number(match[1]), size: Number(match[2]) } : null;
+
+}
+
+
+/**
+ * Returns the persistent cache of the outcomes related to the given module.
+ *
+ * The outcomes depend only on the class path of the module, so each
+ * module has its own cache file and the changes to the JVM options
+ * do not discard them.
+ *
+ * If the cache is disabled or there is no workspace storage, null is returned.
+ *
+ * @param jvmSettings the JVM settings of the module
+ * @returns the persistent cache to use, if any
+ */
+function getCache( jvmSettings : JvmSettings ) : AnalysisCache|null {
+
+    const enabled = vscode.workspace.getConfiguration().get<boolean>( Nerd4JSetting.analyzerCache, true );
+    if( ! enabled || ! storageFolder ) {
+        return null;
+    }
+
+    const key = [ jvmSettings.outFolder, ...jvmSettings.dependencyPaths ].join( '\n' );
+    let cache = caches.get( key );
+    if( ! cache ) {
+
+        /* The file is named after the class path, the key stored inside resolves the collisions. */
+        const fileName = createHash( 'sha1' ).update( key ).digest( 'hex' ).slice( 0, 16 ) + '.bin';
+        cache = AnalysisCache.open( path.join(storageFolder, CACHE_FOLDER, fileName), key );
+        caches.set( key, cache );
+
+    }
+
+    return cache;
+
+}
+
+
+/**
+ * Returns the ClassAnalyzer server started with the given command.
+ *
+ * If no server is running with the given command, a new one
+ * is started and the previous one, if any, is stopped.
+ *
+ * @param javaCommand the command used to start the server
+ * @returns the running server
+ */
+function getServer( javaCommand : jvm.JavaCommand ) : ClassAnalyzerServer {
+
+    if( ! server || ! server.isRunning() || server.key !== ClassAnalyzerServer.keyOf(javaCommand) ) {
+
+        stopServer();
+        server = ClassAnalyzerServer.start( javaCommand );
+
+    }
+
+    return server;
+
+}
+
+
+/**
+ * Returns the path of a Java file of the current workspace,
+ * preferring the one in the active editor, if any.
+ *
+ * @returns the path of a Java file if any
+ */
+async function findJavaFile() : Promise<string|null> {
+
+    const activeEditor = vscode.window.activeTextEditor;
+    if( activeEditor && activeEditor.document.languageId === 'java' ) {
+        return activeEditor.document.uri.fsPath;
+    }
+
+    const javaFiles = await vscode.workspace.findFiles( '**/*.java', '**/node_modules/**', 1 );
+    return javaFiles.length > 0 ? javaFiles[0].fsPath : null;
+
+}
+
+
+/**
+ * Stops the ClassAnalyzer server if running.
+ *
+ */
+function stopServer() : void {
+
+    if( server ) {
+        server.shutdown();
+        server = null;
+    }
+
+}
+
+
+/* ****************** */
+/*  PUBLIC FUNCTIONS  */
+/* ****************** */
+
+
+/**
+ * Defines the folder where to store the data
+ * related to the current workspace.
+ *
+ * @param folder the workspace storage folder, if any
+ */
+export function initialize( folder : string|undefined ) : void {
+
+    storageFolder = folder || null;
+
+    /* The outcomes stored by the previous versions are keyed by the whole analyzer command. */
+    if( storageFolder ) {
+        fs.rm( path.join(storageFolder, LEGACY_CACHE_FILE), { force: true }, () => {} );
+    }
+
+}
+
+
+/**
+ * Analyzes the given class using the ClassAnalyzer server.
+ *
+ * If the outcome of a previous analysis is stored in the persistent
+ * cache and the class files it depends on did not change, the stored
+ * outcome is returned without involving the JVM.
+ *
+ * If no server is running with the given JVM settings,
+ * a new one is started and the previous one, if any,
+ * is stopped.
+ *
+ * @param jvmSettings   the JVM settings to use
+ * @param fullClassName the fully qualified name of the class to analyze
+ * @param prefix        the prefix of the accessor methods to search for
+ * @param token         the token notifying that the outcome is no longer needed
+ * @returns the lines describing the outcome of the analysis
+ */
+export async function analyze(
+    jvmSettings : JvmSettings, fullClassName : string, prefix : string, token? : vscode.CancellationToken
+) : Promise<string[]|null> {
+
+    const javaCommand = await jvm.getClassAnalyzerServerCommand( jvmSettings );
+    if( ! javaCommand ) {
+        return null;
+    }
+
+    const persistentCache = getCache( jvmSettings );
+
+    const cached = persistentCache?.get( fullClassName, prefix );
+    if( cached ) {
+        return cached;
+    }
+
+    const args = prefix ? [fullClassName, prefix] : [fullClassName];
+    const response = await getServer( javaCommand ).request( 'analyze', args, token );
+
+    /* The lines reporting the dependencies are not part of the outcome. */
+    const lines = response.filter( line => ! line.startsWith(DEPENDS) );
+    const files = response.filter( line => line.startsWith(DEPENDS) ).map( parseDependency );
+    if( files.every(file => file !== null) ) {
+        persistentCache?.put( fullClassName, prefix, lines, files as FileFingerprint[] );
+    }
+
+    return lines;
+
+}
+
+
+/**
+ * Starts the ClassAnalyzer server in background and preloads
+ * the classes analyzed in the previous sessions, so that the
+ * first analysis requested by the user finds the JVM warm.
+ *
+ * The server is started only if the project type is configured
+ * and the workspace contains Java files. Any failure is ignored,
+ * the server will be started again by the first analysis.
+ *
+ */
+export async function warmUp() : Promise<void> {
+
+    const config = vscode.workspace.getConfiguration();
+    if( ! config.get(Nerd4JSetting.analyzerServer, true)
+        || ! config.get(Nerd4JSetting.analyzerWarmUp, true)
+        || ! config.get(Nerd4JSetting.projectType) ) {
+        return;
+    }
+
+    try{
+
+        const javaFilePath = await findJavaFile();
+        if( ! javaFilePath ) {
+            return;
+        }
+
+        const jvmSettings = await jvm.getJvmSettings( javaFilePath );
+        if( ! jvmSettings ) {
+            return;
+        }
+
+        const javaCommand = await jvm.getClassAnalyzerServerCommand( jvmSettings );
+        if( ! javaCommand ) {
+            return;
+        }
+
+        /* The most recently analyzed classes are the most likely to be analyzed again. */
+        const classNames = getCache( jvmSettings )?.classNames().slice( -WARM_UP_CLASSES ) || [];
+        await getServer( javaCommand ).request( 'preload', classNames );
+
+    }catch( error ) {
+
+        /* The warm-up is an optimization, a failure is not relevant. */
+
+    }
+
+}
+
+
+/**
+ * Returns the internal metrics of the running ClassAnalyzer server,
+ * one metric per line in the form: name value.
+ *
+ * If no server is running, null is returned.
+ *
+ * @returns the metrics of the server, if running
+ */
+export async function stats() : Promise<string[]|null> {
+
+    if( ! server || ! server.isRunning() ) {
+        return null;
+    }
+
+    return server.request( 'stats', [] );
+
+}
+
+
+/**
+ * Stops the ClassAnalyzer server if running
+ * and writes the pending changes of the
+ * persistent cache to disk.
+ *
+ */
+export function shutdown() : void {
+
+    stopServer();
+
+    caches.forEach( cache => cache.flush() );
+    caches.clear();
+
+}
@@ -0,0 +1,252 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Gives the benchmarks access to the internals of the {@code ClassAnalyzer}.
+ * <p>
+ * The analyzer lives in the default package, which cannot be referenced by
+ * code in a named package, and JMH does not accept benchmarks in the default
+ * package. Therefore, the analyzer is reached through method handles bound
+ * once in static final fields, so that the JIT treats them as constants and
+ * the indirection does not show up in the measurements.
+ *
+ * @author Massimo Coluzzi
+ */
+final class Analyzer
+{
+
+    /** {@code AnalysisEngine.of(String)} */
+    private static final MethodHandle ENGINE_OF;
+
+    /** {@code AnalysisEngine.newLoader(ClassLoader)} */
+    private static final MethodHandle NEW_LOADER;
+
+    /** {@code ClassModel.Loader.load(String)} */
+    private static final MethodHandle LOAD;
+
+    /** {@code AccessorType.parse(String)} */
+    private static final MethodHandle PARSE_ACCESSOR_TYPES;
+
+    /** {@code ClassAnalyzer.getAccessibleFields(ClassModel, AccessorType[])} */
+    private static final MethodHandle GET_ACCESSIBLE_FIELDS;
+
+    /** Reads the field model of an {@code AccessibleField}. */
+    private static final MethodHandle FIELD_OF;
+
+    /** {@code MethodIndex.of(ClassModel)} */
+    private static final MethodHandle METHOD_INDEX_OF;
+
+    /** {@code ClassAnalyzer.getAccessorAvailability(MethodIndex, FieldModel, AccessorType)} */
+    private static final MethodHandle GET_ACCESSOR_AVAILABILITY;
+
+    /** {@code AccessorType.getAccessorName(FieldModel)} */
+    private static final MethodHandle GET_ACCESSOR_NAME;
+
+    static
+    {
+
+        try{
+
+            final Class<?> classAnalyzer = Class.forName( "ClassAnalyzer" );
+            final Class<?> classModel = Class.forName( "ClassModel" );
+            final Class<?> fieldModel = Class.forName( "ClassModel$FieldModel" );
+            final Class<?> loader = Class.forName( "ClassModel$Loader" );
+            final Class<?> accessorType = Class.forName( "ClassAnalyzer$AccessorType" );
+            final Class<?> analysisEngine = Class.forName( "ClassAnalyzer$AnalysisEngine" );
+            final Class<?> accessibleField = Class.forName( "ClassAnalyzer$AccessibleField" );
+            final Class<?> methodIndex = Class.forName( "ClassAnalyzer$MethodIndex" );
+
+            ENGINE_OF = handle( analysisEngine, "of", String.class );
+            NEW_LOADER = handle( analysisEngine, "newLoader", ClassLoader.class );
+            LOAD = handle( loader, "load", String.class );
+            PARSE_ACCESSOR_TYPES = handle( accessorType, "parse", String.class );
+            GET_ACCESSIBLE_FIELDS = handle( classAnalyzer, "getAccessibleFields", classModel, accessorType.arrayType() );
+            METHOD_INDEX_OF = handle( methodIndex, "of", classModel );
+            GET_ACCESSOR_AVAILABILITY = handle( classAnalyzer, "getAccessorAvailability", methodIndex, fieldModel, accessorType );
+            GET_ACCESSOR_NAME = handle( accessorType, "getAccessorName", fieldModel );
+
+            final Field field = accessibleField.getDeclaredField( "field" );
+            field.setAccessible( true );
+            FIELD_OF = MethodHandles.lookup().unreflectGetter( field ).asType( MethodType.genericMethodType(1) );
+
+        }catch( ReflectiveOperationException ex )
+        {
+
+            throw new ExceptionInInitializerError( ex );
+
+        }
+
+    }
+
+
+    /**
+     * This class is not meant to be instantiated.
+     *
+     */
+    private Analyzer()
+    {
+
+        super();
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns a handle to the given method, with all the types
+     * erased to {@link Object} so that it can be invoked exactly
+     * without referencing the types of the analyzer.
+     *
+     * @param owner          the class declaring the method
+     * @param name           the name of the method
+     * @param parameterTypes the types of the parameters
+     * @return the handle to the method
+     * @throws ReflectiveOperationException if the method cannot be found
+     */
+    private static MethodHandle handle( Class<?> owner, String name, Class<?>... parameterTypes )
+    throws ReflectiveOperationException
+    {
+
+        final Method method = owner.getDeclaredMethod( name, parameterTypes );
+        method.setAccessible( true );
+
+        final MethodHandle handle = MethodHandles.lookup().unreflect( method );
+        return handle.asType( MethodType.genericMethodType(handle.type().parameterCount()) );
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Loads the model of the given class using the given engine.
+     *
+     * @param engine      the name of the analysis engine
+     * @param classLoader the class loader used to find the classes
+     * @param className   the fully qualified name of the class
+     * @return the model of the class
+     * @throws Throwable if the class cannot be loaded
+     */
+    static Object load( String engine, ClassLoader classLoader, String className ) throws Throwable
+    {
+
+        final Object loader = (Object) NEW_LOADER.invokeExact( (Object) ENGINE_OF.invokeExact((Object) engine), (Object) classLoader );
+        return (Object) LOAD.invokeExact( loader, (Object) className );
+
+    }
+
+
+    /**
+     * Parses the given comma separated accessor prefixes.
+     *
+     * @param prefixes the accessor prefixes
+     * @return the related accessor types
+     * @throws Throwable if a prefix is not supported
+     */
+    static Object[] accessorTypes( String prefixes ) throws Throwable
+    {
+
+        return (Object[]) (Object) PARSE_ACCESSOR_TYPES.invokeExact( (Object) prefixes );
+
+    }
+
+
+    /**
+     * Returns the fields accessible by the given class.
+     *
+     * @param classModel    the model of the class
+     * @param accessorTypes the accessor types to look for
+     * @return the accessible fields
+     * @throws Throwable if an ancestor cannot be found
+     */
+    static List<?> getAccessibleFields( Object classModel, Object[] accessorTypes ) throws Throwable
+    {
+
+        return (List<?>) (Object) GET_ACCESSIBLE_FIELDS.invokeExact( classModel, (Object) accessorTypes );
+
+    }
+
+
+    /**
+     * Returns the field models of the fields accessible by the given class.
+     *
+     * @param classModel    the model of the class
+     * @param accessorTypes the accessor types to look for
+     * @return the field models
+     * @throws Throwable if an ancestor cannot be found
+     */
+    static Object[] getAccessibleFieldModels( Object classModel, Object[] accessorTypes ) throws Throwable
+    {
+
+        final List<Object> fieldModels = new ArrayList<>();
+        for( Object accessibleField : getAccessibleFields(classModel, accessorTypes) )
+            fieldModels.add( (Object) FIELD_OF.invokeExact(accessibleField) );
+
+        return fieldModels.toArray();
+
+    }
+
+
+    /**
+     * Builds the index of the methods available in the given class.
+     *
+     * @param classModel the model of the class
+     * @return the index of the methods
+     * @throws Throwable never in practice
+     */
+    static Object methodIndex( Object classModel ) throws Throwable
+    {
+
+        return (Object) METHOD_INDEX_OF.invokeExact( classModel );
+
+    }
+
+
+    /**
+     * Returns the availability of the given accessor for the given field.
+     *
+     * @param methodIndex  the index of the methods of the analyzed class
+     * @param fieldModel   the field to access
+     * @param accessorType the type of accessor to look for
+     * @return the availability of the accessor
+     * @throws Throwable never in practice
+     */
+    static Object getAccessorAvailability( Object methodIndex, Object fieldModel, Object accessorType ) throws Throwable
+    {
+
+        return (Object) GET_ACCESSOR_AVAILABILITY.invokeExact( methodIndex, fieldModel, accessorType );
+
+    }
+
+
+    /**
+     * Returns the name of the given accessor for the given field.
+     *
+     * @param accessorType the type of accessor
+     * @param fieldModel   the field to access
+     * @return the name of the accessor
+     * @throws Throwable never in practice
+     */
+    static String getAccessorName( Object accessorType, Object fieldModel ) throws Throwable
+    {
+
+        return (String) (Object) GET_ACCESSOR_NAME.invokeExact( accessorType, fieldModel );
+
+    }
+
+}
@@ -0,0 +1,175 @@
+package benchmark;
+
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Measures the hot paths of the {@code ClassAnalyzer} on synthetic class hierarchies,
+ * see {@link SyntheticHierarchy}.
+ * <p>
+ * The full matrix of parameters takes a long time, a subset can be selected
+ * from the command line. For instance, to measure throughput and allocation
+ * of the analysis of deep hierarchies:
+ * <pre>
+ * mvn -f src/benchmark/pom.xml package
+ * java -jar src/benchmark/target/benchmarks.jar ClassAnalyzerBenchmark.getAccessibleFields -p depth=16 -prof gc
+ * </pre>
+ *
+ * @author Massimo Coluzzi
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ClassAnalyzerBenchmark
+{
+
+    /** The number of classes in the hierarchy. */
+    @Param({ "1", "4", "16" })
+    int depth;
+
+    /** The number of fields declared by each class. */
+    @Param({ "4", "32" })
+    int fieldCount;
+
+    /** The layout of the hierarchy in packages. */
+    @Param({ "SAME_PACKAGE", "PACKAGE_PER_CLASS" })
+    SyntheticHierarchy.Layout layout;
+
+    /** The proportion of fields having accessors. */
+    @Param({ "0.0", "0.5", "1.0" })
+    double accessorDensity;
+
+    /** The engine used to read the classes. */
+    @Param({ "bytecode", "reflection" })
+    String engine;
+
+
+    /** The compiled hierarchy. */
+    private SyntheticHierarchy hierarchy;
+
+    /** The class loader of the hierarchy. */
+    private URLClassLoader classLoader;
+
+    /** The model of the last class of the hierarchy. */
+    private Object targetClass;
+
+    /** The types of accessor to look for. */
+    private Object[] accessorTypes;
+
+    /** The models of the fields accessible by the target class. */
+    private Object[] fieldModels;
+
+    /** The index of the methods available in the target class. */
+    private Object methodIndex;
+
+
+    /**
+     * Compiles the hierarchy and loads the model of the target class.
+     *
+     * @throws Throwable if the hierarchy cannot be compiled or loaded
+     */
+    @Setup( Level.Trial )
+    public void setup() throws Throwable
+    {
+
+        hierarchy = SyntheticHierarchy.compile( depth, fieldCount, layout, accessorDensity );
+        classLoader = hierarchy.newClassLoader();
+
+        targetClass = Analyzer.load( engine, classLoader, hierarchy.leafClassName );
+        accessorTypes = Analyzer.accessorTypes( "get,set,with" );
+        fieldModels = Analyzer.getAccessibleFieldModels( targetClass, accessorTypes );
+        methodIndex = Analyzer.methodIndex( targetClass );
+
+    }
+
+
+    /**
+     * Releases the class loader and deletes the hierarchy.
+     *
+     * @throws Exception if the class loader cannot be closed
+     */
+    @TearDown( Level.Trial )
+    public void tearDown() throws Exception
+    {
+
+        classLoader.close();
+        hierarchy.delete();
+
+    }
+
+
+    /* ************ */
+    /*  BENCHMARKS  */
+    /* ************ */
+
+
+    /**
+     * Measures the whole analysis of the target class: hierarchy walk,
+     * visibility checks and accessor lookup. The class models are already
+     * loaded, while the inherited fields are collected on each invocation.
+     *
+     * @return the accessible fields
+     * @throws Throwable if an ancestor cannot be found
+     */
+    @Benchmark
+    public Object getAccessibleFields() throws Throwable
+    {
+
+        return Analyzer.getAccessibleFields( targetClass, accessorTypes );
+
+    }
+
+
+    /**
+     * Measures the lookup of all the accessors of all the accessible fields.
+     *
+     * @param blackhole consumes the availabilities
+     * @throws Throwable never in practice
+     */
+    @Benchmark
+    public void getAccessorAvailability( Blackhole blackhole ) throws Throwable
+    {
+
+        for( Object fieldModel : fieldModels )
+            for( Object accessorType : accessorTypes )
+                blackhole.consume( Analyzer.getAccessorAvailability(methodIndex, fieldModel, accessorType) );
+
+    }
+
+
+    /**
+     * Measures the creation of the names of all the accessors of all the accessible fields.
+     *
+     * @param blackhole consumes the names
+     * @throws Throwable never in practice
+     */
+    @Benchmark
+    public void getAccessorName( Blackhole blackhole ) throws Throwable
+    {
+
+        for( Object fieldModel : fieldModels )
+            for( Object accessorType : accessorTypes )
+                blackhole.consume( Analyzer.getAccessorName(accessorType, fieldModel) );
+
+    }
+
+}
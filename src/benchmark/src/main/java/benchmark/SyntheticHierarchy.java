@@ -0,0 +1,274 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+
+/**
+ * Generates and compiles a linear class hierarchy to be analyzed by the benchmarks.
+ * <p>
+ * The hierarchy is made of {@code depth} classes, each one extending the previous one
+ * and declaring the same number of fields. The fields cycle through all the visibility
+ * modifiers, some of them are final or static, so that the analyzer exercises all its
+ * visibility rules. The first fields of each class, in the given proportion, have
+ * their accessor methods declared as well.
+ *
+ * @author Massimo Coluzzi
+ */
+final class SyntheticHierarchy
+{
+
+    /** The types of the generated fields, used in turn. */
+    private static final String[] FIELD_TYPES = {
+        "int", "String", "java.util.List<String>", "long[]", "java.util.Map<String,Integer>"
+    };
+
+    /** The initial values of the generated fields, required for final fields. */
+    private static final String[] FIELD_VALUES = { "0", "null", "null", "null", "null" };
+
+    /** The modifiers of the generated fields, used in turn. */
+    private static final String[] FIELD_MODIFIERS = {
+        "private", "protected", "public", "", "private final", "private static"
+    };
+
+
+    /**
+     * Enumerates the possible layouts of the hierarchy in packages.
+     *
+     * @author Massimo Coluzzi
+     */
+    enum Layout
+    {
+
+        /** All the classes belong to the same package. */
+        SAME_PACKAGE,
+
+        /** Each class belongs to its own package, so package private fields are not inherited. */
+        PACKAGE_PER_CLASS
+
+    }
+
+
+    /** The folder containing the sources and the compiled classes. */
+    private final Path folder;
+
+    /** The fully qualified name of the last class of the hierarchy. */
+    final String leafClassName;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param folder        the folder containing the sources and the compiled classes
+     * @param leafClassName the fully qualified name of the last class of the hierarchy
+     */
+    private SyntheticHierarchy( Path folder, String leafClassName )
+    {
+
+        super();
+
+        this.folder = folder;
+        this.leafClassName = leafClassName;
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the name of the package of the class at the given level.
+     *
+     * @param level  the level of the class in the hierarchy
+     * @param layout the layout of the hierarchy
+     * @return the name of the package
+     */
+    private static String packageOf( int level, Layout layout )
+    {
+
+        return layout == Layout.SAME_PACKAGE ? "synthetic" : "synthetic.p" + level;
+
+    }
+
+
+    /**
+     * Returns the source code of the class at the given level.
+     *
+     * @param level           the level of the class in the hierarchy
+     * @param fieldCount      the number of fields declared by the class
+     * @param layout          the layout of the hierarchy
+     * @param accessorDensity the proportion of fields having accessors
+     * @return the source code of the class
+     */
+    private static String sourceOf( int level, int fieldCount, Layout layout, double accessorDensity )
+    {
+
+        final String className = "C" + level;
+        final String superclass = level > 0 ? packageOf( level - 1, layout ) + ".C" + (level - 1) : "Object";
+
+        final StringBuilder source = new StringBuilder()
+            .append( "package " ).append( packageOf(level, layout) ).append( ";\n\n" )
+            .append( "public class " ).append( className ).append( " extends " ).append( superclass ).append( "\n{\n" );
+
+        final long withAccessors = Math.round( fieldCount * accessorDensity );
+        for( int i = 0; i < fieldCount; ++i )
+        {
+
+            final String type = FIELD_TYPES[i % FIELD_TYPES.length];
+            final String modifiers = FIELD_MODIFIERS[i % FIELD_MODIFIERS.length];
+            final String name = "field" + level + "x" + i;
+            final String capitalized = "Field" + level + "x" + i;
+
+            source.append( "    " ).append( modifiers ).append( modifiers.isEmpty() ? "" : " " )
+                .append( type ).append( ' ' ).append( name );
+            if( modifiers.contains("final") )
+                source.append( " = " ).append( FIELD_VALUES[i % FIELD_VALUES.length] );
+            source.append( ";\n" );
+
+            if( i >= withAccessors || modifiers.contains("static") )
+                continue;
+
+            source.append( "    public " ).append( type ).append( " get" ).append( capitalized )
+                .append( "() { return " ).append( name ).append( "; }\n" );
+
+            if( modifiers.contains("final") )
+                continue;
+
+            source.append( "    public void set" ).append( capitalized ).append( "( " ).append( type )
+                .append( " value ) { this." ).append( name ).append( " = value; }\n" );
+
+            /* Withers are declared only for half of the fields, to have some missing accessors. */
+            if( i % 2 == 0 )
+                source.append( "    public " ).append( className ).append( " with" ).append( capitalized )
+                    .append( "( " ).append( type ).append( " value ) { this." ).append( name )
+                    .append( " = value; return this; }\n" );
+
+        }
+
+        return source.append( "}\n" ).toString();
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Returns a new class loader able to load the classes of the hierarchy.
+     *
+     * @return a new class loader
+     */
+    URLClassLoader newClassLoader()
+    {
+
+        try{
+
+            final URL classes = folder.resolve( "classes" ).toUri().toURL();
+            return new URLClassLoader( new URL[] { classes }, ClassLoader.getPlatformClassLoader() );
+
+        }catch( IOException ex )
+        {
+
+            throw new UncheckedIOException( ex );
+
+        }
+
+    }
+
+
+    /**
+     * Deletes the sources and the compiled classes.
+     *
+     */
+    void delete()
+    {
+
+        try( Stream<Path> paths = Files.walk(folder) )
+        {
+
+            paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+
+        }catch( IOException ex )
+        {
+
+            /* A failure in deleting temporary files is not relevant. */
+
+        }
+
+    }
+
+
+    /* ***************** */
+    /*  FACTORY METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Generates and compiles a new class hierarchy in a temporary folder.
+     *
+     * @param depth           the number of classes in the hierarchy
+     * @param fieldCount      the number of fields declared by each class
+     * @param layout          the layout of the hierarchy in packages
+     * @param accessorDensity the proportion of fields having accessors, between 0 and 1
+     * @return the compiled hierarchy
+     * @throws IOException if the files cannot be written
+     */
+    static SyntheticHierarchy compile( int depth, int fieldCount, Layout layout, double accessorDensity )
+    throws IOException
+    {
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if( compiler == null )
+            throw new IllegalStateException( "The benchmarks must run on a JDK to compile the synthetic classes" );
+
+        final Path folder = Files.createTempDirectory( "synthetic-hierarchy" );
+        final Path classes = Files.createDirectories( folder.resolve("classes") );
+
+        final List<File> sources = new ArrayList<>( depth );
+        for( int level = 0; level < depth; ++level )
+        {
+
+            final Path source = folder.resolve( "sources" ).resolve( packageOf(level, layout).replace('.', '/') ).resolve( "C" + level + ".java" );
+            Files.createDirectories( source.getParent() );
+            Files.writeString( source, sourceOf(level, fieldCount, layout, accessorDensity) );
+
+            sources.add( source.toFile() );
+
+        }
+
+        try( StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8) )
+        {
+
+            final Boolean compiled = compiler.getTask(
+                null, fileManager, null, List.of( "-d", classes.toString(), "-nowarn" ), null,
+                fileManager.getJavaFileObjectsFromFiles( sources )
+            ).call();
+
+            if( ! Boolean.TRUE.equals(compiled) )
+                throw new IllegalStateException( "Unable to compile the synthetic hierarchy in " + folder );
+
+        }
+
+        return new SyntheticHierarchy( folder, packageOf(depth - 1, layout) + ".C" + (depth - 1) );
+
+    }
+
+}
@@ -0,0 +1,590 @@
+import * as fs from 'fs';
+import * as path from 'path';
+
+
+/** Magic number identifying the analysis cache files. */
+const MAGIC = 0x4E344A43;
+
+/** Version of the binary format, to be increased on each incompatible change. */
+const FORMAT_VERSION = 1;
+
+/** Delay in milliseconds before the changes are written to disk. */
+const FLUSH_DELAY = 5000;
+
+
+/**
+ * Represents the state of a file the outcome of an analysis depends on.
+ */
+export interface FileFingerprint {
+
+    /** The absolute path of the file. */
+    readonly path : string;
+
+    /** The last modification time of the file in milliseconds. */
+    readonly mtime : number;
+
+    /** The size of the file in bytes. */
+    readonly size : number;
+
+}
+
+
+/**
+ * Represents the outcome of the analysis of a class
+ * together with the files it depends on.
+ */
+interface CacheEntry {
+
+    /** The lines describing the outcome of the analysis. */
+    readonly lines : string[];
+
+    /** The files the outcome depends on. */
+    readonly files : FileFingerprint[];
+
+}
+
+
+/**
+ * Returns the fingerprint of the given file,
+ * or null if the file does not exist.
+ *
+ * @param file the path of the file
+ * @returns the fingerprint of the file if exists
+ */
+export function fingerprintOf( file : string ) : FileFingerprint|null {
+
+    try{
+
+        const stats = fs.statSync( file );
+        return { path: file, mtime: Math.trunc(stats.mtimeMs), size: stats.size };
+
+    }catch( error ) {
+
+        return null;
+
+    }
+
+}
+
+
+/**
+ * Reads the binary data of the cache file.
+ *
+ * @author Massimo Coluzzi
+ */
+class Reader {
+
+    /** The data to read. */
+    private readonly buffer : Buffer;
+
+    /** The position of the next value to read. */
+    public offset : number;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param buffer the data to read
+     * @param offset the position of the first value to read
+     */
+    constructor( buffer : Buffer, offset : number ) {
+
+        this.buffer = buffer;
+        this.offset = offset;
+
+    }
+
+
+    /**
+     * Reads an unsigned 32 bits integer.
+     *
+     * @returns the value read
+     */
+    public uint32() : number {
+
+        const value = this.buffer.readUInt32LE( this.offset );
+        this.offset += 4;
+        return value;
+
+    }
+
+    /**
+     * Reads a 64 bits floating point number.
+     *
+     * @returns the value read
+     */
+    public double() : number {
+
+        const value = this.buffer.readDoubleLE( this.offset );
+        this.offset += 8;
+        return value;
+
+    }
+
+    /**
+     * Reads a string stored as its UTF-8 length followed by its bytes.
+     *
+     * @returns the value read
+     */
+    public string() : string {
+
+        const length = this.uint32();
+        const value = this.buffer.toString( 'utf-8', this.offset, this.offset + length );
+        this.offset += length;
+        return value;
+
+    }
+
+}
+
+
+/**
+ * Writes the binary data of the cache file.
+ *
+ * @author Massimo Coluzzi
+ */
+class Writer {
+
+    /** The chunks written so far. */
+    private readonly chunks : Buffer[] = [];
+
+
+    /**
+     * Writes an unsigned 32 bits integer.
+     *
+     * @param value the value to write
+     * @returns this writer
+     */
+    public uint32( value : number ) : Writer {
+
+        const chunk = Buffer.allocUnsafe( 4 );
+        chunk.writeUInt32LE( value );
+        this.chunks.push( chunk );
+        return this;
+
+    }
+
+    /**
+     * Writes a 64 bits floating point number.
+     *
+     * @param value the value to write
+     * @returns this writer
+     */
+    public double( value : number ) : Writer {
+
+        const chunk = Buffer.allocUnsafe( 8 );
+        chunk.writeDoubleLE( value );
+        this.chunks.push( chunk );
+        return this;
+
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its bytes.
+     *
+     * @param value the value to write
+     * @returns this writer
+     */
+    public string( value : string ) : Writer {
+
+        const chunk = Buffer.from( value, 'utf-8' );
+        this.uint32( chunk.length );
+        this.chunks.push( chunk );
+        return this;
+
+    }
+
+    /**
+     * Writes the given bytes as they are.
+     *
+     * @param chunk the bytes to write
+     * @returns this writer
+     */
+    public raw( chunk : Buffer ) : Writer {
+
+        this.chunks.push( chunk );
+        return this;
+
+    }
+
+    /**
+     * Returns all the data written so far.
+     *
+     * @returns the data written
+     */
+    public toBuffer() : Buffer {
+
+        return Buffer.concat( this.chunks );
+
+    }
+
+}
+
+
+/**
+ * Stores the outcomes of the ClassAnalyzer on disk, so that they
+ * survive the restarts of the editor.
+ *
+ * Each outcome is stored together with the last modification time
+ * and the size the class files it depends on had when the server
+ * read them, and it is returned only if none of them changed. Therefore, the analysis of unchanged
+ * classes does not need the JVM to be started.
+ *
+ * The cache file has the following binary format (little endian):
+ *
+ *   magic:uint32 version:uint32 key:string
+ *   { length:uint32 className:string prefix:string
+ *     lineCount:uint32 { line:string }
+ *     fileCount:uint32 { path:string mtime:double size:double } }
+ *
+ * where each string is stored as its UTF-8 length followed by its bytes.
+ * The file is read once and the entries are decoded only when requested.
+ * The key identifies the class path of the analyzed module, the file
+ * is discarded if the key does not match.
+ *
+ * @author Massimo Coluzzi
+ */
+export class AnalysisCache {
+
+    /** The path of the cache file. */
+    public readonly file : string;
+
+    /** Identifies the class path the outcomes refer to. */
+    public readonly key : string;
+
+    /** The content of the cache file as read on opening. */
+    private readonly buffer : Buffer;
+
+    /** The position of the entries in the buffer by entry key. */
+    private readonly stored : Map<string,number>;
+
+    /** The entries added or decoded after opening, by entry key. */
+    private readonly entries : Map<string,CacheEntry>;
+
+    /** The pending flush, if any. */
+    private flushTimer : NodeJS.Timeout|null;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param file   the path of the cache file
+     * @param key    the key identifying the class path
+     * @param buffer the content of the cache file
+     * @param stored the position of the stored entries
+     */
+    private constructor( file : string, key : string, buffer : Buffer, stored : Map<string,number> ) {
+
+        this.file = file;
+        this.key = key;
+        this.buffer = buffer;
+        this.stored = stored;
+        this.entries = new Map<string,CacheEntry>();
+        this.flushTimer = null;
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the key of the entry related to the given class and prefix.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefix    the prefix of the accessor methods
+     * @returns the key of the entry
+     */
+    private static entryKey( className : string, prefix : string ) : string {
+
+        return `${className} ${prefix}`;
+
+    }
+
+
+    /**
+     * Decodes the entry stored at the given position.
+     *
+     * @param offset the position of the entry in the buffer
+     * @returns the decoded entry
+     */
+    private decode( offset : number ) : CacheEntry {
+
+        const reader = new Reader( this.buffer, offset + 4 );
+
+        /* The class name and the prefix are already part of the entry key. */
+        reader.string();
+        reader.string();
+
+        const lines = [] as string[];
+        for( let count = reader.uint32(); count > 0; --count ) {
+            lines.push( reader.string() );
+        }
+
+        const files = [] as FileFingerprint[];
+        for( let count = reader.uint32(); count > 0; --count ) {
+            files.push( { path: reader.string(), mtime: reader.double(), size: reader.double() } );
+        }
+
+        return { lines: lines, files: files };
+
+    }
+
+
+    /**
+     * Schedules the cache to be written to disk.
+     *
+     */
+    private scheduleFlush() : void {
+
+        if( this.flushTimer ) {
+            return;
+        }
+
+        this.flushTimer = setTimeout( () => this.flush(), FLUSH_DELAY );
+        this.flushTimer.unref();
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Returns the stored outcome of the analysis of the given class
+     * if none of the files it depends on has changed.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefix    the prefix of the accessor methods
+     * @returns the lines describing the outcome of the analysis, if available
+     */
+    public get( className : string, prefix : string ) : string[]|null {
+
+        const key = AnalysisCache.entryKey( className, prefix );
+
+        let entry = this.entries.get( key );
+        if( ! entry ) {
+
+            const offset = this.stored.get( key );
+            if( offset === undefined ) {
+                return null;
+            }
+
+            try{
+
+                entry = this.decode( offset );
+
+            }catch( error ) {
+
+                /* A truncated entry is discarded. */
+                this.stored.delete( key );
+                return null;
+
+            }
+
+            /* The entry is decoded only once, it will be written again from the decoded one. */
+            this.stored.delete( key );
+            this.entries.set( key, entry );
+
+        }
+
+        for( const file of entry.files ) {
+
+            const current = fingerprintOf( file.path );
+            if( ! current || current.mtime !== file.mtime || current.size !== file.size ) {
+
+                /* The entry is outdated and will not be written again. */
+                this.entries.delete( key );
+                this.stored.delete( key );
+                this.scheduleFlush();
+
+                return null;
+
+            }
+
+        }
+
+        return entry.lines;
+
+    }
+
+
+    /**
+     * Stores the outcome of the analysis of the given class.
+     *
+     * The outcome is stored only if the files it depends on are known,
+     * otherwise there is no way to tell when it becomes outdated.
+     * The fingerprints are the ones taken by the server before reading
+     * the files: if a file no longer matches them, it changed during
+     * the analysis and the outcome is discarded.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefix    the prefix of the accessor methods
+     * @param lines     the lines describing the outcome of the analysis
+     * @param files     the fingerprints of the files the outcome depends on
+     */
+    public put( className : string, prefix : string, lines : string[], files : FileFingerprint[] ) : void {
+
+        if( files.length === 0 ) {
+            return;
+        }
+
+        const key = AnalysisCache.entryKey( className, prefix );
+        const changed = files.some( file => {
+
+            const current = fingerprintOf( file.path );
+            return ! current || current.mtime !== file.mtime || current.size !== file.size;
+
+        });
+
+        /* Any previous outcome is outdated as well. */
+        if( changed ) {
+
+            if( this.entries.delete(key) || this.stored.delete(key) ) {
+                this.scheduleFlush();
+            }
+            return;
+
+        }
+
+        this.stored.delete( key );
+        this.entries.set( key, { lines: lines, files: files } );
+
+        this.scheduleFlush();
+
+    }
+
+
+    /**
+     * Returns the names of the classes having a stored outcome,
+     * in the order they have been stored.
+     *
+     * @returns the names of the analyzed classes
+     */
+    public classNames() : string[] {
+
+        const classNames = new Set<string>();
+        for( const key of [...this.stored.keys(), ...this.entries.keys()] ) {
+            classNames.add( key.slice(0, key.indexOf(' ')) );
+        }
+
+        return Array.from( classNames );
+
+    }
+
+
+    /**
+     * Writes the pending changes to disk.
+     *
+     * The entries read on opening and never requested
+     * are copied as they are without decoding them.
+     */
+    public flush() : void {
+
+        /* A flush is pending only if there are changes to write. */
+        if( ! this.flushTimer ) {
+            return;
+        }
+
+        clearTimeout( this.flushTimer );
+        this.flushTimer = null;
+
+        const writer = new Writer().uint32( MAGIC ).uint32( FORMAT_VERSION ).string( this.key );
+
+        for( const offset of this.stored.values() ) {
+
+            const length = this.buffer.readUInt32LE( offset );
+            writer.raw( this.buffer.subarray(offset, offset + 4 + length) );
+
+        }
+
+        for( const [key, entry] of this.entries ) {
+
+            const separator = key.indexOf( ' ' );
+            const record = new Writer().string( key.slice(0, separator) ).string( key.slice(separator + 1) );
+
+            record.uint32( entry.lines.length );
+            entry.lines.forEach( line => record.string(line) );
+
+            record.uint32( entry.files.length );
+            entry.files.forEach( file => record.string(file.path).double(file.mtime).double(file.size) );
+
+            const content = record.toBuffer();
+            writer.uint32( content.length ).raw( content );
+
+        }
+
+        try{
+
+            /* The file is replaced at once to avoid leaving a truncated cache. */
+            fs.mkdirSync( path.dirname(this.file), { recursive: true } );
+            fs.writeFileSync( `${this.file}.tmp`, writer.toBuffer() );
+            fs.renameSync( `${this.file}.tmp`, this.file );
+
+        }catch( error ) {
+
+            /* The cache is an optimization, a failure in writing it is not relevant. */
+
+        }
+
+    }
+
+
+    /* ***************** */
+    /*  FACTORY METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Opens the cache stored in the given file.
+     *
+     * If the file does not exist, is corrupted or refers
+     * to a different class path, an empty cache
+     * is returned.
+     *
+     * @param file the path of the cache file
+     * @param key  the key identifying the class path
+     * @returns the cache stored in the file
+     */
+    public static open( file : string, key : string ) : AnalysisCache {
+
+        const stored = new Map<string,number>();
+
+        let buffer : Buffer;
+        try{
+
+            buffer = fs.readFileSync( file );
+
+            const reader = new Reader( buffer, 0 );
+            if( reader.uint32() !== MAGIC || reader.uint32() !== FORMAT_VERSION || reader.string() !== key ) {
+                return new AnalysisCache( file, key, Buffer.alloc(0), stored );
+            }
+
+            /* Only the keys are read, the entries are decoded on request. */
+            while( reader.offset < buffer.length ) {
+
+                const offset = reader.offset;
+                const length = reader.uint32();
+                const entryKey = AnalysisCache.entryKey( reader.string(), reader.string() );
+
+                stored.set( entryKey, offset );
+                reader.offset = offset + 4 + length;
+
+            }
+
+        }catch( error ) {
+
+            stored.clear();
+            buffer = Buffer.alloc( 0 );
+
+        }
+
+        return new AnalysisCache( file, key, buffer, stored );
+
+    }
+
+}
@@ -1,5 +1,7 @@
 import * as vscode from 'vscode';
 import * as jvm from './jvm';
+import * as timing from './timing';
+import * as analyzer from './analyzer';
 
 import { Field, Accessor, Getter, Setter, Wither, AccessorImplementation } from './commons';
 import { JavaClassProcessor } from './java';
@@ -103,6 +105,37 @@ export async function resetDefaultJavaCommand() : Promise<void> {
 }
 
 
+/* ****************** */
+/*  ANALYZER METRICS  */
+/* ****************** */
+
+
+/**
+ * Executes the command associated to the GUI instruction
+ * Nerd4J: Settings > Show analyzer statistics
+ * 
+ * @return a promise to wait for
+ */
+export async function showAnalyzerStats() : Promise<void> {
+
+    try{
+
+        const stats = await analyzer.stats();
+        if( stats ) {
+            timing.report( 'ClassAnalyzer server statistics', stats );
+        } else {
+            vscode.window.showInformationMessage( 'The ClassAnalyzer server is not running' );
+        }
+
+    }catch( error ) {
+
+        vscode.window.showErrorMessage( `Unable to get the ClassAnalyzer statistics: ${(error as Error).message}` );
+
+    }
+
+}
+
+
 /* ****************** */
 /*  CODE GENERATION   */
 /* ****************** */
@@ -251,6 +284,21 @@ export async function generateAccessorMethods() : Promise<void> {
         .from( createAccessorsParams.keys() )
         .map( (key) => ({label: key, picked: true} as vscode.QuickPickItem) );
 
+    /*
+     * The class is analyzed once for all the accessor types while the user
+     * makes a choice. If the user aborts, the analysis is cancelled.
+     */
+    const cancellation = new vscode.CancellationTokenSource();
+    const allPrefixes = Array.from( createAccessorsParams.values() ).map( params => params.prefix );
+    const analysis = javaClassProcessor.getFieldsByAccessor( allPrefixes, cancellation.token ).catch( ex => {
+
+        /* The failure can happen while the picker is still open, it is reported at once. */
+        const error = ex as Error;
+        vscode.window.showErrorMessage( `The code analysis failed with the following error: ${error.message}` );
+        return undefined;
+
+    });
+
     /* Ask the user to chose the accessor methods to create. */
     const createAccessorsSelection = await vscode.window.showQuickPick( createAccessorOptions, {
         canPickMany: true,
@@ -259,9 +307,17 @@ export async function generateAccessorMethods() : Promise<void> {
 
     /* If no accessors have been selected, nothing will be done. */
     if( ! createAccessorsSelection ) {
+        cancellation.cancel();
+        cancellation.dispose();
+        return;
+    }
+
+    const fieldsByAccessor = await analysis;
+    cancellation.dispose();
+    if( ! fieldsByAccessor ) {
         return;
     }
-       
+
     const accessorMap = new Map<string,Accessor[]>();
     for( const accessorType of createAccessorsSelection ) {
 
@@ -271,7 +327,7 @@ export async function generateAccessorMethods() : Promise<void> {
             continue;
         }
 
-        const fields = await javaClassProcessor.getFields( createAccessorParams.prefix );
+        const fields = fieldsByAccessor.get( createAccessorParams.prefix );
         if( ! fields || fields.length <= 0 ) {
             continue;
         }
@@ -372,6 +428,7 @@ export async function clearNerd4JSettings() : Promise<void> {
     await vscode.workspace.getConfiguration().update( Nerd4JSetting.javaOutFolder,  undefined );
     await vscode.workspace.getConfiguration().update( Nerd4JSetting.javaLibFolder,  undefined );
     await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, undefined );
+    await vscode.workspace.getConfiguration().update( Nerd4JSetting.gradleCommand,  undefined );
     
 }
 
@@ -405,6 +462,19 @@ export async function initMavenProject() : Promise<void> {
 }
 
 
+/**
+ * Initialize the Nerd4J extension to manage a Gradle project.
+ * 
+ */
+export async function initGradleProject() : Promise<void> {
+
+    await setProjectType( JavaProjectType.gradle );
+
+    vscode.window.showInformationMessage( 'The Nerd4J extension has been configured in Gradle project mode.' );
+
+}
+
+
 /**
  * Initialize the Nerd4J extension to manage a plain Java project.
  * 
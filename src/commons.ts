@@ -40,6 +40,83 @@ export interface JvmSettings {
     
 }
 
+/** The version of the ClassAnalyzer output format supported by this extension. */
+const ANALYSIS_FORMAT_VERSION = 1;
+
+
+/**
+ * Describes a field as reported by the ClassAnalyzer in JSON format.
+ */
+export interface AnalyzedField {
+
+    /** The name of the field. */
+    readonly name : string;
+
+    /** The fully qualified name of the type of the field (like 'java.util.Map$Entry'). */
+    readonly type : string;
+
+    /** The fully qualified name of the generic type (like 'java.util.List<java.lang.String>'). */
+    readonly genericType : string;
+
+    /** The simple name of the type of the field (like 'Entry'). */
+    readonly simpleType : string;
+
+    /** The binary name of the class declaring the field. */
+    readonly declaringClass : string;
+
+    /** The modifiers of the field as defined by java.lang.reflect.Modifier. */
+    readonly modifiers : number;
+
+    /** The availability of each required accessor, null if not applicable. */
+    readonly accessors : (number|null)[];
+
+}
+
+
+/**
+ * Represents the outcome of the analysis of a class
+ * performed by the ClassAnalyzer in JSON format.
+ */
+export interface AnalysisOutcome {
+
+    /** The binary name of the analyzed class. */
+    readonly className : string;
+
+    /** The accessible fields of the analyzed class. */
+    readonly fields : AnalyzedField[];
+
+}
+
+
+/**
+ * Decodes the lines printed by the ClassAnalyzer in JSON format.
+ * 
+ * The first line describes the analyzed class and the version
+ * of the format, each other line describes a field.
+ * 
+ * @param lines the lines to decode
+ * @returns the outcome of the analysis
+ */
+export function parseAnalysisOutcome( lines : string[] ) : AnalysisOutcome {
+
+    const nonEmptyLines = lines.filter( line => line.trim().length > 0 );
+    if( nonEmptyLines.length === 0 ) {
+        throw new Error( 'The code analyzer returned no output' );
+    }
+
+    const header = JSON.parse( nonEmptyLines[0] );
+    if( header.version !== ANALYSIS_FORMAT_VERSION ) {
+        throw new Error( `Unsupported code analyzer output version ${header.version}` );
+    }
+
+    return {
+        className : header.name,
+        fields    : nonEmptyLines.slice( 1 ).map( line => JSON.parse(line) as AnalyzedField )
+    };
+
+}
+
+
 /**
  * Represents an interval between two indexes in the text.
  * This class expects its boundaries to represent positions
@@ -700,10 +777,58 @@ export class Field {
     }
 
     /**
-     * Factory method returning a new field with the given values.
+     * Converts the given fully qualified type name into the form
+     * used in the source code, removing the package and the
+     * enclosing classes from each class name
+     * (like 'java.util.Map$Entry<java.lang.String, ?>' into 'Entry<String, ?>').
+     * 
+     * @param typeName the type name to convert
+     * @returns the simple form of the type name
+     */
+    public static toSimpleTypeName( typeName : string ) : string {
+
+        /* Inner classes of parameterized classes are written as Outer<T>.Inner in the source code. */
+        return typeName
+            .replace( />\$/g, '>.' )
+            .replace( /[\w$]+(?:\.[\w$]+)*/g, name => name.slice(name.lastIndexOf('.') + 1).replace(/^.*\$/, '') );
+
+    }
+
+    /**
+     * Factory method returning a new field described by
+     * the given outcome of the ClassAnalyzer in JSON format.
+     * 
+     * The generic type is used only for the fields declared by the
+     * analyzed class, because the type variables of the ancestor
+     * classes are not visible in the analyzed class.
      * 
      * @param enclosingClass the class this field belongs to
-     * @param itemLabel the label of a QuickPickItem
+     * @param analyzedClass  the binary name of the analyzed class
+     * @param analyzedField  the field as reported by the ClassAnalyzer
+     * @param accessorIndex  the index of the accessor in the outcome
+     * @returns a new field
+     */
+    public static fromAnalysis(
+        enclosingClass : string, analyzedClass : string,
+        analyzedField : AnalyzedField, accessorIndex : number = 0
+    ) : Field {
+
+        const type = analyzedField.declaringClass === analyzedClass
+        ? this.toSimpleTypeName( analyzedField.genericType )
+        : analyzedField.simpleType;
+
+        const availability = analyzedField.accessors[accessorIndex];
+        const accessorImplementation = this.toAccessorImplementation( availability !== null ? `${availability}` : '-' );
+
+        return new Field( analyzedField.name, type, enclosingClass, accessorImplementation );
+
+    }
+
+    /**
+     * Factory method returning a new field with the given values.
+     * 
+     * @param enclosingClass  the class this field belongs to
+     * @param analysisOutcome the label of a QuickPickItem
      * @returns a new field
      */
     public static of( enclosingClass : string, analysisOutcome : string ) : Field {
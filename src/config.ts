@@ -17,6 +17,55 @@ export namespace JavaProjectType {
      */
     export const maven = 'Maven project';
 
+    /**
+     * Represents a Java project managed by Gradle.
+     */
+    export const gradle = 'Gradle project';
+
+}
+
+
+/**
+ * Collects the engines the ClassAnalyzer can use to read the classes.
+ * 
+ * @author Massimo Coluzzi
+ */
+export namespace AnalysisEngine {
+
+    /**
+     * Reads the class files directly from their bytes
+     * without loading the classes into the JVM.
+     */
+    export const bytecode = 'bytecode';
+
+    /**
+     * Loads the classes into the JVM and uses reflection.
+     */
+    export const reflection = 'reflection';
+
+}
+
+
+/**
+ * Collects the profiles the JVM running the ClassAnalyzer can be launched with.
+ * 
+ * @author Massimo Coluzzi
+ */
+export namespace AnalyzerJvmProfile {
+
+    /**
+     * Bounds the resources used by the JVM: serial garbage collector,
+     * C1 compiler only with a single compiler thread. The analyses are
+     * short, they do not benefit from the optimizing compiler nor from
+     * the parallel collectors sized on the number of processors.
+     */
+    export const bounded = 'bounded';
+
+    /**
+     * Leaves the JVM ergonomics unchanged.
+     */
+    export const standard = 'default';
+
 }
 
 
@@ -39,6 +88,36 @@ export namespace Nerd4JSetting {
     /* Path to the Maven local repository, defaults to '$user.home}/.m2/repository'. */
     export const mavenLocalRepo = 'nerd4j.maven.localRepo';
 
+    /* Gradle command used to read the classpath of Gradle projects, defaults to the wrapper of the build or the system Gradle. */
+    export const gradleCommand  = 'nerd4j.gradle.command';
+
+    /* Tells if the code analysis is performed by a long-lived ClassAnalyzer process, defaults to true. */
+    export const analyzerServer = 'nerd4j.analyzer.server';
+
+    /* The engine used by the ClassAnalyzer to read the classes, can be one of the options available in the namespace AnalysisEngine. */
+    export const analyzerEngine = 'nerd4j.analyzer.engine';
+
+    /* Tells if the outcomes of the code analysis are stored in the workspace storage to survive restarts, defaults to true. */
+    export const analyzerCache  = 'nerd4j.analyzer.cache';
+
+    /* Maximum time in milliseconds the ClassAnalyzer server can spend on a single analysis, 0 means no limit. */
+    export const analyzerTimeout = 'nerd4j.analyzer.timeout';
+
+    /* Tells if the ClassAnalyzer server is started and warmed up when a Java workspace opens, defaults to true. */
+    export const analyzerWarmUp = 'nerd4j.analyzer.warmUp';
+
+    /* Maximum heap size in megabytes of the JVM running the ClassAnalyzer, 0 means the JVM default. */
+    export const analyzerMaxMemory = 'nerd4j.analyzer.maxMemory';
+
+    /* The profile of the JVM running the ClassAnalyzer, can be one of the options available in the namespace AnalyzerJvmProfile. */
+    export const analyzerJvmProfile = 'nerd4j.analyzer.jvmProfile';
+
+    /* Additional options of the JVM running the ClassAnalyzer, they take precedence over the profile. */
+    export const analyzerJvmOptions = 'nerd4j.analyzer.jvmOptions';
+
+    /* File where to append the timings of the extension operations in JSON Lines format, no trace if empty. */
+    export const performanceTraceFile = 'nerd4j.performance.traceFile';
+
 }
 
 /**
@@ -58,6 +137,7 @@ export namespace CommandKey {
     export const openNerd4jSettings               = 'nerd4j-extension.openNerd4jSettings';
     export const clearNerd4jSettings              = 'nerd4j-extension.clearNerd4jSettings';
     export const showSettingsMenu                 = 'nerd4j-extension.showSettingsMenu';
+    export const showAnalyzerStats                = 'nerd4j-extension.showAnalyzerStats';
 
     /* Code generation */
     export const generateToStringMethod           = 'nerd4j-extension.generateToStringMethod';
@@ -69,6 +149,7 @@ export namespace CommandKey {
     export const chooseProjectTypeMenu            = 'nerd4j-extension.chooseProjectTypeMenu';
     export const initPlainJavaProject             = 'nerd4j-extension.initPlainJavaProject';
     export const initMavenProject                 = 'nerd4j-extension.initMavenProject';
+    export const initGradleProject                = 'nerd4j-extension.initGradleProject';
     export const showOptionsMenu                  = 'nerd4j-extension.showOptionsMenu';
     export const openExtension                    = 'nerd4j-extension.openExtension';
 
@@ -1,14 +1,33 @@
 import * as vscode from 'vscode';
 import * as commands from './commands';
+import * as maven from './maven';
+import * as gradle from './gradle';
+import * as analyzer from './analyzer';
+import * as timing from './timing';
 
 import { CommandKey, JavaProjectType } from './config';
 
 
+/** Delay in milliseconds before warming up the code analyzer, to leave VS Code complete its startup. */
+const WARM_UP_DELAY = 3000;
+
+
 /**
  * @inerhitDoc 
  */
 export function activate( context: vscode.ExtensionContext ) : void {
 
+	/* The outcomes of the code analysis are stored in the workspace storage. */
+	analyzer.initialize( context.storageUri?.fsPath );
+
+	/* The classpaths of the Gradle builds are stored in the workspace storage. */
+	gradle.initialize( context.storageUri?.fsPath );
+
+	/* The JVM settings of the Maven modules are cached until the POM files change. */
+	context.subscriptions.push( maven.initialize() );
+
+	/* The code analyzer is started in background, so that the first command does not wait for the JVM. */
+	setTimeout( () => analyzer.warmUp(), WARM_UP_DELAY );
 
 	/* ************** */
 	/*  JAVA COMMAND  */
@@ -57,6 +76,9 @@ export function activate( context: vscode.ExtensionContext ) : void {
 	/* Register command to clear the Nerd4J settings. */
 	vscode.commands.registerCommand( CommandKey.clearNerd4jSettings, commands.clearNerd4JSettings );
 
+	/* Register command to show the metrics of the ClassAnalyzer server. */
+	vscode.commands.registerCommand( CommandKey.showAnalyzerStats, commands.showAnalyzerStats );
+
 
 	/* Register command to show the extension settings menu. */
 	vscode.commands.registerCommand( CommandKey.showSettingsMenu, async () => {
@@ -65,7 +87,8 @@ export function activate( context: vscode.ExtensionContext ) : void {
 			[
 				{ label: 'Open settings', command: CommandKey.openNerd4jSettings },
 				{ label: 'Clear settings', command: CommandKey.clearNerd4jSettings },
-				{ label: 'Java command', command: CommandKey.showJavaCommandMenu }
+				{ label: 'Java command', command: CommandKey.showJavaCommandMenu },
+				{ label: 'Show analyzer statistics', command: CommandKey.showAnalyzerStats }
 			],
 			{ placeHolder: 'Settings' }
 		);
@@ -117,6 +140,9 @@ export function activate( context: vscode.ExtensionContext ) : void {
 	/* Register command to initialize a Maven project. */
 	vscode.commands.registerCommand( CommandKey.initMavenProject, commands.initMavenProject );
 
+	/* Register command to initialize a Gradle project. */
+	vscode.commands.registerCommand( CommandKey.initGradleProject, commands.initGradleProject );
+
 	/* Register command to initialize a plain Java  project. */
 	vscode.commands.registerCommand( CommandKey.initPlainJavaProject, commands.initPlainJavaProject );
 
@@ -126,6 +152,7 @@ export function activate( context: vscode.ExtensionContext ) : void {
 		const selectedOption = await vscode.window.showQuickPick(
 			[
 				{ label: JavaProjectType.maven, command: CommandKey.initMavenProject },
+				{ label: JavaProjectType.gradle, command: CommandKey.initGradleProject },
 				{ label: JavaProjectType.plainJava, command: CommandKey.initPlainJavaProject }
 			],
 			{ placeHolder: 'Select the type of project' }
@@ -170,3 +197,17 @@ export function activate( context: vscode.ExtensionContext ) : void {
 	});
 
 }
+
+
+/**
+ * @inerhitDoc 
+ */
+export function deactivate() : void {
+
+	/* Stop the ClassAnalyzer server if running. */
+	analyzer.shutdown();
+
+	/* Write the pending timings to the trace file, if any. */
+	timing.shutdown();
+
+}
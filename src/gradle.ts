@@ -0,0 +1,550 @@
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import * as vscode from 'vscode';
+import * as timing from './timing';
+
+import { execFile } from 'child_process';
+import { FileFingerprint, fingerprintOf } from './cache';
+import { JvmSettings, getProjectRootFolder } from './commons';
+import { JavaProjectType, Nerd4JSetting } from './config';
+
+
+/** The names of the Gradle build files. */
+const BUILD_FILES = [ 'build.gradle', 'build.gradle.kts' ];
+
+/** The names of the Gradle settings files, defining the root of a build. */
+const SETTINGS_FILES = [ 'settings.gradle', 'settings.gradle.kts' ];
+
+/** The files in the root of a build affecting all its projects. */
+const SHARED_FILES = [ ...SETTINGS_FILES, 'gradle.properties', path.join('gradle', 'libs.versions.toml') ];
+
+/** The name of the task added by the init script. */
+const MODEL_TASK = 'nerd4jClasspath';
+
+/** The prefix of the lines printed by the init script. */
+const MODEL_PREFIX = 'nerd4j-model:';
+
+/** The file in the workspace storage where the build models are stored. */
+const MODELS_FILE = 'gradle-models.json';
+
+/** The lock file of the Gradle dependency cache, rewritten whenever Gradle stores new artifacts. */
+const DEPENDENCY_CACHE_LOCK = path.join( 'caches', 'modules-2', 'modules-2.lock' );
+
+/** Maximum time in milliseconds Gradle can take to describe a build, the first run may start the daemon. */
+const GRADLE_TIMEOUT = 300000;
+
+/** Maximum size in bytes of the output of Gradle. */
+const GRADLE_MAX_BUFFER = 64 * 1024 * 1024;
+
+/**
+ * The init script adding to each project a task that prints, for each source set,
+ * the source folders, the output folders and the compile classpath as JSON.
+ * The classpath is resolved leniently, so that the dependencies missing
+ * from the Gradle cache in offline mode are reported instead of failing.
+ */
+const INIT_SCRIPT = `
+allprojects { project ->
+    project.tasks.register( '${MODEL_TASK}' ) {
+        doLast {
+            def sourceSets = project.extensions.findByName( 'sourceSets' )
+            def main = sourceSets?.findByName( 'main' )
+            def model = [ projectDir: project.projectDir.absolutePath, buildFile: project.buildFile.absolutePath, sourceSets: [] ]
+            sourceSets?.each { sourceSet ->
+                def configuration = project.configurations.findByName( sourceSet.compileClasspathConfigurationName )
+                def artifacts = configuration?.incoming?.artifactView { it.lenient( true ) }?.artifacts
+                def classpath = artifacts == null ? [] : artifacts.artifactFiles.files
+                def unresolved = artifacts == null ? [] : artifacts.failures.collect { it.message.readLines().first() }
+                if( main != null && sourceSet != main ) {
+                    classpath = main.output.classesDirs.files + classpath
+                }
+                model.sourceSets << [
+                    name: sourceSet.name,
+                    srcDirs: sourceSet.allJava.srcDirs*.absolutePath,
+                    classesDirs: sourceSet.output.classesDirs.files*.absolutePath,
+                    classpath: classpath*.absolutePath,
+                    unresolved: unresolved
+                ]
+            }
+            println '${MODEL_PREFIX}' + groovy.json.JsonOutput.toJson( model )
+        }
+    }
+}
+`;
+
+
+/**
+ * A source set of a Gradle project as described by the init script.
+ */
+interface SourceSetModel {
+
+    /** The name of the source set. */
+    readonly name : string;
+
+    /** The folders containing the Java sources. */
+    readonly srcDirs : string[];
+
+    /** The folders where the sources are compiled. */
+    readonly classesDirs : string[];
+
+    /** The compile classpath of the source set. */
+    readonly classpath : string[];
+
+    /** The dependencies of the classpath missing from the Gradle cache. */
+    readonly unresolved : string[];
+
+}
+
+
+/**
+ * A Gradle project as described by the init script.
+ */
+interface ProjectModel {
+
+    /** The folder of the project. */
+    readonly projectDir : string;
+
+    /** The build file of the project. */
+    readonly buildFile : string;
+
+    /** The source sets of the project. */
+    readonly sourceSets : SourceSetModel[];
+
+}
+
+
+/**
+ * The projects of a Gradle build together with
+ * the files their description depends on.
+ */
+interface BuildModel {
+
+    /** The Gradle command used to describe the build. */
+    readonly command : string;
+
+    /** The build files the model depends on. */
+    readonly files : FileFingerprint[];
+
+    /** The projects of the build. */
+    readonly projects : ProjectModel[];
+
+    /** Tells if all the dependencies have been found in the Gradle cache. */
+    readonly complete : boolean;
+
+}
+
+
+/** The folder where the build models are stored, if any. */
+let storageFolder : string|null = null;
+
+/** The build models by root folder, loaded from the workspace storage on first use. */
+let buildModels : Map<string,BuildModel>|null = null;
+
+/** The build models being computed by root folder. */
+const pendingModels = new Map<string,Promise<BuildModel|null>>();
+
+
+/* ******************* */
+/*  PRIVATE FUNCTIONS  */
+/* ******************* */
+
+
+/**
+ * Returns the fingerprint of the given file.
+ * A missing file gets a fingerprint too, so that
+ * its creation makes the model out of date.
+ *
+ * @param file the path of the file
+ * @returns the fingerprint of the file
+ */
+function stampOf( file : string ) : FileFingerprint {
+
+    return fingerprintOf( file ) || { path: file, mtime: 0, size: -1 };
+
+}
+
+
+/**
+ * Returns the lock file of the Gradle dependency cache.
+ *
+ * @returns the path of the lock file
+ */
+function getDependencyCacheLock() : string {
+
+    const gradleUserHome = process.env.GRADLE_USER_HOME || path.join( os.homedir(), '.gradle' );
+    return path.join( gradleUserHome, DEPENDENCY_CACHE_LOCK );
+
+}
+
+
+/**
+ * Returns the root folder of the Gradle build containing the given file.
+ *
+ * The root is the nearest folder with a settings file or,
+ * if there is none, the nearest folder with a build file.
+ *
+ * @param javaFilePath path to the Java file
+ * @returns the root folder of the build or null
+ */
+function getBuildRoot( javaFilePath : string ) : string|null {
+
+    /* Extract the project root folder. */
+    const projectRoot = getProjectRootFolder();
+    if( ! projectRoot ) {
+        return null;
+    }
+
+    let buildFolder : string|null = null;
+    let parentPath = path.dirname( javaFilePath );
+    do {
+
+        if( SETTINGS_FILES.some(file => fs.existsSync(path.join(parentPath, file))) ) {
+            return parentPath;
+        }
+
+        if( ! buildFolder && BUILD_FILES.some(file => fs.existsSync(path.join(parentPath, file))) ) {
+            buildFolder = parentPath;
+        }
+
+        parentPath = path.dirname( parentPath );
+
+    }while( parentPath && parentPath.startsWith(projectRoot) );
+
+    return buildFolder;
+
+}
+
+
+/**
+ * Returns the Gradle command to use for the given build:
+ * the configured one, the Gradle wrapper of the build
+ * or the Gradle installed in the system.
+ *
+ * @param buildRoot the root folder of the build
+ * @returns the Gradle command
+ */
+function getGradleCommand( buildRoot : string ) : string {
+
+    const configured = vscode.workspace.getConfiguration().get<string>( Nerd4JSetting.gradleCommand );
+    if( configured ) {
+        return configured;
+    }
+
+    const wrapper = path.join( buildRoot, process.platform === 'win32' ? 'gradlew.bat' : 'gradlew' );
+    return fs.existsSync( wrapper ) ? wrapper : 'gradle';
+
+}
+
+
+/**
+ * Returns the build models stored in the workspace storage.
+ * Only the complete models are stored, see {@link storeBuildModels}.
+ *
+ * @returns the build models by root folder
+ */
+function getBuildModels() : Map<string,BuildModel> {
+
+    if( ! buildModels ) {
+
+        buildModels = new Map<string,BuildModel>();
+        if( storageFolder ) {
+
+            try{
+
+                const stored = JSON.parse( fs.readFileSync(path.join(storageFolder, MODELS_FILE), 'utf-8') );
+                Object.keys( stored )
+                    .filter( root => stored[root].complete === true )
+                    .forEach( root => buildModels?.set(root, stored[root]) );
+
+            }catch( error ) {
+
+                /* The models will be computed again. */
+
+            }
+
+        }
+
+    }
+
+    return buildModels;
+
+}
+
+
+/**
+ * Writes the build models to the workspace storage.
+ *
+ * The models with dependencies missing from the Gradle cache
+ * are kept only in memory, so that a restart describes
+ * the build again.
+ */
+function storeBuildModels() : void {
+
+    if( ! storageFolder || ! buildModels ) {
+        return;
+    }
+
+    try{
+
+        fs.mkdirSync( storageFolder, { recursive: true } );
+        const complete = [ ...buildModels ].filter( ([, model]) => model.complete );
+        fs.writeFileSync( path.join(storageFolder, MODELS_FILE), JSON.stringify(Object.fromEntries(complete)) );
+
+    }catch( error ) {
+
+        /* The models are an optimization, they will be computed again. */
+
+    }
+
+}
+
+
+/**
+ * Tells if the given model still describes the build,
+ * that is, none of the build files has changed.
+ *
+ * @param model   the model to check
+ * @param command the Gradle command in use
+ * @returns true if the model is up to date
+ */
+function isUpToDate( model : BuildModel, command : string ) : boolean {
+
+    return model.command === command && model.files.every( file => {
+
+        const current = stampOf( file.path );
+        return current.mtime === file.mtime && current.size === file.size;
+
+    });
+
+}
+
+
+/**
+ * Runs Gradle offline with the init script and
+ * returns the projects of the given build.
+ *
+ * @param buildRoot the root folder of the build
+ * @param command   the Gradle command to run
+ * @returns the projects of the build
+ */
+function runGradle( buildRoot : string, command : string ) : Promise<ProjectModel[]> {
+
+    /* Each run gets its own folder, readable only by the current user. */
+    const scriptFolder = fs.mkdtempSync( path.join(os.tmpdir(), 'nerd4j-gradle-') );
+    const initScript = path.join( scriptFolder, 'init.gradle' );
+    fs.writeFileSync( initScript, INIT_SCRIPT, { mode: 0o600 } );
+
+    const args = [ '--offline', '--quiet', '--console=plain', '-Dorg.gradle.configuration-cache=false', '--init-script', initScript, MODEL_TASK ];
+    const options = { cwd: buildRoot, timeout: GRADLE_TIMEOUT, maxBuffer: GRADLE_MAX_BUFFER, shell: process.platform === 'win32' };
+
+    return new Promise<ProjectModel[]>( (resolve, reject) => {
+
+        execFile( command, args, options, (error, stdout, stderr) => {
+
+            if( error ) {
+                reject( new Error(String(stderr).trim().split('\n')[0] || error.message) );
+                return;
+            }
+
+            const projects = String( stdout ).split( /\r?\n/ )
+                .filter( line => line.startsWith(MODEL_PREFIX) )
+                .map( line => JSON.parse(line.substring(MODEL_PREFIX.length)) as ProjectModel );
+
+            resolve( projects );
+
+        });
+
+    }).finally( () => fs.rmSync(scriptFolder, { recursive: true, force: true }) );
+
+}
+
+
+/**
+ * Describes the given build running Gradle and stores the outcome.
+ *
+ * If some dependencies are missing from the Gradle cache, the model
+ * depends also on the cache, so that Gradle runs again once
+ * another build has downloaded them.
+ *
+ * @param buildRoot the root folder of the build
+ * @param command   the Gradle command to run
+ * @returns the model of the build, null if Gradle failed
+ */
+async function computeBuildModel( buildRoot : string, command : string ) : Promise<BuildModel|null> {
+
+    /* The files are taken before running Gradle, so that a concurrent change makes the model out of date. */
+    const sharedFiles = SHARED_FILES.map( file => stampOf(path.join(buildRoot, file)) );
+    const cacheLock = stampOf( getDependencyCacheLock() );
+
+    try{
+
+        const projects = await vscode.window.withProgress(
+            { location: vscode.ProgressLocation.Window, title: 'Nerd4J: reading the Gradle build' },
+            () => timing.measure( 'gradle.buildModel', () => runGradle(buildRoot, command) )
+        );
+
+        const unresolved = new Set<string>();
+        projects.forEach( project => project.sourceSets.forEach(sourceSet => sourceSet.unresolved.forEach(dependency => unresolved.add(dependency))) );
+
+        const files = sharedFiles.concat( projects.map(project => stampOf(project.buildFile)) );
+        const model = {
+            command  : command,
+            files    : unresolved.size === 0 ? files : files.concat( cacheLock ),
+            projects : projects,
+            complete : unresolved.size === 0
+        };
+
+        if( unresolved.size > 0 ) {
+            vscode.window.showWarningMessage( `Dependencies of the Gradle build in ${buildRoot} missing from the Gradle cache: ${[ ...unresolved ].join(', ')}. Run the build online to download them.` );
+        }
+
+        getBuildModels().set( buildRoot, model );
+        storeBuildModels();
+
+        return model;
+
+    }catch( error ) {
+
+        vscode.window.showErrorMessage( `Cannot read the Gradle build in ${buildRoot}: ${(error as Error).message}` );
+        return null;
+
+    }
+
+}
+
+
+/**
+ * Returns the model of the given build.
+ *
+ * Gradle runs only if the build has never been described
+ * or if one of its build files has changed since.
+ *
+ * @param buildRoot the root folder of the build
+ * @returns the model of the build, null if not available
+ */
+function getBuildModel( buildRoot : string ) : Promise<BuildModel|null> {
+
+    const command = getGradleCommand( buildRoot );
+    const model = getBuildModels().get( buildRoot );
+    if( model && isUpToDate(model, command) ) {
+        return Promise.resolve( model );
+    }
+
+    /* Concurrent commands wait for the same Gradle run. */
+    let pending = pendingModels.get( buildRoot );
+    if( ! pending ) {
+
+        pending = computeBuildModel( buildRoot, command ).finally( () => pendingModels.delete(buildRoot) );
+        pendingModels.set( buildRoot, pending );
+
+    }
+
+    return pending;
+
+}
+
+
+/**
+ * Returns the source set containing the given file, that is,
+ * the one with the nearest source folder.
+ *
+ * @param model        the model of the build
+ * @param javaFilePath path to the Java file
+ * @returns the source set if any
+ */
+function findSourceSet( model : BuildModel, javaFilePath : string ) : SourceSetModel|null {
+
+    let found : SourceSetModel|null = null;
+    let foundLength = -1;
+
+    for( const project of model.projects ) {
+        for( const sourceSet of project.sourceSets ) {
+            for( const srcDir of sourceSet.srcDirs ) {
+
+                if( javaFilePath.startsWith(srcDir + path.sep) && srcDir.length > foundLength ) {
+                    found = sourceSet;
+                    foundLength = srcDir.length;
+                }
+
+            }
+        }
+    }
+
+    return found;
+
+}
+
+
+/* ****************** */
+/*  PUBLIC FUNCTIONS  */
+/* ****************** */
+
+
+/**
+ * Sets the folder where the build models are stored,
+ * so that Gradle does not run again after a restart.
+ *
+ * @param folder the workspace storage folder, if any
+ */
+export function initialize( folder : string|undefined ) : void {
+
+    storageFolder = folder || null;
+    buildModels = null;
+
+}
+
+
+/**
+ * Returns if the Nerd4J extension is configured
+ * to work in Gradle project mode.
+ *
+ * @return true if it is a Gradle project
+ */
+export function isGradleProject() : boolean {
+
+    const projectType = vscode.workspace.getConfiguration().get( Nerd4JSetting.projectType );
+    return projectType === JavaProjectType.gradle;
+
+}
+
+
+/**
+ * Returns the JVM settings if available.
+ * Otherwise, returns null.
+ *
+ * The compile classpath and the output folders are described once
+ * by Gradle, run offline with an init script, and reused until
+ * one of the build files changes.
+ *
+ * @param javaFilePath path to the Java file if any.
+ * @returns the JVM settings if available
+ */
+export async function getJvmSettings( javaFilePath : string ) : Promise<JvmSettings|null> {
+
+    const buildRoot = getBuildRoot( javaFilePath );
+    if( ! buildRoot ) {
+        vscode.window.showErrorMessage( 'Cannot find the Gradle build file.' );
+        return null;
+    }
+
+    const model = await getBuildModel( buildRoot );
+    if( ! model ) {
+        return null;
+    }
+
+    const sourceSet = findSourceSet( model, javaFilePath );
+    if( ! sourceSet || sourceSet.classesDirs.length === 0 ) {
+        vscode.window.showErrorMessage( 'Cannot identify the java output folder.' );
+        return null;
+    }
+
+    /* The Java classes are analyzed, the output of the other languages is part of the classpath. */
+    const javaSuffix = path.join( 'java', sourceSet.name );
+    const outFolder = sourceSet.classesDirs.find( folder => folder.endsWith(javaSuffix) ) || sourceSet.classesDirs[0];
+
+    return {
+        outFolder : outFolder,
+        dependencyPaths : sourceSet.classesDirs.filter( folder => folder !== outFolder ).concat( sourceSet.classpath )
+    };
+
+}
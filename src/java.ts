@@ -1,10 +1,12 @@
 import * as jvm from './jvm';
 import * as vscode from 'vscode';
 import * as parser from './parser';
+import * as analyzer from './analyzer';
+import * as timing from './timing';
 
 import { exec } from 'child_process';
-import { Accessor, Field, Indentation, JavaClass, JvmSettings } from './commons';
-import { OBJECT_OVERRIDES, ObjectMethod, ObjectOverrideConf } from './config';
+import { Accessor, AnalysisOutcome, Field, Indentation, JavaClass, JvmSettings, parseAnalysisOutcome } from './commons';
+import { Nerd4JSetting, OBJECT_OVERRIDES, ObjectMethod, ObjectOverrideConf } from './config';
 
 
 /** Regular expression to find the Nerd4J package import block. */
@@ -125,7 +127,7 @@ export class JavaClassProcessor {
      */
     private updateJavaClass() : void {
 
-        const javaClass = parser.findPointedClass( this.editor );
+        const javaClass = timing.measureSync( 'parser.findPointedClass', () => parser.findPointedClass(this.editor) );
         if( javaClass ) {
 
             this.javaClass = javaClass;
@@ -139,6 +141,19 @@ export class JavaClassProcessor {
     }
 
 
+    /**
+     * Applies the given changes to the edited document.
+     * 
+     * @param callback function making the changes
+     * @returns true if the changes have been applied
+     */
+    private async edit( callback : (editBuilder : vscode.TextEditorEdit) => void ) : Promise<boolean> {
+
+        return timing.measure( 'editor.edit', () => this.editor.edit(callback) );
+
+    }
+
+
     /**
      * Adds the given import to the given editor if it does not exist.
      * 
@@ -150,7 +165,7 @@ export class JavaClassProcessor {
         const javaFileContent = this.editor.document.getText();
         if( ! importRegExp.exec(javaFileContent) && ! GLOBAL_IMPORT_REGEXP.exec(javaFileContent) ) {
         
-            await this.editor.edit( editBuilder => {
+            await this.edit( editBuilder => {
 
                 const position = new vscode.Position( 1, 0 );
                 const range = new vscode.Range( position, new vscode.Position(2,0) );
@@ -190,7 +205,7 @@ export class JavaClassProcessor {
             if( answer === "Regenerate" ) {
                             
                 const range = methodInterval.toRange( this.editor.document );
-                await this.editor.edit( editBuilder => {
+                await this.edit( editBuilder => {
                     editBuilder.replace( range, code );
                 });
 
@@ -208,7 +223,7 @@ export class JavaClassProcessor {
             const insertInterval = parser.getWhitespaceInterval( javaFileContent, insertIndex );
 
             const range = insertInterval.toRange( this.editor.document );
-            await this.editor.edit( editBuilder => {
+            await this.edit( editBuilder => {
                 editBuilder.replace( range, code );
             });
             this.updateJavaClass();
@@ -243,53 +258,185 @@ export class JavaClassProcessor {
 
 
     /**
-     * Returns all the fields of the declared or inherited by the
-     * class currently pointed in the acrive editor.
+     * Runs the ClassAnalyzer on the class currently pointed
+     * in the active editor and returns its decoded output.
      * 
-     * @param prefix - prefix of the method type to analyze
-     * @returns list of accessible fields
+     * @param prefixes - comma separated prefixes of the method types to analyze
+     * @param token - token notifying that the outcome is no longer needed
+     * @returns the outcome of the analysis, undefined if the analysis failed or has been cancelled
+     */
+    private async analyze( prefixes : string, token? : vscode.CancellationToken ) : Promise<AnalysisOutcome|undefined> {
+
+        const outputList = await this.runClassAnalyzer( prefixes, token );
+        if( ! outputList ) {
+            return undefined;
+        }
+
+        try{
+
+            return parseAnalysisOutcome( outputList );
+
+        }catch( ex ) {
+
+            const error = ex as Error;
+            vscode.window.showErrorMessage( `The code analysis failed with the following error: ${error.message}` );
+            return undefined;
+
+        }
+
+    }
+
+
+    /**
+     * Runs the ClassAnalyzer on the class currently pointed
+     * in the active editor and returns its output.
+     * 
+     * If the given token is cancelled, the analysis is stopped
+     * and no error is reported to the user.
+     * 
+     * @param prefixes - comma separated prefixes of the method types to analyze
+     * @param token - token notifying that the outcome is no longer needed
+     * @returns the lines printed by the ClassAnalyzer, undefined if the analysis failed or has been cancelled
      */
-    public async getFields( prefix : string = "" ) : Promise<Field[]> {
+    private async runClassAnalyzer( prefixes : string, token? : vscode.CancellationToken ) : Promise<string[]|undefined> {
+
+        const className = this.javaClass.getNameUsedByClassLoader();
+        const fullClassName = this.packageName ? `${this.packageName}.${className}` : className;
+
+        /* If enabled, the analysis is delegated to the long-lived ClassAnalyzer server. */
+        if( vscode.workspace.getConfiguration().get(Nerd4JSetting.analyzerServer, true) ) {
+
+            try{
+
+                const outputList = await timing.measure(
+                    'analyzer.server', () => analyzer.analyze( this.jvmSettings, fullClassName, prefixes, token )
+                );
+                return outputList ? outputList : undefined;
 
-        return new Promise(async (resolve, reject) => {
+            }catch( ex ) {
+
+                /* If the outcome is no longer needed, there is nothing to report. */
+                if( ex instanceof vscode.CancellationError ) {
+                    return undefined;
+                }
+
+                const error = ex as Error;
+                vscode.window.showErrorMessage( `The code analysis failed with the following error: ${error.message}` );
+                return undefined;
+
+            }
+
+        }
+
+        return timing.measure( 'analyzer.exec', async () => {
                       
             /* Get the class path to use in the java command. */
             const javaFilePath = this.editor.document.uri.fsPath;
             const classAnalyzerCommand = await jvm.getClassAnalyzerJavaCommand( javaFilePath, this.jvmSettings );
             if( ! classAnalyzerCommand ) {
-                return;
+                return undefined;
             }
             
-            const className = this.javaClass.getNameUsedByClassLoader();
-            const fullClassName = this.packageName ? `${this.packageName}.${className}` : className;
-
             /* Create the java command to execute. */
-            const fullCommand = `${classAnalyzerCommand} '${fullClassName}' ${prefix}`;
+            const fullCommand = `${classAnalyzerCommand} '${fullClassName}' ${prefixes}`;
 
-            /* Execute the command. */
-            exec( fullCommand, (error, stdout, stderr ) => {
+            /* Execute the command, every outcome settles the promise so that no caller waits forever. */
+            return new Promise<string[]|undefined>( resolve => {
 
-                const failure = error ? error : stderr;
-                if( failure ) {
-                    vscode.window.showErrorMessage( `The code analysis failed with the following error: ${failure}` );
-                    return;
-                }
+                const child = exec( fullCommand, (error, stdout, stderr ) => {
 
-                /* We save the output of the java command as a list of lines. */
-                const outputList = stdout.trim().split("\n");
-                const fields = outputList
-                    .filter( output => output?.length > 0 )
-                    .map( output => Field.of(this.javaClass.name,output) );
+                    subscription?.dispose();
+                    if( token?.isCancellationRequested ) {
+                        resolve( undefined );
+                        return;
+                    }
+
+                    const failure = error ? error : stderr;
+                    if( failure ) {
+                        vscode.window.showErrorMessage( `The code analysis failed with the following error: ${failure}` );
+                        resolve( undefined );
+                        return;
+                    }
+
+                    /* We save the output of the java command as a list of lines. */
+                    resolve( stdout.trim().split("\n") );
+                    
+                });
+
+                /* If the outcome is no longer needed, the analysis is stopped. */
+                const subscription = token?.onCancellationRequested( () => child.kill() );
 
-                resolve( fields );
-                
             });
 
         });
+
+    }
+
+
+    /**
+     * Converts the outcome of the ClassAnalyzer into a list of fields.
+     * 
+     * Fields for which the accessor at the given index
+     * is not applicable are skipped.
+     * 
+     * @param outcome       the outcome of the analysis
+     * @param accessorIndex the index of the accessor in the analysis outcome
+     * @returns list of accessible fields
+     */
+    private toFields( outcome : AnalysisOutcome, accessorIndex : number = 0 ) : Field[] {
+
+        return outcome.fields
+            .filter( field => field.accessors[accessorIndex] !== null )
+            .map( field => Field.fromAnalysis(this.javaClass.name, outcome.className, field, accessorIndex) );
+
+    }
+
+
+    /**
+     * Returns all the fields of the declared or inherited by the
+     * class currently pointed in the acrive editor.
+     * 
+     * @param prefix - prefix of the method type to analyze
+     * @returns list of accessible fields, undefined if the analysis failed
+     */
+    public async getFields( prefix : string = "" ) : Promise<Field[]|undefined> {
+
+        const outcome = await this.analyze( prefix );
+        return outcome ? this.toFields( outcome ) : undefined;
         
     } 
 
 
+    /**
+     * Returns the fields declared or inherited by the class currently
+     * pointed in the active editor, for each of the given accessor types.
+     * 
+     * The class hierarchy is analyzed only once for all the accessor types.
+     * 
+     * @param prefixes - prefixes of the method types to analyze
+     * @param token - token notifying that the fields are no longer needed
+     * @returns the accessible fields by prefix, undefined if the analysis failed or has been cancelled
+     */
+    public async getFieldsByAccessor(
+        prefixes : string[], token? : vscode.CancellationToken
+    ) : Promise<Map<string,Field[]>|undefined> {
+
+        const fieldsByAccessor = new Map<string,Field[]>();
+        if( prefixes.length === 0 ) {
+            return fieldsByAccessor;
+        }
+
+        const outcome = await this.analyze( prefixes.join(','), token );
+        if( ! outcome ) {
+            return undefined;
+        }
+
+        prefixes.forEach( (prefix, index) => fieldsByAccessor.set(prefix, this.toFields(outcome, index)) );
+        return fieldsByAccessor;
+
+    }
+
+
 
     /* ***************** */
     /*  CODE GENERATORS  */
@@ -510,7 +657,7 @@ ${base}
                     if( answer === "Regenerate" ) {
                         
                         const range = methodInterval.toRange( this.editor.document );
-                        await this.editor.edit( editBuilder => {
+                        await this.edit( editBuilder => {
                             editBuilder.delete( range );
                         });
                         this.updateJavaClass();
@@ -543,7 +690,7 @@ ${base}
             const insertInterval = parser.getWhitespaceInterval( javaFileContent, insertIndex );
             const range = insertInterval.toRange( this.editor.document );
 
-            await this.editor.edit( editBuilder => {
+            await this.edit( editBuilder => {
                 editBuilder.replace( range, code );
             });
 
@@ -590,7 +737,7 @@ ${base}
         const packageName = parser.getPackageName( javaFileContent );
 
         /* Find the Java class containing the current position of the cursor in the text editor. */
-        const javaClass = parser.findPointedClass( activeEditor );
+        const javaClass = timing.measureSync( 'parser.findPointedClass', () => parser.findPointedClass(activeEditor) );
         if( ! javaClass ) {
             vscode.window.showErrorMessage( "The cursor in the active editor is not pointing to any Java class" );
             return null;
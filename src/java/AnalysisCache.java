@@ -0,0 +1,494 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+
+/**
+ * Caches the outcome of the analyses performed by the {@link ClassAnalyzer}.
+ * <p>
+ * The outcome of the analysis of a class depends only on the class files
+ * of the class itself and of its ancestors (superclasses and interfaces).
+ * Each entry keeps track of the files it depends on, either class files
+ * or JAR files, and it is reused until one of them changes.
+ * <p>
+ * A file is considered changed if its last modification time or its size
+ * change. If content hashing is enabled, a file whose last modification
+ * time changed but whose content is the same (like a class recompiled
+ * without changes) is not considered changed.
+ * <p>
+ * When a file changes, all and only the entries depending on it are
+ * discarded. Therefore, recompiling a superclass invalidates its
+ * descendants and leaves all other entries untouched.
+ * <p>
+ * The cache is thread safe.
+ *
+ * @author Massimo Coluzzi
+ */
+final class AnalysisCache
+{
+
+    /** The command line option enabling content hashing. */
+    static final String HASH_OPTION = "--hash";
+
+
+    /** Tells if the content of the files should be hashed. */
+    private final boolean hashing;
+
+    /** The cached outcomes by class name. */
+    private final Map<String,Entry> entries;
+
+    /** The fingerprints of the files the cached outcomes depend on. */
+    private final Map<File,Fingerprint> fingerprints;
+
+    /** The names of the classes depending on each file. */
+    private final Map<File,Set<String>> dependents;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param hashing tells if the content of the files should be hashed
+     */
+    AnalysisCache( boolean hashing )
+    {
+
+        super();
+
+        this.hashing = hashing;
+        this.entries = new ConcurrentHashMap<>();
+        this.fingerprints = new ConcurrentHashMap<>();
+        this.dependents = new ConcurrentHashMap<>();
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Tells if the given file is unchanged since the related fingerprint has been taken.
+     * <p>
+     * If the file is changed, all the entries depending on it are discarded.
+     *
+     * @param file the file to check
+     * @return {@code true} if the file is unchanged
+     */
+    private boolean isUnchanged( File file )
+    {
+
+        final Fingerprint fingerprint = fingerprints.get( file );
+        final Fingerprint current = fingerprint != null ? fingerprint.refresh( hashing ) : null;
+        if( current == fingerprint && current != null )
+            return true;
+
+        /* The file has been touched but its content is the same. */
+        if( current != null )
+        {
+            fingerprints.put( file, current );
+            return true;
+        }
+
+        invalidate( file );
+        return false;
+
+    }
+
+
+    /**
+     * Discards all the entries depending on the given file.
+     *
+     * @param file the changed file
+     */
+    private void invalidate( File file )
+    {
+
+        fingerprints.remove( file );
+
+        final Set<String> classNames = dependents.remove( file );
+        if( classNames != null )
+            for( String className : classNames )
+                entries.remove( className );
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Returns the cached outcome of the analysis of the given class
+     * with the given accessor prefixes, if still valid.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefixes  the comma separated prefixes of the accessors
+     * @return the cached outcome, or {@code null} if not available
+     */
+    List<String> get( String className, String prefixes )
+    {
+
+        final Entry entry = entries.get( className );
+        if( entry == null )
+            return null;
+
+        for( File file : entry.files )
+            if( ! isUnchanged(file) )
+                return null;
+
+        return entry.outcomes.get( prefixes );
+
+    }
+
+
+    /**
+     * Stores the outcome of the analysis of the given class
+     * with the given accessor prefixes.
+     * <p>
+     * The fingerprints must be taken before the files are read, see
+     * {@link #fingerprintOf(File)}, so that a file changed during the
+     * analysis causes the outcome to be discarded on the next request.
+     * If a file was read in a state no longer current, the outcome is not stored.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefixes  the comma separated prefixes of the accessors
+     * @param outcome   the outcome of the analysis
+     * @param files     the fingerprints of the files the outcome depends on
+     */
+    void put( String className, String prefixes, List<String> outcome, Map<File,Fingerprint> files )
+    {
+
+        for( Fingerprint fingerprint : files.values() )
+        {
+
+            /* The file was missing when read. */
+            if( fingerprint.lastModified == 0 )
+                return;
+
+            final Fingerprint known = fingerprints.putIfAbsent( fingerprint.file, fingerprint );
+            if( known == null || known.matches(fingerprint) )
+                continue;
+
+            /* Either the outcome or the known state is outdated, in the latter case it is discarded. */
+            if( isUnchanged(fingerprint.file) )
+                return;
+
+            final Fingerprint replaced = fingerprints.putIfAbsent( fingerprint.file, fingerprint );
+            if( replaced != null && ! replaced.matches(fingerprint) )
+                return;
+
+        }
+
+        for( File file : files.keySet() )
+            dependents.computeIfAbsent( file, f -> ConcurrentHashMap.newKeySet() ).add( className );
+
+        entries.computeIfAbsent( className, c -> new Entry(files.keySet()) ).outcomes.put( prefixes, List.copyOf(outcome) );
+
+    }
+
+
+    /**
+     * Takes the fingerprint of the given file, including
+     * the hash of its content if hashing is enabled.
+     * <p>
+     * The fingerprint is expected to be taken right before the file
+     * is read, see {@link #put(String, String, List, Map)}.
+     *
+     * @param file the file to fingerprint
+     * @return the fingerprint of the file
+     */
+    Fingerprint fingerprintOf( File file )
+    {
+
+        return Fingerprint.of( file, hashing );
+
+    }
+
+
+    /**
+     * Returns the names of the classes the analysis of the given class depends on:
+     * the class itself, all its superclasses and all the implemented interfaces.
+     *
+     * @param targetClass the analyzed class
+     * @return the names of the classes the analysis depends on
+     * @throws ClassNotFoundException if an ancestor cannot be found
+     */
+    static Set<String> getDependencies( ClassModel targetClass ) throws ClassNotFoundException
+    {
+
+        final Set<String> classNames = new LinkedHashSet<>();
+
+        final Deque<ClassModel> toVisit = new ArrayDeque<>();
+        toVisit.push( targetClass );
+        while( ! toVisit.isEmpty() )
+        {
+
+            final ClassModel current = toVisit.pop();
+            if( ! classNames.add(current.getName()) )
+                continue;
+
+            final ClassModel superclass = current.getSuperclass();
+            if( superclass != null )
+                toVisit.push( superclass );
+
+            for( ClassModel i : current.getInterfaces() )
+                toVisit.push( i );
+
+        }
+
+        return classNames;
+
+    }
+
+
+    /**
+     * Returns the file containing the given class, if any.
+     * <p>
+     * For classes loaded from a folder the class file is returned,
+     * for classes loaded from a JAR the JAR file is returned.
+     * Classes loaded from the JDK modules do not change while
+     * the JVM is running and {@code null} is returned.
+     *
+     * @param loader    the class loader to query
+     * @param className the fully qualified name of the class
+     * @return the related file or {@code null}
+     */
+    static File getLocation( ClassLoader loader, String className )
+    {
+
+        final URL url = loader.getResource( className.replace('.', '/') + ".class" );
+        return url != null ? getFile( url ) : null;
+
+    }
+
+
+    /**
+     * Returns the file containing the given resource, if any.
+     * <p>
+     * For resources in a folder the file itself is returned,
+     * for resources in a JAR the JAR file is returned.
+     *
+     * @param url the URL of the resource
+     * @return the related file or {@code null}
+     */
+    static File getFile( URL url )
+    {
+
+        try{
+
+            if( "file".equals(url.getProtocol()) )
+                return new File( url.toURI() );
+
+            /* JAR URLs have the form jar:file:/path/to/file.jar!/path/to/Class.class */
+            if( "jar".equals(url.getProtocol()) )
+            {
+
+                final String path = url.getPath();
+                final int separator = path.indexOf( "!/" );
+                final URL jar = new URL( separator >= 0 ? path.substring(0, separator) : path );
+
+                return "file".equals( jar.getProtocol() ) ? new File( jar.toURI() ) : null;
+
+            }
+
+        }catch( IOException | URISyntaxException | IllegalArgumentException ex )
+        {
+
+            /* If the location cannot be determined the class is not tracked. */
+
+        }
+
+        return null;
+
+    }
+
+
+    /* *************** */
+    /*  INNER CLASSES  */
+    /* *************** */
+
+
+    /**
+     * Represents the cached outcomes of the analyses of a class.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class Entry
+    {
+
+        /** The files the outcomes depend on. */
+        private final Collection<File> files;
+
+        /** The outcomes of the analyses by accessor prefixes. */
+        private final Map<String,List<String>> outcomes;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param files the files the outcomes depend on
+         */
+        private Entry( Collection<File> files )
+        {
+
+            super();
+
+            this.files = List.copyOf( files );
+            this.outcomes = new ConcurrentHashMap<>();
+
+        }
+
+    }
+
+
+    /**
+     * Identifies the state of a file at a given time.
+     *
+     * @author Massimo Coluzzi
+     */
+    static final class Fingerprint
+    {
+
+        /** The file the fingerprint refers to. */
+        final File file;
+
+        /** The last modification time of the file, {@code 0} if the file does not exist. */
+        final long lastModified;
+
+        /** The size of the file. */
+        final long size;
+
+        /** The hash of the content of the file, {@code 0} if not computed. */
+        private final long hash;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param file         the file the fingerprint refers to
+         * @param lastModified the last modification time of the file
+         * @param size         the size of the file
+         * @param hash         the hash of the content of the file
+         */
+        private Fingerprint( File file, long lastModified, long size, long hash )
+        {
+
+            super();
+
+            this.file = file;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+
+        }
+
+
+        /**
+         * Returns the hash of the content of the given file,
+         * or {@code -1} if the file cannot be read.
+         *
+         * @param file the file to hash
+         * @return the hash of the content of the file
+         */
+        private static long hashOf( File file )
+        {
+
+            final CRC32 crc = new CRC32();
+            try( InputStream in = Files.newInputStream(file.toPath()) )
+            {
+
+                final byte[] buffer = new byte[8192];
+                int read;
+                while( (read = in.read(buffer)) >= 0 )
+                    crc.update( buffer, 0, read );
+
+                return crc.getValue();
+
+            }catch( IOException ex )
+            {
+
+                return -1;
+
+            }
+
+        }
+
+
+        /**
+         * Takes the fingerprint of the given file.
+         *
+         * @param file    the file to fingerprint
+         * @param hashing tells if the content of the file should be hashed
+         * @return the fingerprint of the file
+         */
+        static Fingerprint of( File file, boolean hashing )
+        {
+
+            return new Fingerprint( file, file.lastModified(), file.length(), hashing ? hashOf(file) : 0 );
+
+        }
+
+
+        /**
+         * Tells if the given fingerprint describes the same state of the file,
+         * either the same last modification time and size or the same content.
+         *
+         * @param other the fingerprint to compare
+         * @return {@code true} if the state is the same
+         */
+        boolean matches( Fingerprint other )
+        {
+
+            if( size != other.size )
+                return false;
+
+            return lastModified == other.lastModified || hash != 0 && hash != -1 && hash == other.hash;
+
+        }
+
+
+        /**
+         * Checks the current state of the file.
+         * <p>
+         * Returns this fingerprint if the file is unchanged, a new fingerprint
+         * if only the last modification time changed and the content is
+         * the same, {@code null} if the file changed.
+         *
+         * @param hashing tells if the content of the file should be hashed
+         * @return the fingerprint of the current state or {@code null}
+         */
+        Fingerprint refresh( boolean hashing )
+        {
+
+            final long currentLastModified = file.lastModified();
+            final long currentSize = file.length();
+            if( currentLastModified == lastModified && currentSize == size )
+                return this;
+
+            if( ! hashing || currentSize != size || currentLastModified == 0 )
+                return null;
+
+            final long currentHash = hashOf( file );
+            return currentHash == hash && hash != -1
+            ? new Fingerprint( file, currentLastModified, currentSize, currentHash )
+            : null;
+
+        }
+
+    }
+
+}
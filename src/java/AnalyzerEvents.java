@@ -0,0 +1,275 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Collects the JDK Flight Recorder events emitted by the {@link ClassAnalyzer}.
+ * <p>
+ * The events describe the main steps of an analysis, so that a recording
+ * of the analyzer JVM shows where the time goes on pathological classes
+ * like deep hierarchies or huge generated classes. For instance:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=analyzer.jfr,settings=profile ClassAnalyzer ...
+ * jfr print --categories Nerd4J analyzer.jfr
+ * </pre>
+ * Loading the first event class initializes the Flight Recorder, which costs
+ * hundreds of milliseconds. Therefore, the factory methods of this class return
+ * {@code null} and no event class is loaded until the Flight Recorder is started,
+ * either by the JVM options or later by {@code jcmd <pid> JFR.start}.
+ *
+ * @author Massimo Coluzzi
+ */
+final class AnalyzerEvents
+{
+
+    /** The system property defined when the Flight Recorder starts. */
+    private static final String REPOSITORY_PROPERTY = "jdk.jfr.repository";
+
+
+    /** Tells if the Flight Recorder has been started, once started it is never reset. */
+    private static volatile boolean started = false;
+
+
+    /**
+     * This class is not meant to be instantiated.
+     *
+     */
+    private AnalyzerEvents()
+    {
+
+        super();
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Tells if the Flight Recorder has been started in this JVM.
+     *
+     * @return {@code true} if the events can be emitted
+     */
+    private static boolean isStarted()
+    {
+
+        if( ! started )
+            started = System.getProperty( REPOSITORY_PROPERTY ) != null;
+
+        return started;
+
+    }
+
+
+    /* ***************** */
+    /*  FACTORY METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Begins a new {@link ClassResolution} event.
+     *
+     * @return the begun event, {@code null} if the Flight Recorder is not started
+     */
+    static ClassResolution classResolution()
+    {
+
+        if( ! isStarted() )
+            return null;
+
+        final ClassResolution event = new ClassResolution();
+        event.begin();
+        return event;
+
+    }
+
+
+    /**
+     * Begins a new {@link HierarchyWalk} event.
+     *
+     * @return the begun event, {@code null} if the Flight Recorder is not started
+     */
+    static HierarchyWalk hierarchyWalk()
+    {
+
+        if( ! isStarted() )
+            return null;
+
+        final HierarchyWalk event = new HierarchyWalk();
+        event.begin();
+        return event;
+
+    }
+
+
+    /**
+     * Begins a new {@link AccessorLookup} event.
+     *
+     * @return the begun event, {@code null} if the Flight Recorder is not started
+     */
+    static AccessorLookup accessorLookup()
+    {
+
+        if( ! isStarted() )
+            return null;
+
+        final AccessorLookup event = new AccessorLookup();
+        event.begin();
+        return event;
+
+    }
+
+
+    /**
+     * Begins a new {@link OutputSerialization} event.
+     *
+     * @return the begun event, {@code null} if the Flight Recorder is not started
+     */
+    static OutputSerialization outputSerialization()
+    {
+
+        if( ! isStarted() )
+            return null;
+
+        final OutputSerialization event = new OutputSerialization();
+        event.begin();
+        return event;
+
+    }
+
+
+    /* ******** */
+    /*  EVENTS  */
+    /* ******** */
+
+
+    /**
+     * Emitted when the model of a class is built by the analysis engine,
+     * either parsing its class file or loading it through reflection.
+     * The models already available are not reported.
+     *
+     * @author Massimo Coluzzi
+     */
+    @Name( "nerd4j.ClassResolution" )
+    @Label( "Class Resolution" )
+    @Category({ "Nerd4J", "Class Analyzer" })
+    @Description( "Builds the model of a class" )
+    @StackTrace( false )
+    static final class ClassResolution extends Event
+    {
+
+        /** The binary name of the resolved class. */
+        @Label( "Class Name" )
+        String className;
+
+        /** The engine used to read the class. */
+        @Label( "Engine" )
+        String engine;
+
+        /** The size of the class file, {@code 0} if not read. */
+        @Label( "Class File Size" )
+        @DataAmount
+        long classFileSize;
+
+    }
+
+
+    /**
+     * Emitted when the fields inherited by the analyzed class are collected.
+     *
+     * @author Massimo Coluzzi
+     */
+    @Name( "nerd4j.HierarchyWalk" )
+    @Label( "Hierarchy Walk" )
+    @Category({ "Nerd4J", "Class Analyzer" })
+    @Description( "Collects the fields inherited by the analyzed class from its ancestors" )
+    @StackTrace( false )
+    static final class HierarchyWalk extends Event
+    {
+
+        /** The name of the analyzed class. */
+        @Label( "Class Name" )
+        String className;
+
+        /** The number of fields declared by the analyzed class. */
+        @Label( "Declared Fields" )
+        int declaredFields;
+
+        /** The number of accessible fields inherited from the ancestors. */
+        @Label( "Inherited Fields" )
+        int inheritedFields;
+
+    }
+
+
+    /**
+     * Emitted when the accessors of the fields of the analyzed class are looked up.
+     *
+     * @author Massimo Coluzzi
+     */
+    @Name( "nerd4j.AccessorLookup" )
+    @Label( "Accessor Lookup" )
+    @Category({ "Nerd4J", "Class Analyzer" })
+    @Description( "Looks up the accessor methods of the fields of the analyzed class" )
+    @StackTrace( false )
+    static final class AccessorLookup extends Event
+    {
+
+        /** The name of the analyzed class. */
+        @Label( "Class Name" )
+        String className;
+
+        /** The comma separated prefixes of the accessors. */
+        @Label( "Accessor Types" )
+        String accessorTypes;
+
+        /** The number of fields checked. */
+        @Label( "Fields" )
+        int fields;
+
+        /** The number of fields for which at least one accessor applies. */
+        @Label( "Accessible Fields" )
+        int accessibleFields;
+
+    }
+
+
+    /**
+     * Emitted when the outcome of an analysis is formatted.
+     *
+     * @author Massimo Coluzzi
+     */
+    @Name( "nerd4j.OutputSerialization" )
+    @Label( "Output Serialization" )
+    @Category({ "Nerd4J", "Class Analyzer" })
+    @Description( "Formats the outcome of the analysis" )
+    @StackTrace( false )
+    static final class OutputSerialization extends Event
+    {
+
+        /** The name of the analyzed class. */
+        @Label( "Class Name" )
+        String className;
+
+        /** The format of the outcome. */
+        @Label( "Format" )
+        String format;
+
+        /** The number of lines produced. */
+        @Label( "Lines" )
+        int lines;
+
+        /** The number of characters produced. */
+        @Label( "Characters" )
+        long characters;
+
+    }
+
+}
@@ -0,0 +1,1091 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * Runs the {@link ClassAnalyzer} as a long-lived process.
+ * <p>
+ * Starting a new JVM for each analysis costs hundreds of milliseconds
+ * in JVM startup and class loading. In server mode the JVM is started once
+ * and the analysis requests are received through the standard input,
+ * one request per line, in the form:
+ * <pre>
+ * &lt;requestId&gt; analyze &lt;className&gt; &lt;accessorPrefixes&gt;
+ * &lt;requestId&gt; preload &lt;className&gt; ...
+ * &lt;requestId&gt; cancel &lt;analyzeRequestId&gt;
+ * &lt;requestId&gt; stats
+ * &lt;requestId&gt; exit
+ * </pre>
+ * An {@code exit} request stops the server at once, dropping the pending requests.
+ * At the end of the input, instead, the pending requests are answered before
+ * exiting, so that the requests can be read from a file.
+ * <p>
+ * Each response is written to the standard output as a block of lines:
+ * <pre>
+ * #begin &lt;requestId&gt;
+ * ... the same lines printed by {@link ClassAnalyzer#main(String[])} ...
+ * #end &lt;requestId&gt; ok
+ * </pre>
+ * If the analysis fails, the block is closed by
+ * {@code #end <requestId> error <message>} instead.
+ * <p>
+ * Each analysis runs in its own thread, therefore a slow analysis does not
+ * delay the following requests and the responses may come in any order.
+ * An analysis can be stopped by a {@code cancel} request, or by exceeding
+ * the deadline given by the {@code --timeout=<millis>} option. In both cases
+ * the thread running the analysis is interrupted and the analysis request is
+ * answered at once with an error block. The {@code cancel} request itself
+ * gets no response.
+ * <p>
+ * A {@code preload} request loads the given classes and their ancestors ahead of
+ * time, so that the first analyses requested by the user find the JVM warm. The
+ * preload requests run one at a time, pause while an analysis is running and are
+ * not subject to the deadline. They are answered with an empty block.
+ * <p>
+ * A {@code stats} request is answered with the internal metrics of the server,
+ * like the number of requests, the cache hit rates and the memory allocated by
+ * each request, see {@link ServerStats}.
+ * <p>
+ * A successful block ends with one {@code #depends <mtime> <size> <path>} line for
+ * each class file or JAR file the outcome depends on, with the last modification
+ * time and the size the file had when it was read. Clients can use them to tell if
+ * an outcome they stored is still valid without asking the server again.
+ * <p>
+ * The project classes are not part of the JVM class path. They are loaded by two
+ * dedicated class loaders: a long-lived one for the dependencies of the project,
+ * and a child one for the output folders of the project. Only the class loader
+ * that loaded a changed file is discarded and recreated, therefore recompiling
+ * the project does not cause the dependency JAR files to be opened and indexed
+ * again. A change in a dependency recreates both class loaders.
+ * <p>
+ * The outcome of each analysis is cached until the class file of the analyzed
+ * class, or of one of its ancestors, changes, see {@link AnalysisCache}. Usage:
+ * {@code java ClassAnalyzer --server [--engine=<reflection|bytecode>] [--format=<text|json>] [--hash] [--timeout=<millis>] <outputClassPath> [<dependencyClassPath>]}
+ *
+ * @author Massimo Coluzzi
+ */
+final class AnalyzerServer
+{
+
+    /** The command line option enabling the server mode. */
+    static final String SERVER_OPTION = "--server";
+
+    /** Prefix of the lines reporting the files an outcome depends on. */
+    static final String DEPENDS_PREFIX = ClassAnalyzer.BLOCK_PREFIX + "depends ";
+
+    /** The command line option defining the deadline of each analysis in milliseconds. */
+    static final String TIMEOUT_OPTION = "--timeout=";
+
+    /** The time in milliseconds a preload waits before checking again for running analyses. */
+    private static final long PRELOAD_PAUSE = 10;
+
+
+    /** The engine used to read the classes. */
+    private final ClassAnalyzer.AnalysisEngine engine;
+
+    /** The format of the outcomes. */
+    private final ClassAnalyzer.OutputFormat format;
+
+    /** The entries of the class path containing the output folders of the project. */
+    private final List<URL> outputClassPath;
+
+    /** The entries of the class path containing the dependencies of the project. */
+    private final List<URL> dependencyClassPath;
+
+    /** The class loader used to load the dependencies of the project. */
+    private SharedLoader dependencyLoader;
+
+    /** The class loaders and caches used by the new analyses. */
+    private Generation generation;
+
+    /** The class files loaded by the current class loader with their last modification time when read. */
+    private final Map<File,Long> loadedClassFiles;
+
+    /** The files loaded by the current dependency loader with their last modification time when read. */
+    private final Map<File,Long> loadedDependencyFiles;
+
+    /** The outcomes of the analyses performed so far. */
+    private final AnalysisCache analysisCache;
+
+    /** The deadline of each analysis in milliseconds, {@code 0} means no deadline. */
+    private final long timeout;
+
+    /** Runs the analyses, one thread for each request. */
+    private final ExecutorService executor;
+
+    /** Runs the preload requests one at a time, so that the warm-up takes at most one processor. */
+    private final ExecutorService preloader;
+
+    /** The number of analyses currently reading classes. */
+    private final AtomicInteger runningAnalyses;
+
+    /** Stops the analyses exceeding their deadline. */
+    private final ScheduledExecutorService scheduler;
+
+    /** The analyses not yet answered, by request id. */
+    private final Map<String,Future<?>> runningRequests;
+
+    /** The internal metrics of the server. */
+    private final ServerStats stats;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param engine              the engine used to read the classes
+     * @param format              the format of the outcomes
+     * @param outputClassPath     the entries of the class path containing the project classes
+     * @param dependencyClassPath the entries of the class path containing the dependencies
+     * @param analysisCache       the cache of the outcomes of the analyses
+     * @param timeout             the deadline of each analysis in milliseconds
+     */
+    private AnalyzerServer(
+        ClassAnalyzer.AnalysisEngine engine, ClassAnalyzer.OutputFormat format,
+        List<URL> outputClassPath, List<URL> dependencyClassPath, AnalysisCache analysisCache,
+        long timeout
+    )
+    {
+
+        super();
+
+        this.engine = engine;
+        this.format = format;
+        this.outputClassPath = outputClassPath;
+        this.dependencyClassPath = dependencyClassPath;
+        this.dependencyLoader = null;
+        this.generation = null;
+        this.loadedClassFiles = new HashMap<>();
+        this.loadedDependencyFiles = new HashMap<>();
+        this.analysisCache = analysisCache;
+        this.timeout = timeout;
+        this.executor = Executors.newCachedThreadPool( daemonThreadFactory("analyzer-request") );
+        this.preloader = Executors.newSingleThreadExecutor( daemonThreadFactory("analyzer-preload") );
+        this.runningAnalyses = new AtomicInteger();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor( daemonThreadFactory("analyzer-deadline") );
+        this.runningRequests = new ConcurrentHashMap<>();
+        this.stats = new ServerStats();
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Converts the given class path string into a list of URLs.
+     * <p>
+     * Entries in the form {@code folder/*} are expanded into
+     * the list of JAR files contained in the folder.
+     *
+     * @param classPath the class path to parse
+     * @return the list of class path entries
+     * @throws MalformedURLException if an entry cannot be converted into an URL
+     */
+    private static List<URL> parseClassPath( String classPath ) throws MalformedURLException
+    {
+
+        final List<URL> urls = new ArrayList<>();
+        for( String entry : classPath.split(File.pathSeparator) )
+        {
+
+            if( entry.isEmpty() )
+                continue;
+
+            /* Wildcard entries include all the JAR files in the folder. */
+            if( entry.endsWith("*") )
+            {
+
+                final File folder = new File( entry.substring(0, entry.length() - 1) );
+                final File[] jars = folder.listFiles( (dir,name) -> name.endsWith(".jar") );
+                if( jars != null )
+                    for( File jar : jars )
+                        urls.add( jar.toURI().toURL() );
+
+            }
+            else
+                urls.add( new File(entry).toURI().toURL() );
+
+        }
+
+        return urls;
+
+    }
+
+
+    /**
+     * Returns a factory of daemon threads with the given name,
+     * so that pending analyses do not prevent the JVM from exiting.
+     *
+     * @param name the name of the threads
+     * @return the thread factory
+     */
+    private static ThreadFactory daemonThreadFactory( String name )
+    {
+
+        return runnable ->
+        {
+
+            final Thread thread = new Thread( runnable, name );
+            thread.setDaemon( true );
+            return thread;
+
+        };
+
+    }
+
+
+    /**
+     * Tells if at least one of the given files has been modified.
+     *
+     * @param loadedFiles the files to check with their last modification time
+     * @return {@code true} if the related class loader must be recreated
+     */
+    private static boolean isStale( Map<File,Long> loadedFiles )
+    {
+
+        for( Map.Entry<File,Long> entry : loadedFiles.entrySet() )
+            if( entry.getKey().lastModified() != entry.getValue() )
+                return true;
+
+        return false;
+
+    }
+
+
+    /**
+     * Closes the given class loader, if any.
+     *
+     * @param loader the class loader to close
+     */
+    private static void close( URLClassLoader loader )
+    {
+
+        if( loader == null )
+            return;
+
+        try{
+
+            loader.close();
+
+        }catch( IOException ex )
+        {
+
+            /* A failure in releasing the resources is not relevant. */
+
+        }
+
+    }
+
+
+    /**
+     * Returns the generation of class loaders to use for a new request
+     * and registers the request as one of its users.
+     * <p>
+     * If some of the loaded project classes have been recompiled,
+     * the current generation is retired and a new one is created
+     * with a new class loader and a new cache of the inherited fields.
+     * The dependency loader is kept unless one of the dependencies
+     * changed as well. The retired generation is closed when the
+     * last request using it is released.
+     *
+     * @return the generation to use, to be released by {@link #release(Generation)}
+     */
+    private synchronized Generation acquireGeneration()
+    {
+
+        final boolean dependenciesChanged = dependencyLoader == null || isStale( loadedDependencyFiles );
+        if( ! dependenciesChanged && generation != null && ! isStale(loadedClassFiles) )
+        {
+            generation.acquire();
+            return generation;
+        }
+
+        if( dependenciesChanged )
+        {
+
+            if( dependencyLoader != null )
+                dependencyLoader.release();
+
+            loadedDependencyFiles.clear();
+            stats.dependencyLoaders.increment();
+            dependencyLoader = new SharedLoader( new ClassFileLoader(
+                dependencyClassPath.toArray( new URL[dependencyClassPath.size()] ),
+                ClassLoader.getPlatformClassLoader(), analysisCache::fingerprintOf
+            ));
+
+        }
+
+        if( generation != null )
+            generation.retire();
+
+        loadedClassFiles.clear();
+        stats.projectLoaders.increment();
+        final ClassFileLoader classLoader = new ClassFileLoader(
+            outputClassPath.toArray( new URL[outputClassPath.size()] ),
+            dependencyLoader.loader, analysisCache::fingerprintOf
+        );
+        generation = new Generation(
+            dependencyLoader, classLoader, engine.newLoader( classLoader ),
+            new ClassAnalyzer.InheritedFieldCache( stats.fieldCacheHits, stats.fieldCacheMisses )
+        );
+
+        generation.acquire();
+        return generation;
+
+    }
+
+
+    /**
+     * Releases a generation acquired by {@link #acquireGeneration()}.
+     *
+     * @param used the generation used by the request
+     */
+    private synchronized void release( Generation used )
+    {
+
+        used.release();
+
+    }
+
+
+    /**
+     * Returns the files containing the given class and its ancestors,
+     * and keeps track of them so that a change in any of them causes
+     * the class loader that loaded it to be recreated.
+     * <p>
+     * The files are searched through the class loaders of the generation
+     * that loaded the class. They are tracked only if such a generation
+     * is still the current one, the files of a retired one are not relevant.
+     * <p>
+     * Each file is returned with the fingerprint taken when it was read,
+     * therefore a file changed during the analysis is not mistaken for
+     * the one the outcome is based on.
+     *
+     * @param used        the generation that loaded the class
+     * @param targetClass the analyzed class
+     * @return the files the analysis of the class depends on, {@code null} if some file was not read by the generation
+     * @throws ClassNotFoundException if an ancestor class cannot be found
+     */
+    private synchronized Map<File,AnalysisCache.Fingerprint> trackClassFiles( Generation used, ClassModel targetClass ) throws ClassNotFoundException
+    {
+
+        final boolean current = used == generation;
+        final Map<File,AnalysisCache.Fingerprint> classFiles = new LinkedHashMap<>();
+        for( String className : AnalysisCache.getDependencies(targetClass) )
+        {
+
+            /* Class loaders delegate to their parent first, so dependencies are found by the parent. */
+            final File dependencyFile = AnalysisCache.getLocation( used.dependencyLoader.loader, className );
+            final File classFile = dependencyFile != null ? dependencyFile : AnalysisCache.getLocation( used.classLoader, className );
+            if( classFile == null || classFiles.containsKey(classFile) )
+                continue;
+
+            final AnalysisCache.Fingerprint fingerprint = used.readStateOf( classFile );
+            if( fingerprint == null )
+                return null;
+
+            /* A file recompiled after being read makes the class loader stale. */
+            classFiles.put( classFile, fingerprint );
+            if( current )
+                ( dependencyFile != null ? loadedDependencyFiles : loadedClassFiles )
+                .putIfAbsent( classFile, fingerprint.lastModified );
+
+        }
+
+        return classFiles;
+
+    }
+
+
+    /**
+     * Analyzes the class with the given name.
+     * <p>
+     * The class is never initialized, therefore no static
+     * initializer is executed. If the class and its ancestors
+     * did not change since the last analysis, the cached
+     * outcome is returned.
+     *
+     * @param className the fully qualified name of the class
+     * @param prefix    the comma separated prefixes of the accessors to search for
+     * @return the lines describing the outcome of the analysis
+     * @throws ClassNotFoundException if the class cannot be found
+     */
+    private List<String> analyze( String className, String prefix ) throws ClassNotFoundException
+    {
+
+        final String prefixes = prefix != null ? prefix : "";
+        final List<String> cached = analysisCache.get( className, prefixes );
+        if( cached != null )
+        {
+            stats.analysisCacheHits.increment();
+            return cached;
+        }
+
+        stats.analysisCacheMisses.increment();
+
+        /* The class loaders are not closed until the analysis releases them. */
+        final Generation used = acquireGeneration();
+        final List<String> outcome;
+        final Map<File,AnalysisCache.Fingerprint> classFiles;
+        runningAnalyses.incrementAndGet();
+        try{
+
+            final ClassModel targetClass = used.modelLoader.load( className );
+            outcome = new ArrayList<>( ClassAnalyzer.analyze(
+                targetClass, ClassAnalyzer.AccessorType.parse(prefix), used.inheritedFieldCache, format
+            ));
+            stats.analysis( engine );
+
+            /* If some ancestor cannot be found, the outcome cannot be tracked and it is not cached. */
+            try{
+
+                classFiles = trackClassFiles( used, targetClass );
+                if( classFiles == null )
+                    return outcome;
+
+            }catch( ClassNotFoundException ex )
+            {
+
+                return outcome;
+
+            }
+
+        }finally
+        {
+
+            runningAnalyses.decrementAndGet();
+            release( used );
+
+        }
+
+        /* The files the outcome depends on are reported to the client as well. */
+        for( AnalysisCache.Fingerprint fingerprint : classFiles.values() )
+            outcome.add( DEPENDS_PREFIX + fingerprint.lastModified + ' ' + fingerprint.size + ' ' + fingerprint.file.getAbsolutePath() );
+
+        analysisCache.put( className, prefixes, outcome, classFiles );
+
+        return outcome;
+
+    }
+
+
+    /**
+     * Loads the given classes and their ancestors and collects the fields they inherit,
+     * so that the following analyses of the same classes, or of classes sharing the
+     * same ancestors, find them ready.
+     * <p>
+     * Before each class, the work waits for the running analyses to complete,
+     * so that it leaves the processor to the analyses requested in the meanwhile.
+     *
+     * @param classNames the fully qualified names of the classes to load
+     * @return an empty outcome
+     * @throws InterruptedException if the request is cancelled
+     */
+    private List<String> preload( List<String> classNames ) throws InterruptedException
+    {
+
+        final Generation used = acquireGeneration();
+        try{
+
+            for( String className : classNames )
+            {
+
+                while( runningAnalyses.get() > 0 )
+                    Thread.sleep( PRELOAD_PAUSE );
+
+                try{
+
+                    final ClassModel targetClass = used.modelLoader.load( className );
+                    used.inheritedFieldCache.getInheritedFields( targetClass.getSuperclass(), targetClass.getPackageName() );
+
+                    /* The preloaded classes must be reloaded when they change, like the analyzed ones. */
+                    trackClassFiles( used, targetClass );
+
+                }catch( ClassNotFoundException | LinkageError ex )
+                {
+
+                    /* Classes no longer available are skipped. */
+
+                }
+
+            }
+
+            return List.of();
+
+        }finally
+        {
+
+            release( used );
+
+        }
+
+    }
+
+
+    /**
+     * Returns the current value of the internal metrics of the server.
+     *
+     * @return the metrics in the form {@code <name> <value>}
+     */
+    private synchronized List<String> stats()
+    {
+
+        return stats.report( engine, loadedClassFiles.size(), loadedDependencyFiles.size() );
+
+    }
+
+
+    /**
+     * Runs the work related to the given request and prints the outcome,
+     * unless the request has been cancelled in the meanwhile.
+     *
+     * The time spent and the memory allocated by the work are
+     * recorded in the internal metrics.
+     *
+     * @param out       the stream to write the response to
+     * @param requestId the id of the request
+     * @param command   the requested command
+     * @param work      the work producing the lines of the response
+     */
+    private void respond( PrintStream out, String requestId, String command, Callable<List<String>> work )
+    {
+
+        final long start = System.nanoTime();
+        final long allocated = stats.allocatedBytes();
+
+        List<String> outcome = List.of();
+        String error = null;
+        try{
+
+            outcome = work.call();
+
+        }catch( Throwable ex )
+        {
+
+            error = ex.getClass() + " " + ex.getMessage();
+
+        }
+
+        stats.usage( command, System.nanoTime() - start, allocated < 0 ? -1 : stats.allocatedBytes() - allocated );
+
+        /* If the request has been cancelled, the response has already been sent. */
+        if( runningRequests.remove(requestId) != null )
+        {
+            stats.response( error == null ? "ok" : "error" );
+            ClassAnalyzer.printBlock( out, requestId, outcome, error );
+        }
+
+    }
+
+
+    /**
+     * Starts the work related to the given request using the given executor.
+     *
+     * @param runner    the executor running the work
+     * @param deadline  the deadline of the work in milliseconds, {@code 0} means no deadline
+     * @param out       the stream to write the response to
+     * @param requestId the id of the request
+     * @param command   the requested command
+     * @param work      the work producing the lines of the response
+     */
+    private void submit(
+        ExecutorService runner, long deadline,
+        PrintStream out, String requestId, String command, Callable<List<String>> work
+    )
+    {
+
+        final FutureTask<Void> task = new FutureTask<>( () -> respond(out, requestId, command, work), null );
+        runningRequests.put( requestId, task );
+        runner.execute( task );
+
+        if( deadline > 0 )
+            scheduler.schedule( () -> abort(out, requestId, "deadline", "Deadline exceeded"), deadline, TimeUnit.MILLISECONDS );
+
+    }
+
+
+    /**
+     * Stops the analysis related to the given request, if still running,
+     * and answers the request with the given error message.
+     *
+     * @param out       the stream to write the response to
+     * @param requestId the id of the request to stop
+     * @param outcome   the outcome recorded in the internal metrics
+     * @param message   the error message of the response
+     */
+    private void abort( PrintStream out, String requestId, String outcome, String message )
+    {
+
+        final Future<?> task = runningRequests.remove( requestId );
+        if( task == null )
+            return;
+
+        /* The analysis checks the interrupted status and stops, releasing the memory it holds. */
+        task.cancel( true );
+        stats.response( outcome );
+        ClassAnalyzer.printBlock( out, requestId, List.of(), message );
+
+    }
+
+
+    /**
+     * Serves the requests received through the given reader
+     * until the end of the stream or an {@code exit} request.
+     *
+     * @param in  the reader to read the requests from
+     * @param out the stream to write the responses to
+     * @throws IOException if the input stream cannot be read
+     * @throws InterruptedException if interrupted while waiting for the pending requests
+     */
+    private void serve( BufferedReader in, PrintStream out ) throws IOException, InterruptedException
+    {
+
+        stats.start();
+
+        String line;
+        while( (line = in.readLine()) != null )
+        {
+
+            final String[] request = line.trim().split( "\\s+" );
+            if( request.length < 2 )
+                continue;
+
+            final String requestId = request[0];
+            final String command = request[1];
+
+            if( "exit".equals(command) )
+            {
+                executor.shutdownNow();
+                preloader.shutdownNow();
+                scheduler.shutdownNow();
+                return;
+            }
+
+            if( "cancel".equals(command) && request.length > 2 )
+            {
+                stats.request( command );
+                abort( out, request[2], "cancelled", "Cancelled" );
+                continue;
+            }
+
+            if( "preload".equals(command) )
+            {
+                stats.request( command );
+                final List<String> classNames = List.of( request ).subList( 2, request.length );
+                /* A preload can take long and is not awaited by the user, it has no deadline. */
+                submit( preloader, 0, out, requestId, command, () -> preload(classNames) );
+                continue;
+            }
+
+            if( "stats".equals(command) )
+            {
+                stats.request( command );
+                submit( executor, timeout, out, requestId, command, this::stats );
+                continue;
+            }
+
+            if( ! "analyze".equals(command) || request.length < 3 )
+            {
+                stats.request( "unsupported" );
+                ClassAnalyzer.printBlock( out, requestId, List.of(), "Unsupported request: " + line );
+                continue;
+            }
+
+            stats.request( command );
+            final String className = request[2];
+            final String prefix = request.length > 3 ? request[3] : null;
+            submit( executor, timeout, out, requestId, command, () -> analyze(className, prefix) );
+
+        }
+
+        /* The requests already received are answered, within their deadline. */
+        executor.shutdown();
+        preloader.shutdown();
+        executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        preloader.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        scheduler.shutdownNow();
+
+    }
+
+
+    /* ************* */
+    /*  ENTRY POINT  */
+    /* ************* */
+
+
+    /**
+     * Entry point for the server mode.
+     * <p>
+     * This method expects the class path containing the output folders
+     * of the project to analyze, optionally followed by the class path
+     * containing its dependencies. Classes found in both are loaded
+     * from the dependencies.
+     *
+     * @param engine  the engine used to read the classes
+     * @param format  the format of the outcomes
+     * @param hashing tells if the content of the class files should be hashed
+     * @param timeout the deadline of each analysis in milliseconds, {@code 0} for none
+     * @param args    the command line arguments without options
+     */
+    static void main(
+        ClassAnalyzer.AnalysisEngine engine, ClassAnalyzer.OutputFormat format,
+        boolean hashing, long timeout, List<String> args
+    )
+    {
+
+        try{
+
+            final List<URL> outputClassPath = parseClassPath( args.size() > 0 ? args.get(0) : "" );
+            final List<URL> dependencyClassPath = parseClassPath( args.size() > 1 ? args.get(1) : "" );
+            final BufferedReader in = new BufferedReader( new InputStreamReader(System.in, StandardCharsets.UTF_8) );
+
+            new AnalyzerServer(
+                engine, format, outputClassPath, dependencyClassPath, new AnalysisCache(hashing), timeout
+            ).serve( in, System.out );
+
+        }catch( Throwable ex )
+        {
+
+            System.err.println( ex.getClass() + " " + ex.getMessage() );
+
+        }
+
+    }
+
+
+    /* *************** */
+    /*  INNER CLASSES  */
+    /* *************** */
+
+
+    /**
+     * A class loader taking the fingerprint of each class file or JAR file
+     * right before reading it, both when a class is defined and when
+     * its bytes are read as a resource by the bytecode engine.
+     * <p>
+     * Only the first read of each file is recorded: the outcomes of the
+     * analyses are based on the state of the files at that time.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class ClassFileLoader extends URLClassLoader
+    {
+
+        static
+        {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+
+        /** Takes the fingerprint of a file. */
+        private final Function<File,AnalysisCache.Fingerprint> fingerprints;
+
+        /** The fingerprints of the files read so far, taken before reading them. */
+        private final Map<File,AnalysisCache.Fingerprint> readFiles;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param urls         the class path entries
+         * @param parent       the parent class loader
+         * @param fingerprints takes the fingerprint of a file
+         */
+        ClassFileLoader( URL[] urls, ClassLoader parent, Function<File,AnalysisCache.Fingerprint> fingerprints )
+        {
+
+            super( urls, parent );
+
+            this.fingerprints = fingerprints;
+            this.readFiles = new ConcurrentHashMap<>();
+
+        }
+
+
+        /**
+         * Takes the fingerprint of the file containing
+         * the given resource, if not taken yet.
+         *
+         * @param url the URL of the resource about to be read
+         */
+        private void beforeRead( URL url )
+        {
+
+            final File file = url != null ? AnalysisCache.getFile( url ) : null;
+            if( file != null )
+                readFiles.computeIfAbsent( file, fingerprints );
+
+        }
+
+
+        /**
+         * Returns the fingerprint of the given file taken when it was first read.
+         *
+         * @param file the class file or JAR file
+         * @return the fingerprint of the file, {@code null} if never read
+         */
+        AnalysisCache.Fingerprint readStateOf( File file )
+        {
+
+            return readFiles.get( file );
+
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Class<?> findClass( String name ) throws ClassNotFoundException
+        {
+
+            beforeRead( findResource(name.replace('.', '/') + ".class") );
+            return super.findClass( name );
+
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public InputStream getResourceAsStream( String name )
+        {
+
+            beforeRead( getResource(name) );
+            return super.getResourceAsStream( name );
+
+        }
+
+    }
+
+
+    /**
+     * A class loader shared by several generations,
+     * closed when the last of them releases it.
+     * <p>
+     * This class is not thread safe, it is used
+     * while holding the lock of the server.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class SharedLoader
+    {
+
+        /** The shared class loader. */
+        final ClassFileLoader loader;
+
+        /** The number of holders of the class loader. */
+        private int references;
+
+
+        /**
+         * Constructor with parameters.
+         * The creator is the first holder of the class loader.
+         *
+         * @param loader the class loader to share
+         */
+        SharedLoader( ClassFileLoader loader )
+        {
+
+            super();
+
+            this.loader = loader;
+            this.references = 1;
+
+        }
+
+
+        /**
+         * Adds a holder of the class loader.
+         *
+         */
+        void acquire()
+        {
+
+            ++references;
+
+        }
+
+
+        /**
+         * Removes a holder of the class loader
+         * and closes it if it was the last one.
+         *
+         */
+        void release()
+        {
+
+            if( --references == 0 )
+                close( loader );
+
+        }
+
+    }
+
+
+    /**
+     * The class loaders and the caches used by the analyses
+     * between two recompilations of the project.
+     * <p>
+     * A generation is retired when the project is recompiled, but its
+     * class loaders are closed only when the last request using it ends,
+     * so that the running analyses can still read the class files.
+     * <p>
+     * This class is not thread safe, it is used
+     * while holding the lock of the server.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class Generation
+    {
+
+        /** The class loader used to load the dependencies of the project. */
+        final SharedLoader dependencyLoader;
+
+        /** The class loader used to load the project classes, child of the dependency loader. */
+        final ClassFileLoader classLoader;
+
+        /** The loader of the class models based on the class loader. */
+        final ClassModel.Loader modelLoader;
+
+        /** The fields inherited from the classes loaded by the class loader. */
+        final ClassAnalyzer.InheritedFieldCache inheritedFieldCache;
+
+        /** The number of requests using the generation. */
+        private int requests;
+
+        /** Tells if the generation has been replaced by a newer one. */
+        private boolean retired;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param dependencyLoader    the class loader of the dependencies
+         * @param classLoader         the class loader of the project classes
+         * @param modelLoader         the loader of the class models
+         * @param inheritedFieldCache the cache of the inherited fields
+         */
+        Generation(
+            SharedLoader dependencyLoader, ClassFileLoader classLoader,
+            ClassModel.Loader modelLoader, ClassAnalyzer.InheritedFieldCache inheritedFieldCache
+        )
+        {
+
+            super();
+
+            this.dependencyLoader = dependencyLoader;
+            this.classLoader = classLoader;
+            this.modelLoader = modelLoader;
+            this.inheritedFieldCache = inheritedFieldCache;
+            this.requests = 0;
+            this.retired = false;
+
+            dependencyLoader.acquire();
+
+        }
+
+
+        /**
+         * Returns the fingerprint of the given file taken when
+         * the class loaders of the generation read it.
+         *
+         * @param file the class file or JAR file
+         * @return the fingerprint of the file, {@code null} if never read
+         */
+        AnalysisCache.Fingerprint readStateOf( File file )
+        {
+
+            final AnalysisCache.Fingerprint fingerprint = dependencyLoader.loader.readStateOf( file );
+            return fingerprint != null ? fingerprint : classLoader.readStateOf( file );
+
+        }
+
+
+        /**
+         * Registers a request using the generation.
+         *
+         */
+        void acquire()
+        {
+
+            ++requests;
+
+        }
+
+
+        /**
+         * Unregisters a request using the generation and
+         * closes the class loaders if it was the last one
+         * of a retired generation.
+         *
+         */
+        void release()
+        {
+
+            --requests;
+            closeIfUnused();
+
+        }
+
+
+        /**
+         * Marks the generation as replaced by a newer one
+         * and closes the class loaders if no request uses them.
+         *
+         */
+        void retire()
+        {
+
+            retired = true;
+            closeIfUnused();
+
+        }
+
+
+        /**
+         * Closes the class loaders of a retired generation
+         * no longer used by any request.
+         *
+         */
+        private void closeIfUnused()
+        {
+
+            if( ! retired || requests > 0 )
+                return;
+
+            close( classLoader );
+            dependencyLoader.release();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,860 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Implementation of the {@link ClassModel} based on the content of the {@code .class} files.
+ * <p>
+ * The class file is parsed directly from its bytes, therefore the class is never
+ * loaded, linked or initialized by the JVM and no user code (like static initializers)
+ * is executed. Ancestor classes and interfaces are read in the same way by searching
+ * their class files in the class path.
+ *
+ * @author Massimo Coluzzi
+ */
+final class BytecodeClassModel implements ClassModel
+{
+
+    /** The magic number identifying a class file. */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /** The constant pool tags as defined by the JVM specification. */
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+
+    /** The resolver used to read the ancestor classes. */
+    private final Resolver resolver;
+
+    /** The binary name of the class. */
+    private final String name;
+
+    /** The binary name of the superclass, {@code null} for {@link Object}. */
+    private final String superclassName;
+
+    /** The binary names of the implemented interfaces. */
+    private final List<String> interfaceNames;
+
+    /** The fields declared by the class. */
+    private final List<FieldModel> fields;
+
+    /** The methods declared by the class. */
+    private final List<MethodModel> methods;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param resolver       the resolver used to read the ancestor classes
+     * @param name           the binary name of the class
+     * @param superclassName the binary name of the superclass
+     * @param interfaceNames the binary names of the implemented interfaces
+     * @param fields         the fields declared by the class
+     * @param methods        the methods declared by the class
+     */
+    private BytecodeClassModel(
+        Resolver resolver, String name, String superclassName,
+        List<String> interfaceNames, List<FieldModel> fields, List<MethodModel> methods
+    )
+    {
+
+        super();
+
+        this.resolver = resolver;
+        this.name = name;
+        this.superclassName = superclassName;
+        this.interfaceNames = interfaceNames;
+        this.fields = fields;
+        this.methods = methods;
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the simple name related to the given binary name.
+     * <p>
+     * For nested classes the name of the enclosing class is removed,
+     * for local classes also the leading index is removed.
+     *
+     * @param binaryName the binary name of the class
+     * @return the simple name of the class
+     */
+    private static String toSimpleName( String binaryName )
+    {
+
+        final String name = binaryName.substring( binaryName.lastIndexOf('.') + 1 );
+        final int nestedIndex = name.lastIndexOf( '$' );
+        if( nestedIndex < 0 )
+            return name;
+
+        int i = nestedIndex + 1;
+        while( i < name.length() && Character.isDigit(name.charAt(i)) )
+            ++i;
+
+        return name.substring( i );
+
+    }
+
+
+    /**
+     * Returns the name of the primitive type represented by the given descriptor character,
+     * or {@code null} if the character does not represent a primitive type.
+     *
+     * @param descriptor the type descriptor character
+     * @return the name of the primitive type if any
+     */
+    private static String toPrimitiveTypeName( char descriptor )
+    {
+
+        switch( descriptor )
+        {
+
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'D': return "double";
+            case 'F': return "float";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'S': return "short";
+            case 'Z': return "boolean";
+            case 'V': return "void";
+            default: return null;
+
+        }
+
+    }
+
+
+    /**
+     * Returns the name of the type represented by the given descriptor.
+     * <p>
+     * If required, the name of the class is converted into its simple name.
+     *
+     * @param descriptor the type descriptor to convert
+     * @param simple     tells if the simple name is required
+     * @return the name of the related type
+     */
+    private static String toTypeName( String descriptor, boolean simple )
+    {
+
+        int dimensions = 0;
+        while( descriptor.charAt(dimensions) == '[' )
+            ++dimensions;
+
+        String typeName = toPrimitiveTypeName( descriptor.charAt(dimensions) );
+        if( typeName == null )
+        {
+
+            final String internalName = descriptor.substring( dimensions + 1, descriptor.length() - 1 );
+            typeName = internalName.replace( '/', '.' );
+            if( simple )
+                typeName = toSimpleName( typeName );
+
+        }
+
+        return typeName + "[]".repeat( dimensions );
+
+    }
+
+
+    /**
+     * Returns the name of the generic type represented by the given signature,
+     * in the same form used by {@link java.lang.reflect.Type#getTypeName()}
+     * (like {@code java.util.Map<java.lang.String, ? extends java.lang.Number>}).
+     *
+     * @param signature the field type signature to convert
+     * @return the name of the related generic type
+     */
+    private static String toGenericTypeName( String signature )
+    {
+
+        final StringBuilder typeName = new StringBuilder( signature.length() );
+        appendGenericTypeName( signature, 0, typeName );
+
+        return typeName.toString();
+
+    }
+
+
+    /**
+     * Appends the name of the generic type starting at the given position of the signature.
+     *
+     * @param signature the signature to parse
+     * @param position  the position of the type in the signature
+     * @param typeName  the builder to append to
+     * @return the position following the type
+     */
+    private static int appendGenericTypeName( String signature, int position, StringBuilder typeName )
+    {
+
+        final char first = signature.charAt( position );
+        switch( first )
+        {
+
+            /* Array types are followed by their component type. */
+            case '[':
+                final int next = appendGenericTypeName( signature, position + 1, typeName );
+                typeName.append( "[]" );
+                return next;
+
+            /* Type variables are represented by their name. */
+            case 'T':
+                final int end = signature.indexOf( ';', position );
+                typeName.append( signature, position + 1, end );
+                return end + 1;
+
+            case 'L':
+                return appendClassTypeName( signature, position + 1, typeName );
+
+            default:
+                typeName.append( toPrimitiveTypeName(first) );
+                return position + 1;
+
+        }
+
+    }
+
+
+    /**
+     * Appends the name of the class type starting at the given position of the signature,
+     * right after the leading {@code L}.
+     * <p>
+     * Type arguments are separated by {@code ", "} and inner classes of parameterized
+     * classes are separated by {@code $} as done by the reflection API.
+     *
+     * @param signature the signature to parse
+     * @param position  the position of the class name in the signature
+     * @param typeName  the builder to append to
+     * @return the position following the type
+     */
+    private static int appendClassTypeName( String signature, int position, StringBuilder typeName )
+    {
+
+        while( true )
+        {
+
+            int end = position;
+            while( "<.;".indexOf(signature.charAt(end)) < 0 )
+                ++end;
+
+            typeName.append( signature.substring(position, end).replace('/', '.') );
+            position = end;
+
+            if( signature.charAt(position) == '<' )
+            {
+
+                typeName.append( '<' );
+                ++position;
+                while( signature.charAt(position) != '>' )
+                {
+
+                    if( typeName.charAt(typeName.length() - 1) != '<' )
+                        typeName.append( ", " );
+
+                    position = appendTypeArgumentName( signature, position, typeName );
+
+                }
+
+                typeName.append( '>' );
+                ++position;
+
+            }
+
+            if( signature.charAt(position) == ';' )
+                return position + 1;
+
+            /* The following segment is an inner class. */
+            typeName.append( '$' );
+            ++position;
+
+        }
+
+    }
+
+
+    /**
+     * Appends the name of the type argument starting at the given position of the signature.
+     *
+     * @param signature the signature to parse
+     * @param position  the position of the type argument in the signature
+     * @param typeName  the builder to append to
+     * @return the position following the type argument
+     */
+    private static int appendTypeArgumentName( String signature, int position, StringBuilder typeName )
+    {
+
+        final char first = signature.charAt( position );
+        if( first == '*' )
+        {
+            typeName.append( '?' );
+            return position + 1;
+        }
+
+        if( first != '+' && first != '-' )
+            return appendGenericTypeName( signature, position, typeName );
+
+        final StringBuilder bound = new StringBuilder();
+        final int next = appendGenericTypeName( signature, position + 1, bound );
+
+        /* An upper bound equal to Object is omitted. */
+        if( first == '+' && ClassModel.OBJECT_CLASS_NAME.contentEquals(bound) )
+            typeName.append( '?' );
+        else
+            typeName.append( first == '+' ? "? extends " : "? super " ).append( bound );
+
+        return next;
+
+    }
+
+
+    /**
+     * Adds to the given collection the signatures of the methods declared
+     * by this class whose modifiers satisfy the given masks.
+     *
+     * @param signatures         the collection to fill
+     * @param requiredModifiers  the modifiers the method must have
+     * @param forbiddenModifiers the modifiers the method must not have
+     */
+    private void collectMethodSignatures(
+        Collection<String> signatures, int requiredModifiers, int forbiddenModifiers
+    )
+    {
+
+        for( MethodModel method : methods )
+            if( (method.modifiers & requiredModifiers) == requiredModifiers
+                && (method.modifiers & forbiddenModifiers) == 0 )
+                signatures.add( method.signature );
+
+    }
+
+
+    /**
+     * Adds to the given collection the signatures of the public instance methods
+     * declared by the given interfaces and by their super interfaces.
+     *
+     * @param interfaceNames the names of the interfaces to visit
+     * @param visited        the names of the interfaces already visited
+     * @param signatures     the collection to fill
+     */
+    private void collectInterfaceMethodSignatures(
+        List<String> interfaceNames, Set<String> visited, Collection<String> signatures
+    )
+    {
+
+        for( String interfaceName : interfaceNames )
+        {
+
+            if( ! visited.add(interfaceName) )
+                continue;
+
+            final BytecodeClassModel model = resolver.resolveQuietly( interfaceName );
+            if( model == null )
+                continue;
+
+            model.collectMethodSignatures( signatures, Modifier.PUBLIC, Modifier.STATIC );
+            collectInterfaceMethodSignatures( model.interfaceNames, visited, signatures );
+
+        }
+
+    }
+
+
+    /* ******************* */
+    /*  INTERFACE METHODS  */
+    /* ******************* */
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName()
+    {
+
+        return name;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSimpleName()
+    {
+
+        return toSimpleName( name );
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPackageName()
+    {
+
+        final int index = name.lastIndexOf( '.' );
+        return index > 0 ? name.substring( 0, index ) : "";
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClassModel getSuperclass() throws ClassNotFoundException
+    {
+
+        return superclassName != null ? resolver.resolve( superclassName ) : null;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ClassModel> getInterfaces() throws ClassNotFoundException
+    {
+
+        final List<ClassModel> models = new ArrayList<>( interfaceNames.size() );
+        for( String interfaceName : interfaceNames )
+            models.add( resolver.resolve(interfaceName) );
+
+        return models;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FieldModel> getDeclaredFields()
+    {
+
+        return fields;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getDeclaredMethodSignatures()
+    {
+
+        final List<String> signatures = new ArrayList<>( methods.size() );
+        collectMethodSignatures( signatures, 0, 0 );
+
+        return signatures;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Public methods are collected from the class and its superclasses,
+     * then public instance methods are collected from the implemented
+     * interfaces.
+     */
+    @Override
+    public Collection<String> getPublicMethodSignatures()
+    {
+
+        final Set<String> signatures = new HashSet<>();
+
+        final List<String> interfaceNames = new ArrayList<>();
+        for( BytecodeClassModel current = this; current != null; )
+        {
+
+            current.collectMethodSignatures( signatures, Modifier.PUBLIC, 0 );
+
+            interfaceNames.addAll( current.interfaceNames );
+            current = current.superclassName != null
+            ? resolver.resolveQuietly( current.superclassName )
+            : null;
+
+        }
+
+        collectInterfaceMethodSignatures( interfaceNames, new HashSet<>(), signatures );
+
+        return signatures;
+
+    }
+
+
+    /* *************** */
+    /*  INNER CLASSES  */
+    /* *************** */
+
+
+    /**
+     * Represents a method declared by a class.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class MethodModel
+    {
+
+        /** The name of the method. */
+        final String name;
+
+        /** The modifiers of the method. */
+        final int modifiers;
+
+        /** The signature of the method as defined by {@link ClassModel#signatureOf(String, String)}. */
+        final String signature;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param name       the name of the method
+         * @param modifiers  the modifiers of the method
+         * @param descriptor the descriptor of the method (like {@code (Ljava/lang/String;)V})
+         */
+        MethodModel( String name, int modifiers, String descriptor )
+        {
+
+            super();
+
+            this.name = name;
+            this.modifiers = modifiers;
+            this.signature = ClassModel.signatureOf( name, descriptor.substring(1, descriptor.indexOf(')')) );
+
+        }
+
+    }
+
+
+    /**
+     * Reads the class files from the class path and keeps track
+     * of the classes already read.
+     * <p>
+     * The given class loader is used only to find the class files,
+     * no class is ever defined through it.
+     * <p>
+     * The resolver is thread safe and can be shared by concurrent analyses,
+     * in this case each class file is read at most once in most cases.
+     *
+     * @author Massimo Coluzzi
+     */
+    static final class Resolver implements ClassModel.Loader
+    {
+
+        /** The class loader used to find the class files. */
+        private final ClassLoader resources;
+
+        /** The classes already read by binary name. */
+        private final Map<String,BytecodeClassModel> models;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param resources the class loader used to find the class files
+         */
+        Resolver( ClassLoader resources )
+        {
+
+            super();
+
+            this.resources = resources;
+            this.models = new ConcurrentHashMap<>();
+
+        }
+
+
+        /**
+         * Returns the model of the class with the given binary name.
+         *
+         * @param className the binary name of the class
+         * @return the related model
+         * @throws ClassNotFoundException if the class file cannot be found or read
+         */
+        BytecodeClassModel resolve( String className ) throws ClassNotFoundException
+        {
+
+            final BytecodeClassModel cached = models.get( className );
+            if( cached != null )
+                return cached;
+
+            final AnalyzerEvents.ClassResolution resolution = AnalyzerEvents.classResolution();
+
+            final String resourceName = className.replace( '.', '/' ) + ".class";
+            try( InputStream in = resources.getResourceAsStream(resourceName) )
+            {
+
+                if( in == null )
+                    throw new ClassNotFoundException( className );
+
+                final byte[] classFile = in.readAllBytes();
+                final BytecodeClassModel model = read( this, classFile );
+
+                if( resolution != null && resolution.shouldCommit() )
+                {
+                    resolution.className = className;
+                    resolution.engine = "bytecode";
+                    resolution.classFileSize = classFile.length;
+                    resolution.commit();
+                }
+
+                /* If another thread read the same class in the meanwhile, we keep the first one. */
+                final BytecodeClassModel previous = models.putIfAbsent( className, model );
+
+                return previous != null ? previous : model;
+
+            }catch( IOException | RuntimeException ex )
+            {
+
+                throw new ClassNotFoundException( className, ex );
+
+            }
+
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ClassModel load( String className ) throws ClassNotFoundException
+        {
+
+            return resolve( className );
+
+        }
+
+
+        /**
+         * Returns the model of the class with the given binary name,
+         * or {@code null} if the class cannot be found.
+         *
+         * @param className the binary name of the class
+         * @return the related model if any
+         */
+        BytecodeClassModel resolveQuietly( String className )
+        {
+
+            try{
+
+                return resolve( className );
+
+            }catch( ClassNotFoundException ex )
+            {
+
+                return null;
+
+            }
+
+        }
+
+    }
+
+
+    /* ****************** */
+    /*  CLASS FILE PARSER  */
+    /* ****************** */
+
+
+    /**
+     * Reads the attributes of a field or a method and
+     * returns the value of the {@code Signature} attribute, if any.
+     *
+     * @param in       the stream to read
+     * @param utf8     the UTF8 entries of the constant pool
+     * @return the generic signature if any
+     * @throws IOException if the stream cannot be read
+     */
+    private static String readSignature( DataInputStream in, String[] utf8 ) throws IOException
+    {
+
+        String signature = null;
+
+        final int attributeCount = in.readUnsignedShort();
+        for( int i = 0; i < attributeCount; ++i )
+        {
+
+            final String attributeName = utf8[in.readUnsignedShort()];
+            final int length = in.readInt();
+
+            if( "Signature".equals(attributeName) )
+            {
+                signature = utf8[in.readUnsignedShort()];
+                in.skipNBytes( length - 2 );
+            }
+            else
+                in.skipNBytes( length );
+
+        }
+
+        return signature;
+
+    }
+
+
+    /**
+     * Parses the given class file content.
+     *
+     * @param resolver the resolver used to read the ancestor classes
+     * @param bytes    the content of the class file
+     * @return the related model
+     * @throws IOException if the content is not a valid class file
+     */
+    private static BytecodeClassModel read( Resolver resolver, byte[] bytes ) throws IOException
+    {
+
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream(bytes) );
+
+        if( in.readInt() != MAGIC )
+            throw new IOException( "Not a valid class file" );
+
+        /* We skip minor and major versions. */
+        in.skipNBytes( 4 );
+
+        /*
+         * We keep only the UTF8 entries and the class references
+         * of the constant pool, all other entries are skipped.
+         */
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8 = new String[constantPoolCount];
+        final int[] classes = new int[constantPoolCount];
+        for( int i = 1; i < constantPoolCount; ++i )
+        {
+
+            final int tag = in.readUnsignedByte();
+            switch( tag )
+            {
+
+                case CONSTANT_UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+
+                case CONSTANT_CLASS:
+                    classes[i] = in.readUnsignedShort();
+                    break;
+
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    in.skipNBytes( 2 );
+                    break;
+
+                case CONSTANT_METHOD_HANDLE:
+                    in.skipNBytes( 3 );
+                    break;
+
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    in.skipNBytes( 4 );
+                    break;
+
+                /* Long and double entries take two slots in the constant pool. */
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    in.skipNBytes( 8 );
+                    ++i;
+                    break;
+
+                default:
+                    throw new IOException( "Unexpected constant pool tag " + tag );
+
+            }
+
+        }
+
+        /* We skip the access flags of the class. */
+        in.skipNBytes( 2 );
+
+        final String name = utf8[classes[in.readUnsignedShort()]].replace( '/', '.' );
+
+        final int superclassIndex = in.readUnsignedShort();
+        final String superclassName = superclassIndex != 0
+        ? utf8[classes[superclassIndex]].replace( '/', '.' )
+        : null;
+
+        final int interfaceCount = in.readUnsignedShort();
+        final List<String> interfaceNames = new ArrayList<>( interfaceCount );
+        for( int i = 0; i < interfaceCount; ++i )
+            interfaceNames.add( utf8[classes[in.readUnsignedShort()]].replace('/', '.') );
+
+        final int fieldCount = in.readUnsignedShort();
+        final List<FieldModel> fields = new ArrayList<>( fieldCount );
+        for( int i = 0; i < fieldCount; ++i )
+        {
+
+            final int modifiers = in.readUnsignedShort();
+            final String fieldName = utf8[in.readUnsignedShort()];
+            final String descriptor = utf8[in.readUnsignedShort()];
+            final String signature = readSignature( in, utf8 );
+
+            final String typeName = toTypeName( descriptor, false );
+            fields.add( new FieldModel(
+                fieldName, modifiers, descriptor, toTypeName(descriptor, true),
+                typeName, signature != null ? toGenericTypeName( signature ) : typeName,
+                name
+            ));
+
+        }
+
+        final int methodCount = in.readUnsignedShort();
+        final List<MethodModel> methods = new ArrayList<>( methodCount );
+        for( int i = 0; i < methodCount; ++i )
+        {
+
+            final int modifiers = in.readUnsignedShort();
+            final String methodName = utf8[in.readUnsignedShort()];
+            final String descriptor = utf8[in.readUnsignedShort()];
+            readSignature( in, utf8 );
+
+            methods.add( new MethodModel(methodName, modifiers, descriptor) );
+
+        }
+
+        return new BytecodeClassModel(
+            resolver, name, superclassName,
+            Collections.unmodifiableList( interfaceNames ),
+            Collections.unmodifiableList( fields ),
+            Collections.unmodifiableList( methods )
+        );
+
+    }
+
+}
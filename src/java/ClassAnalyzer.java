@@ -1,18 +1,84 @@
-import java.lang.reflect.Field;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
- * This class analyzes a compiled file and returns all the accessible fields Usage:
- * {@code java java ClassAnalyzer <className> <accessorPrefix>}
+ * This class analyzes a compiled file and returns all the accessible fields.
+ * <p>
+ * It can be run in three modes:
+ * <ul>
+ * <li>single class: {@code java ClassAnalyzer [options] <className> <accessorPrefix>}</li>
+ * <li>batch: {@code java ClassAnalyzer --batch[=<file>] [options] <accessorPrefix>},
+ *     see {@link #analyzeBatch}</li>
+ * <li>server: {@code java ClassAnalyzer --server [options] <outputClassPath> [<dependencyClassPath>]},
+ *     see {@link AnalyzerServer}</li>
+ * </ul>
+ * The options are {@code --engine=<reflection|bytecode>}, {@code --format=<text|json>},
+ * {@code --threads=<n>} in batch mode and {@code --hash}, {@code --timeout=<millis>}
+ * in server mode, see {@link #main(String[])}.
  * 
  * @author Bryan Beffa
  */
 public class ClassAnalyzer
 {
 
+    /** The command line option selecting the analysis engine. */
+    static final String ENGINE_OPTION = "--engine=";
+
+    /** The command line option enabling the batch mode. */
+    static final String BATCH_OPTION = "--batch";
+
+    /** The command line option defining the number of concurrent analyses. */
+    static final String THREADS_OPTION = "--threads=";
+
+    /** The command line option selecting the output format. */
+    static final String FORMAT_OPTION = "--format=";
+
+    /** Prefix of the lines delimiting a block of output. */
+    static final String BLOCK_PREFIX = "#";
+
+    /** The version of the {@link OutputFormat#JSON} format. */
+    static final int JSON_FORMAT_VERSION = 1;
+
+    /** The command line syntax printed when the arguments are not valid. */
+    private static final String USAGE = String.join( System.lineSeparator(),
+        "Usage: java ClassAnalyzer [--engine=<reflection|bytecode>] [--format=<text|json>] <className> <accessorPrefix>",
+        "       java ClassAnalyzer --batch[=<file>] [--threads=<n>] [--engine=<reflection|bytecode>] [--format=<text|json>] <accessorPrefix>",
+        "       java ClassAnalyzer --server [--hash] [--timeout=<millis>] [--engine=<reflection|bytecode>] [--format=<text|json>] <outputClassPath> [<dependencyClassPath>]"
+    );
+
+
+    /**
+     * Stops the analysis if the current thread has been interrupted,
+     * like when the related server request is cancelled or exceeds its deadline.
+     * 
+     * @throws CancellationException if the current thread has been interrupted
+     */
+    private static void checkInterrupted()
+    {
+
+        if( Thread.currentThread().isInterrupted() )
+            throw new CancellationException( "The analysis has been interrupted" );
+
+    }
+
 
     /**
      * Tells if the given field, is accessible by the current class.
@@ -37,7 +103,7 @@ public class ClassAnalyzer
      * @return {@code true} if the field is accessible by the current class
      */
     private static boolean isAccessibleAndNotStatic(
-        int field, boolean inCurrentClass, Package classPackage, Package parentPackage
+        int field, boolean inCurrentClass, String classPackage, String parentPackage
     )
     {
 
@@ -67,6 +133,33 @@ public class ClassAnalyzer
     }
 
 
+    /**
+     * Appends the given value as a JSON string.
+     * 
+     * @param sb    the builder to append to
+     * @param value the value to append
+     */
+    private static void appendJsonString( StringBuilder sb, String value )
+    {
+
+        sb.append( '"' );
+        for( int i = 0; i < value.length(); ++i )
+        {
+
+            final char c = value.charAt( i );
+            if( c == '"' || c == '\\' )
+                sb.append( '\\' ).append( c );
+            else if( c < 0x20 )
+                sb.append( String.format("\\u%04x", (int) c) );
+            else
+                sb.append( c );
+
+        }
+        sb.append( '"' );
+
+    }
+
+
     /**
      * Returns all the fields declared in the current class and inherited from ancestor classes.
      * <p>
@@ -80,44 +173,156 @@ public class ClassAnalyzer
     public static List<AccessibleField> getAccessibleFields( Class<?> targetClass, AccessorType accessorType )
     {
 
-        final List<AccessibleField> accessibleFields = new ArrayList<>();
+        return getAccessibleFields( targetClass, new AccessorType[] { accessorType } );
+
+    }
+
+
+    /**
+     * Returns all the fields declared in the current class and inherited from ancestor classes
+     * together with the availability of each of the required accessor types.
+     * 
+     * @param targetClass   the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @return a list of accessible fields
+     * @see #getAccessibleFields(ClassModel, AccessorType[])
+     */
+    public static List<AccessibleField> getAccessibleFields( Class<?> targetClass, AccessorType[] accessorTypes )
+    {
+
+        try{
+
+            return getAccessibleFields( ReflectionClassModel.of(targetClass), accessorTypes );
+
+        }catch( ClassNotFoundException ex )
+        {
+
+            /* The superclasses of a loaded class are always available. */
+            throw new IllegalStateException( ex );
+
+        }
+
+    }
+
+
+    /**
+     * Returns all the fields declared in the current class and inherited from ancestor classes
+     * together with the availability of each of the required accessor types.
+     * <p>
+     * The class hierarchy is walked only once regardless of the number of accessor types.
+     * A field is returned if at least one of the accessor types is applicable to it.
+     * For the accessor types requiring a modifiable field, final fields report
+     * a {@code null} availability.
+     * 
+     * @param targetClass   the model of the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @return a list of accessible fields
+     * @throws ClassNotFoundException if an ancestor class cannot be found
+     */
+    public static List<AccessibleField> getAccessibleFields( ClassModel targetClass, AccessorType[] accessorTypes )
+    throws ClassNotFoundException
+    {
+
+        return getAccessibleFields( targetClass, accessorTypes, new InheritedFieldCache() );
+
+    }
+
+
+    /**
+     * Returns all the fields declared in the current class and inherited from ancestor classes
+     * together with the availability of each of the required accessor types.
+     * <p>
+     * The fields inherited from the ancestor classes are taken from the given cache,
+     * so that classes sharing the same ancestors do not walk the same hierarchy again.
+     * 
+     * @param targetClass   the model of the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @param cache         the cache of the fields inherited from the ancestor classes
+     * @return a list of accessible fields
+     * @throws ClassNotFoundException if an ancestor class cannot be found
+     * @see #getAccessibleFields(ClassModel, AccessorType[])
+     */
+    static List<AccessibleField> getAccessibleFields(
+        ClassModel targetClass, AccessorType[] accessorTypes, InheritedFieldCache cache
+    )
+    throws ClassNotFoundException
+    {
+
+        final AnalyzerEvents.HierarchyWalk walk = AnalyzerEvents.hierarchyWalk();
 
         /* We need the class package to check package visibility. */
-        final Package classPackage = targetClass.getPackage();
+        final String classPackage = targetClass.getPackageName();
+
+        /* Get all the accessible fields in current class. */
+        final List<ClassModel.FieldModel> fields = new ArrayList<>();
+        for( ClassModel.FieldModel field : targetClass.getDeclaredFields() )
+            if( isAccessibleAndNotStatic(field.modifiers, true, classPackage, classPackage) )
+                fields.add( field );
 
-        /* Get all the accessible fields in current and ancestor classes. */
-        Class<?> currentClass = targetClass;
-        while( ! currentClass.equals(Object.class) )
+        final int declaredFields = fields.size();
+
+        /* Followed by the accessible fields in ancestor classes. */
+        fields.addAll( cache.getInheritedFields(targetClass.getSuperclass(), classPackage) );
+
+        if( walk != null && walk.shouldCommit() )
         {
+            walk.className = targetClass.getName();
+            walk.declaredFields = declaredFields;
+            walk.inheritedFields = fields.size() - declaredFields;
+            walk.commit();
+        }
 
-            /* Get all fields of the current class. */
-            final Field[] fields = currentClass.getDeclaredFields();
-            for( Field field : fields )
-            {
+        final AnalyzerEvents.AccessorLookup lookup = AnalyzerEvents.accessorLookup();
 
-                /* We get the modifiers to check. */
-                final int mods = field.getModifiers();
+        final List<AccessibleField> accessibleFields = new ArrayList<>( fields.size() );
 
-                /* If the field is not accessible we skip it. */
-                if( ! isAccessibleAndNotStatic( mods, currentClass == targetClass, classPackage, currentClass.getPackage() ) )
-                    continue;
+        /* The index of the available methods is built only if some accessor is required. */
+        MethodIndex methodIndex = null;
+
+        for( ClassModel.FieldModel field : fields )
+        {
+
+            checkInterrupted();
 
-                /*
-                 * If the fields are required to be modifiable
-                 * we skip all the final fields.
-                 */
-                if( accessorType.requiresModifiableField && Modifier.isFinal( mods ) )
+            /*
+             * If the fields are required to be modifiable
+             * the final fields are not applicable.
+             */
+            final boolean modifiable = ! Modifier.isFinal( field.modifiers );
+
+            boolean applicable = false;
+            final AccessorAvailability[] accessorAvailabilities = new AccessorAvailability[accessorTypes.length];
+            for( int i = 0; i < accessorTypes.length; ++i )
+            {
+
+                final AccessorType accessorType = accessorTypes[i];
+                if( accessorType.requiresModifiableField && ! modifiable )
                     continue;
 
-                /* Otherwise, we collect the field. */
-                final AccessorAvailability accessorAvailability = getAccessorAvailability( targetClass, field, accessorType );
-                accessibleFields.add( new AccessibleField( field.getName(), field.getType(), accessorAvailability ) );
+                if( methodIndex == null && accessorType != AccessorType.NONE )
+                    methodIndex = MethodIndex.of( targetClass );
+
+                accessorAvailabilities[i] = getAccessorAvailability( methodIndex, field, accessorType );
+                applicable = true;
 
             }
 
-            /* We move to the next ancestor. */
-            currentClass = currentClass.getSuperclass();
+            /* If no accessor type applies to the field we skip it. */
+            if( ! applicable )
+                continue;
+
+            /* Otherwise, we collect the field. */
+            accessibleFields.add( new AccessibleField( field, accessorAvailabilities ) );
+
+        }
 
+        if( lookup != null && lookup.shouldCommit() )
+        {
+            lookup.className = targetClass.getName();
+            lookup.accessorTypes = AccessorType.toString( accessorTypes );
+            lookup.fields = fields.size();
+            lookup.accessibleFields = accessibleFields.size();
+            lookup.commit();
         }
 
         return accessibleFields;
@@ -128,82 +333,47 @@ public class ClassAnalyzer
     /**
      * Returns the availability of the accessor method of the given type for the given field.
      * 
-     * @param targetClass   the class to analyze
+     * @param methodIndex   the index of the methods available in the class to analyze
      * @param field         the field to access
      * @param accessorType  the type of accessor method to search for
      * @return the availability of the accessor method
      */
     private static AccessorAvailability getAccessorAvailability(
-        Class<?> targetClass, Field field, AccessorType accessorType
+        MethodIndex methodIndex, ClassModel.FieldModel field, AccessorType accessorType
     )
     {
 
         if( accessorType == AccessorType.NONE )
             return AccessorAvailability.NONE;
 
-        final String accessorName = accessorType.getAccessorName( field );
-        final Class<?> accessorParam = accessorType.getAccessorParam( field );
-            
-        try{
-
-            /* 
-             * If the method exists will be returned.
-             * Otherwise, a NoSuchMethod exception will
-             * be thrown.
-             * An accessor method must be public, but we return also
-             * methods with the same signature but other visibilities
-             * because we aim to notify the user of the existence
-             * of a method with the same signature.
-             */
-            if( accessorParam != null )
-                targetClass.getDeclaredMethod( accessorName, accessorParam );
-            else
-                targetClass.getDeclaredMethod( accessorName );
+        final String accessorSignature = ClassModel.signatureOf(
+            accessorType.getAccessorName( field ),
+            accessorType.getAccessorParam( field )
+        );
 
+        /* 
+         * An accessor method must be public, but we return also
+         * methods with the same signature but other visibilities
+         * because we aim to notify the user of the existence
+         * of a method with the same signature.
+         */
+        if( methodIndex.declaredMethods.contains(accessorSignature) )
             return AccessorAvailability.CURRENT_CLASS;
 
-        }catch( NoSuchMethodException ex )
-        {
-
-            /*
-             * If the method is not declared by the target class,
-             * we check if it is inherited by the ancestor classes.
-             */
-
-        }
-
-        try{
-
-            /* 
-             * If the method exists will be returned.
-             * Otherwise, a NoSuchMethod exception will
-             * be thrown. The Class.getMethod method 
-             * returns all "public" methods declared
-             * by the target class or inherited by
-             * the ancestor classes.
-             * Since we already checked the methods
-             * declared in the target class, if such
-             * method exists, it must be inherited.
-             */
-            if( accessorParam != null )
-                targetClass.getMethod( accessorName, accessorParam );
-            else
-                targetClass.getMethod( accessorName );
-                
+        /*
+         * If the method is not declared by the target class,
+         * we check if it is inherited by the ancestor classes.
+         * Since we already checked the methods declared in the
+         * target class, if such method exists, it must be inherited.
+         */
+        if( methodIndex.publicMethods.contains(accessorSignature) )
             return AccessorAvailability.ANCESTOR_CLASS;
 
-        }catch( NoSuchMethodException ex )
-        {
-
-            /*
-             * If the method is neither declared by the target class,
-             * nor in ancestor classes, it does not exist.
-             */
-            return AccessorAvailability.NONE;
-
-        }
-
-
+        /*
+         * If the method is neither declared by the target class,
+         * nor in ancestor classes, it does not exist.
+         */
+        return AccessorAvailability.NONE;
 
     }
 
@@ -232,7 +402,7 @@ public class ClassAnalyzer
      * 
      * @author Massimo Coluzzi
      */
-    private enum AccessorType
+    enum AccessorType
     {
 
         /** Represents the absence of accessors. */
@@ -267,6 +437,28 @@ public class ClassAnalyzer
 
         }
 
+        /**
+         * Returns the given accessor types as comma separated prefixes,
+         * the inverse of {@link #parse(String)}.
+         * 
+         * @param accessorTypes the accessor types
+         * @return the comma separated prefixes
+         */
+        static String toString( AccessorType[] accessorTypes )
+        {
+
+            final StringBuilder prefixes = new StringBuilder();
+            for( AccessorType accessorType : accessorTypes )
+            {
+                if( prefixes.length() > 0 )
+                    prefixes.append( ',' );
+                prefixes.append( accessorType.prefix );
+            }
+
+            return prefixes.toString();
+
+        }
+
         /**
          * Returns the name of the accessor method represented
          * by this accessor type.
@@ -274,13 +466,13 @@ public class ClassAnalyzer
          * @param field the field to access
          * @return the accessor method name
          */
-        public String getAccessorName( Field field )
+        public String getAccessorName( ClassModel.FieldModel field )
         {
 
             if( this == NONE )
                 return "";
 
-            final String fieldName = field.getName();
+            final String fieldName = field.name;
             final char capitalLetter = Character.toUpperCase( fieldName.charAt(0) );
 
             return new StringBuilder( fieldName.length() + 4 )
@@ -292,22 +484,22 @@ public class ClassAnalyzer
         }
 
         /**
-         * Returns the type of the parameter in the accessor method signature.
+         * Returns the type descriptors of the parameters in the accessor method signature.
          * <p>
          * If the accessor type is {@link ClassAnalyzer.AccessorType#SETTER} or
-         * {@link ClassAnalyzer.AccessorType#WITHER}, the type of the field is
-         * returned. Otherwise, {@code null} is returned.
+         * {@link ClassAnalyzer.AccessorType#WITHER}, the descriptor of the type
+         * of the field is returned. Otherwise, an empty string is returned.
          * 
          * @param field the field to access
-         * @return the type of the accessor method parameter
+         * @return the type descriptors of the accessor method parameters
          */
-        public Class<?> getAccessorParam( Field field )
+        public String getAccessorParam( ClassModel.FieldModel field )
         {
 
             if( this == AccessorType.SETTER || this == AccessorType.WITHER )
-                return field.getType();
+                return field.descriptor;
 
-            return null;
+            return "";
 
         }
 
@@ -335,9 +527,142 @@ public class ClassAnalyzer
 
         }
 
+        /**
+         * Factory method to create the accessors given a comma
+         * separated list of prefixes (like "get,set,with").
+         * <p>
+         * Each prefix is parsed using {@link #of(String)}.
+         * 
+         * @param prefixes the comma separated prefixes to parse
+         * @return the related {@link AccessorType}s
+         */
+        public static AccessorType[] parse( String prefixes )
+        {
+
+            if( prefixes == null )
+                return new AccessorType[] { NONE };
+
+            final String[] split = prefixes.split( "," );
+            final AccessorType[] accessors = new AccessorType[split.length];
+            for( int i = 0; i < split.length; ++i )
+                accessors[i] = of( split[i].trim() );
+
+            return accessors;
+
+        }
+
     }
 
     
+    /**
+     * Enumerates the engines available to read the structure of a class.
+     * 
+     * @author Massimo Coluzzi
+     */
+    enum AnalysisEngine
+    {
+
+        /**
+         * Loads the class through the JVM and uses reflection.
+         * The class is loaded but not initialized.
+         */
+        REFLECTION
+        {
+
+            @Override
+            ClassModel.Loader newLoader( ClassLoader loader )
+            {
+
+                return className ->
+                {
+
+                    final AnalyzerEvents.ClassResolution resolution = AnalyzerEvents.classResolution();
+
+                    final ClassModel model = ReflectionClassModel.of( Class.forName(className, false, loader) );
+
+                    if( resolution != null && resolution.shouldCommit() )
+                    {
+                        resolution.className = className;
+                        resolution.engine = "reflection";
+                        resolution.commit();
+                    }
+
+                    return model;
+
+                };
+
+            }
+
+        },
+
+        /**
+         * Parses the class files directly from their bytes.
+         * The class is never loaded by the JVM.
+         */
+        BYTECODE
+        {
+
+            @Override
+            ClassModel.Loader newLoader( ClassLoader loader )
+            {
+
+                return new BytecodeClassModel.Resolver( loader );
+
+            }
+
+        };
+
+
+        /**
+         * Returns a new loader of class models.
+         * <p>
+         * All the classes loaded by the same loader share
+         * the information about the common ancestors.
+         * 
+         * @param loader the class loader used to find the classes
+         * @return a new loader of class models
+         */
+        abstract ClassModel.Loader newLoader( ClassLoader loader );
+
+        /**
+         * Returns the model of the class with the given name.
+         * 
+         * @param className the fully qualified name of the class
+         * @param loader    the class loader used to find the class
+         * @return the model of the class
+         * @throws ClassNotFoundException if the class cannot be found
+         */
+        ClassModel load( String className, ClassLoader loader ) throws ClassNotFoundException
+        {
+
+            return newLoader( loader ).load( className );
+
+        }
+
+        /**
+         * Factory method to get an engine given its name
+         * (one of "reflection" or "bytecode").
+         * <p>
+         * If the name does not match one of the engines
+         * {@link #REFLECTION} is returned.
+         * 
+         * @param name the name to parse
+         * @return the related {@link AnalysisEngine}
+         */
+        static AnalysisEngine of( String name )
+        {
+
+            for( AnalysisEngine engine : AnalysisEngine.values() )
+                if( engine.name().equalsIgnoreCase(name) )
+                    return engine;
+
+            return REFLECTION;
+
+        }
+
+    }
+
+
     /**
      * Enumerates the places where the accessor method of a given field can be found.
      * <p>
@@ -351,7 +676,7 @@ public class ClassAnalyzer
      * 
      * @author Massimo Coluzzi
      */
-    private enum AccessorAvailability
+    enum AccessorAvailability
     {
 
         /** The method is not available. */
@@ -367,105 +692,781 @@ public class ClassAnalyzer
 
 
     /**
-     * This class aims to store the information related to
-     * an accessible field collected by the {@link ClassAnalyzer}.
+     * Enumerates the formats of the outcome of the analysis.
      * 
      * @author Massimo Coluzzi
      */
-    private static class AccessibleField
+    enum OutputFormat
     {
 
-        /* The type of the field. */
-        private final Class<?> type;
+        /**
+         * The first line contains the simple name of the class, each other
+         * line describes a field in the form {@code SimpleType name a1 a2 ...}
+         * where each {@code ai} is the ordinal of the {@link AccessorAvailability}
+         * of the related accessor, or {@code -} if the accessor is not applicable.
+         */
+        TEXT
+        {
+
+            @Override
+            List<String> format( ClassModel targetClass, List<AccessibleField> accessibleFields )
+            {
+
+                final List<String> lines = new ArrayList<>( accessibleFields.size() + 1 );
 
-        /* The name of the field. */
-        private final String name;
+                /* The name of the class is reported for reference. */
+                lines.add( targetClass.getSimpleName() );
 
-        /** The availability of the accesso method of this field. */
-        private final AccessorAvailability accessorAvailability;
+                /* Followed by the founded fields. */
+                for( AccessibleField field : accessibleFields )
+                    lines.add( field.toString() );
 
+                return lines;
+
+            }
+
+        },
 
         /**
-         * Constructor with parameters.
-         * 
-         * @param name The name of the field.
-         * @param type The type of the field.
+         * Each line contains a JSON object. The first line describes the class:
+         * <pre>
+         * {"version":1,"name":"p.Dto","simpleName":"Dto"}
+         * </pre>
+         * each other line describes a field:
+         * <pre>
+         * {"name":"tags","type":"java.util.List","genericType":"java.util.List&lt;java.lang.String&gt;",
+         *  "simpleType":"List","declaringClass":"p.Dto","modifiers":2,"accessors":[0,null]}
+         * </pre>
+         * where {@code accessors} contains the ordinal of the {@link AccessorAvailability}
+         * of each accessor, or {@code null} if the accessor is not applicable.
+         * The version is increased on each incompatible change of the format.
          */
-        public AccessibleField( String name, Class<?> type, AccessorAvailability accessorAvailability )
+        JSON
         {
 
-            super();
+            @Override
+            List<String> format( ClassModel targetClass, List<AccessibleField> accessibleFields )
+            {
 
-            this.name = name;
-            this.type = type;
-            this.accessorAvailability = accessorAvailability;
+                final List<String> lines = new ArrayList<>( accessibleFields.size() + 1 );
 
-        }
+                final StringBuilder header = new StringBuilder( "{\"version\":" ).append( JSON_FORMAT_VERSION );
+                appendJsonString( header.append(",\"name\":"), targetClass.getName() );
+                appendJsonString( header.append(",\"simpleName\":"), targetClass.getSimpleName() );
+                lines.add( header.append('}').toString() );
+
+                for( AccessibleField field : accessibleFields )
+                    lines.add( field.toJson() );
+
+                return lines;
+
+            }
+
+        };
 
 
         /**
-         * {@inheritDoc}
+         * Converts the outcome of the analysis into a list of lines.
+         * 
+         * @param targetClass      the analyzed class
+         * @param accessibleFields the accessible fields found
+         * @return the lines describing the outcome of the analysis
          */
-        @Override
-        public String toString()
+        abstract List<String> format( ClassModel targetClass, List<AccessibleField> accessibleFields );
+
+        /**
+         * Factory method to get a format given its name
+         * (one of "text" or "json").
+         * <p>
+         * If the name does not match one of the formats
+         * {@link #TEXT} is returned.
+         * 
+         * @param name the name to parse
+         * @return the related {@link OutputFormat}
+         */
+        static OutputFormat of( String name )
         {
 
-            return new StringBuilder()
-                .append( type.getSimpleName() )
-                .append( ' ' ).append( name )
-                .append( ' ' ).append( accessorAvailability.ordinal() )
-                .toString();
+            for( OutputFormat format : OutputFormat.values() )
+                if( format.name().equalsIgnoreCase(name) )
+                    return format;
+
+            return TEXT;
 
         }
 
     }
 
 
-    /* ************* */
-    /*  ENTRY POINT  */
-    /* ************* */
-
-
     /**
-     * Entry point for the class execution.
+     * Indexes the signatures of the methods available in a class.
      * <p>
-     * This method expects two arguments:
-     * <ol>
-     * <li>fully qualified name of the class to analyze.</li>
-     * <li>prefix of the method ("set", "get", "with", "")</li>
-     * </ol>
-     * The method prints a list of fields one per line.
+     * The index is built once per analysis and allows to check
+     * the existence of an accessor method in constant time,
+     * without relying on the exceptions thrown by the reflection
+     * lookup methods.
      * 
-     * @param args the three arguments
+     * @author Massimo Coluzzi
      */
-    public static void main( String[] args )
+    private static class MethodIndex
     {
 
-        if( args.length < 1 )
-        {
-            System.err.print( "Usage: java ClassAnalyzer <className> <accessorPrefix>" );
-            return;
-        }
+        /** Signatures of the methods declared by the class, regardless of their visibility. */
+        private final Set<String> declaredMethods;
 
-        try{
+        /** Signatures of the public methods declared by the class or inherited. */
+        private final Set<String> publicMethods;
 
-            /* Get the class to analyze. */
-            final Class<?> targetClass = Class.forName( args[0] );
 
-            /* Get the type of accessor to earch for. */
-            final AccessorType accessorType = args.length > 1
-            ? AccessorType.of( args[1] )
-            : AccessorType.NONE;
+        /**
+         * Constructor with parameters.
+         * 
+         * @param declaredMethods the signatures of the declared methods
+         * @param publicMethods   the signatures of the public methods
+         */
+        private MethodIndex( Set<String> declaredMethods, Set<String> publicMethods )
+        {
 
-            /* Get all accessible fields. */
-            final List<AccessibleField> accessibleFields = ClassAnalyzer.getAccessibleFields( targetClass, accessorType );
+            super();
+
+            this.declaredMethods = declaredMethods;
+            this.publicMethods = publicMethods;
+
+        }
+
+
+        /**
+         * Builds the index of the methods available in the given class.
+         * 
+         * @param targetClass the class to index
+         * @return the index of the available methods
+         */
+        static MethodIndex of( ClassModel targetClass )
+        {
+
+            return new MethodIndex(
+                new HashSet<>( targetClass.getDeclaredMethodSignatures() ),
+                new HashSet<>( targetClass.getPublicMethodSignatures() )
+            );
+
+        }
+
+    }
+
+
+    /**
+     * Caches the fields inherited from each ancestor class.
+     * <p>
+     * For each ancestor, the cache stores the instance fields declared by the
+     * ancestor and by its own ancestors that are visible to a descendant class.
+     * Since the visibility of package private fields depends on the package of
+     * the descendant, the entries are keyed by ancestor and requesting package.
+     * <p>
+     * The cache is thread safe and is meant to live as long as the
+     * {@link ClassModel.Loader} used to read the classes.
+     * 
+     * @author Massimo Coluzzi
+     */
+    static final class InheritedFieldCache
+    {
+
+        /** The visible inherited fields, by requesting package and ancestor class. */
+        private final Map<String,List<ClassModel.FieldModel>> inheritedFields;
+
+        /** Counts the lookups answered by the cache. */
+        private final LongAdder hits;
+
+        /** Counts the lookups not answered by the cache. */
+        private final LongAdder misses;
+
+
+        /**
+         * Default constructor.
+         * 
+         */
+        InheritedFieldCache()
+        {
+
+            this( new LongAdder(), new LongAdder() );
+
+        }
+
+
+        /**
+         * Constructor with parameters.
+         * <p>
+         * The given counters can be shared by several caches
+         * to measure the hit rate over their whole lifetime.
+         * 
+         * @param hits   counts the lookups answered by the cache
+         * @param misses counts the lookups not answered by the cache
+         */
+        InheritedFieldCache( LongAdder hits, LongAdder misses )
+        {
+
+            super();
+
+            this.inheritedFields = new ConcurrentHashMap<>();
+            this.hits = hits;
+            this.misses = misses;
+
+        }
+
+
+        /**
+         * Returns the fields of the given ancestor class and of its own ancestors
+         * visible to a class in the given package, in hierarchy order.
+         * <p>
+         * If the ancestor is {@code null} or {@link Object} no field is returned.
+         * 
+         * @param ancestor     the model of the ancestor class
+         * @param classPackage the package of the descendant class
+         * @return the visible inherited fields
+         * @throws ClassNotFoundException if an ancestor class cannot be found
+         */
+        List<ClassModel.FieldModel> getInheritedFields( ClassModel ancestor, String classPackage )
+        throws ClassNotFoundException
+        {
+
+            if( ancestor == null || ancestor.isObject() )
+                return List.of();
+
+            checkInterrupted();
+
+            final String key = classPackage + ' ' + ancestor.getName();
+            final List<ClassModel.FieldModel> cached = inheritedFields.get( key );
+            if( cached != null )
+            {
+                hits.increment();
+                return cached;
+            }
+
+            misses.increment();
+
+            /* The fields declared by the ancestor come first. */
+            final List<ClassModel.FieldModel> fields = new ArrayList<>();
+            for( ClassModel.FieldModel field : ancestor.getDeclaredFields() )
+                if( isAccessibleAndNotStatic(field.modifiers, false, classPackage, ancestor.getPackageName()) )
+                    fields.add( field );
+
+            /* Followed by the ones of its own ancestors, cached as well. */
+            fields.addAll( getInheritedFields(ancestor.getSuperclass(), classPackage) );
+
+            /* If another thread cached the same entry in the meanwhile, we keep the first one. */
+            final List<ClassModel.FieldModel> unmodifiable = Collections.unmodifiableList( fields );
+            final List<ClassModel.FieldModel> previous = inheritedFields.putIfAbsent( key, unmodifiable );
+
+            return previous != null ? previous : unmodifiable;
+
+        }
+
+    }
+
+
+    /**
+     * This class aims to store the information related to
+     * an accessible field collected by the {@link ClassAnalyzer}.
+     * 
+     * @author Massimo Coluzzi
+     */
+    static class AccessibleField
+    {
+
+        /* The model of the field. */
+        private final ClassModel.FieldModel field;
+
+        /** The availability of the accessor methods of this field, {@code null} if not applicable. */
+        private final AccessorAvailability[] accessorAvailabilities;
+
+
+        /**
+         * Constructor with parameters.
+         * 
+         * @param field The model of the field.
+         * @param accessorAvailabilities The availability of each required accessor method.
+         */
+        public AccessibleField( ClassModel.FieldModel field, AccessorAvailability[] accessorAvailabilities )
+        {
+
+            super();
+
+            this.field = field;
+            this.accessorAvailabilities = accessorAvailabilities;
+
+        }
+
+
+        /**
+         * Returns the representation of this field as a JSON object
+         * in the format described by {@link OutputFormat#JSON}.
+         * 
+         * @return the related JSON object
+         */
+        public String toJson()
+        {
+
+            final StringBuilder sb = new StringBuilder().append( '{' );
+
+            appendJsonString( sb.append("\"name\":"), field.name );
+            appendJsonString( sb.append(",\"type\":"), field.typeName );
+            appendJsonString( sb.append(",\"genericType\":"), field.genericTypeName );
+            appendJsonString( sb.append(",\"simpleType\":"), field.simpleTypeName );
+            appendJsonString( sb.append(",\"declaringClass\":"), field.declaringClassName );
+            sb.append( ",\"modifiers\":" ).append( field.modifiers & Modifier.fieldModifiers() );
+
+            /* Not applicable accessors are represented by null. */
+            sb.append( ",\"accessors\":[" );
+            for( int i = 0; i < accessorAvailabilities.length; ++i )
+            {
+
+                if( i > 0 )
+                    sb.append( ',' );
+
+                final AccessorAvailability accessorAvailability = accessorAvailabilities[i];
+                if( accessorAvailability != null )
+                    sb.append( accessorAvailability.ordinal() );
+                else
+                    sb.append( "null" );
+
+            }
+
+            return sb.append( "]}" ).toString();
+
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+
+            final StringBuilder sb = new StringBuilder()
+                .append( field.simpleTypeName )
+                .append( ' ' ).append( field.name );
+
+            /* Not applicable accessors are represented by a dash. */
+            for( AccessorAvailability accessorAvailability : accessorAvailabilities )
+                if( accessorAvailability != null )
+                    sb.append( ' ' ).append( accessorAvailability.ordinal() );
+                else
+                    sb.append( ' ' ).append( '-' );
+
+            return sb.toString();
+
+        }
+
+    }
+
+
+    /* ******************* */
+    /*  ANALYSIS PIPELINE  */
+    /* ******************* */
+
+
+    /**
+     * Analyzes the given class and returns the outcome of the
+     * analysis as a list of lines.
+     * <p>
+     * The first line contains the simple name of the class,
+     * all other lines describe one accessible field each,
+     * see {@link OutputFormat#TEXT}.
+     * 
+     * @param targetClass   the model of the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @return the lines describing the outcome of the analysis
+     * @throws ClassNotFoundException if an ancestor class cannot be found
+     */
+    static List<String> analyze( ClassModel targetClass, AccessorType[] accessorTypes )
+    throws ClassNotFoundException
+    {
+
+        return analyze( targetClass, accessorTypes, new InheritedFieldCache(), OutputFormat.TEXT );
+
+    }
+
+
+    /**
+     * Analyzes the given class and returns the outcome of the
+     * analysis as a list of lines.
+     * <p>
+     * The fields inherited from the ancestor classes are taken from the given cache
+     * and the outcome is written in the given format.
+     * 
+     * @param targetClass   the model of the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @param cache         the cache of the fields inherited from the ancestor classes
+     * @param format        the format of the outcome
+     * @return the lines describing the outcome of the analysis
+     * @throws ClassNotFoundException if an ancestor class cannot be found
+     * @see #analyze(ClassModel, AccessorType[])
+     */
+    static List<String> analyze(
+        ClassModel targetClass, AccessorType[] accessorTypes,
+        InheritedFieldCache cache, OutputFormat format
+    )
+    throws ClassNotFoundException
+    {
+
+        /* Get all accessible fields. */
+        final List<AccessibleField> accessibleFields = ClassAnalyzer.getAccessibleFields( targetClass, accessorTypes, cache );
+
+        final AnalyzerEvents.OutputSerialization serialization = AnalyzerEvents.outputSerialization();
+
+        final List<String> lines = format.format( targetClass, accessibleFields );
+
+        if( serialization != null && serialization.shouldCommit() )
+        {
+            serialization.className = targetClass.getName();
+            serialization.format = format.name().toLowerCase();
+            serialization.lines = lines.size();
+            serialization.characters = lines.stream().mapToLong( String::length ).sum();
+            serialization.commit();
+        }
+
+        return lines;
+
+    }
+
+
+    /**
+     * Writes the given lines as a block delimited by a
+     * {@code #begin <id>} line and a {@code #end <id> ok} line.
+     * <p>
+     * If the error is not {@code null}, the block is closed
+     * by a {@code #end <id> error <message>} line instead.
+     * The whole block is written at once to prevent it from
+     * being interleaved with other outputs.
+     * 
+     * @param out   the stream to write to
+     * @param id    the identifier of the block
+     * @param lines the lines to write
+     * @param error the error message if the analysis failed, {@code null} otherwise
+     */
+    static void printBlock( PrintStream out, String id, List<String> lines, String error )
+    {
+
+        final StringBuilder block = new StringBuilder()
+            .append( BLOCK_PREFIX ).append( "begin " ).append( id ).append( '\n' );
+
+        for( String line : lines )
+            block.append( line ).append( '\n' );
+
+        block.append( BLOCK_PREFIX ).append( "end " ).append( id );
+        if( error != null )
+            block.append( " error " ).append( error.replace('\n', ' ') );
+        else
+            block.append( " ok" );
+
+        out.println( block );
+        out.flush();
+
+    }
+
+
+    /**
+     * Analyzes the given class and prints the outcome as a block.
+     * <p>
+     * The failure of the analysis is reported in the block.
+     * 
+     * @param loader        the loader of the class models
+     * @param className     the fully qualified name of the class to analyze
+     * @param accessorTypes the required types of accessor
+     * @param cache         the cache of the fields inherited from the ancestor classes
+     * @param format        the format of the outcome
+     * @param out           the stream to write to
+     */
+    private static void analyzeAndPrint(
+        ClassModel.Loader loader, String className, AccessorType[] accessorTypes,
+        InheritedFieldCache cache, OutputFormat format, PrintStream out
+    )
+    {
+
+        try{
+
+            printBlock( out, className, analyze(loader.load(className), accessorTypes, cache, format), null );
+
+        }catch( Throwable ex )
+        {
+
+            printBlock( out, className, List.of(), ex.getClass() + " " + ex.getMessage() );
+
+        }
+
+    }
+
+
+    /**
+     * Analyzes all the given classes and prints the outcome of each
+     * analysis as a block as soon as it is available.
+     * <p>
+     * The failure of the analysis of a class is reported
+     * in the related block and does not stop the batch.
+     * <p>
+     * If more than one thread is required, the classes are analyzed
+     * concurrently by a fork-join pool and the blocks are printed in
+     * completion order. The loader and the cache of the inherited fields,
+     * and therefore the information about the common ancestors, are shared
+     * among all threads.
+     * 
+     * @param loader        the loader of the class models, shared by all classes
+     * @param classNames    the fully qualified names of the classes to analyze
+     * @param accessorTypes the required types of accessor
+     * @param format        the format of the outcome
+     * @param threads       the number of concurrent analyses
+     * @param out           the stream to write to
+     * @see #printBlock(PrintStream, String, List, String)
+     */
+    static void analyzeBatch(
+        ClassModel.Loader loader, List<String> classNames, AccessorType[] accessorTypes,
+        OutputFormat format, int threads, PrintStream out
+    )
+    {
+
+        final InheritedFieldCache cache = new InheritedFieldCache();
+        if( threads <= 1 || classNames.size() <= 1 )
+        {
+
+            for( String className : classNames )
+                analyzeAndPrint( loader, className, accessorTypes, cache, format, out );
+
+            return;
+
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<>( classNames.size() );
+        for( String className : classNames )
+            tasks.add( () -> {
+                analyzeAndPrint( loader, className, accessorTypes, cache, format, out );
+                return null;
+            });
+
+        final ForkJoinPool pool = new ForkJoinPool( Math.min(threads, classNames.size()) );
+        try{
+
+            pool.invokeAll( tasks );
+
+        }finally
+        {
+
+            pool.shutdown();
+
+        }
+
+    }
+
+
+    /**
+     * Reads the names of the classes to analyze in batch mode.
+     * <p>
+     * The names are expected one per line, empty lines and
+     * lines starting with {@code #} are ignored.
+     * 
+     * @param reader the reader to read from
+     * @return the names of the classes to analyze
+     * @throws IOException if the reader fails
+     */
+    private static List<String> readClassNames( BufferedReader reader ) throws IOException
+    {
+
+        final List<String> classNames = new ArrayList<>();
+
+        String line;
+        while( (line = reader.readLine()) != null )
+        {
+
+            final String className = line.trim();
+            if( ! className.isEmpty() && ! className.startsWith(BLOCK_PREFIX) )
+                classNames.add( className );
+
+        }
+
+        return classNames;
+
+    }
+
+
+    /**
+     * Parses the value of the given numeric command line option.
+     * 
+     * @param arg     the command line argument
+     * @param option  the option, including the trailing {@code =}
+     * @param minimum the minimum value allowed
+     * @param maximum the maximum value allowed
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not an integer in the allowed range
+     */
+    private static long parseNumericOption( String arg, String option, long minimum, long maximum )
+    {
+
+        final String value = arg.substring( option.length() );
+        try{
+
+            final long number = Long.parseLong( value );
+            if( number >= minimum && number <= maximum )
+                return number;
+
+        }catch( NumberFormatException ex )
+        {
+
+            /* Reported below like the values out of range. */
+
+        }
+
+        throw new IllegalArgumentException(
+            "Invalid value '" + value + "' for " + option.substring( 0, option.length() - 1 ) + ": expected an integer between " + minimum + " and " + maximum
+        );
+
+    }
+
+
+    /* ************* */
+    /*  ENTRY POINT  */
+    /* ************* */
+
+
+    /**
+     * Entry point for the class execution.
+     * <p>
+     * This method expects two arguments:
+     * <ol>
+     * <li>fully qualified name of the class to analyze.</li>
+     * <li>prefix of the method ("set", "get", "with", "")
+     *     or a comma separated list of prefixes ("get,set,with").</li>
+     * </ol>
+     * The method prints a list of fields one per line.
+     * Each line reports the availability of each requested accessor
+     * in the same order of the prefixes, or a dash if the accessor
+     * is not applicable to the field.
+     * <p>
+     * The arguments can be preceded by the following options:
+     * <ul>
+     * <li>{@code --engine=<reflection|bytecode>} the engine used to read the classes,
+     *     see {@link AnalysisEngine}. Defaults to {@code reflection}.</li>
+     * <li>{@code --server} starts the analyzer in server mode, it serves the requests
+     *     received through the standard input until the stream is closed.
+     *     See {@link AnalyzerServer} for details.</li>
+     * <li>{@code --hash} in server mode, compares the content of the class files
+     *     to tell if a cached analysis is still valid, see {@link AnalysisCache}.</li>
+     * <li>{@code --timeout=<millis>} in server mode, the deadline of each analysis.
+     *     Defaults to no deadline.</li>
+     * <li>{@code --batch[=<file>]} analyzes all the classes listed in the given file,
+     *     or in the standard input if no file is given, one class name per line.
+     *     In this case the only expected argument is the accessor prefix and the
+     *     outcome of each class is printed as a block, see {@link #analyzeBatch}.</li>
+     * <li>{@code --format=<text|json>} the format of the outcome, see {@link OutputFormat}.
+     *     Defaults to {@code text}.</li>
+     * <li>{@code --threads=<n>} the number of classes analyzed concurrently in batch mode.
+     *     Defaults to the number of available processors.</li>
+     * </ul>
+     * If an option has an invalid value, the usage is printed
+     * and the process exits with status {@code 1}.
+     * 
+     * @param args the three arguments
+     */
+    public static void main( String[] args )
+    {
+
+        /* We split the options from the other arguments. */
+        boolean server = false;
+        boolean batch = false;
+        boolean hashing = false;
+        long timeout = 0;
+        String batchFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        AnalysisEngine engine = AnalysisEngine.REFLECTION;
+        OutputFormat format = OutputFormat.TEXT;
+        final List<String> arguments = new ArrayList<>( args.length );
+        try{
+
+            for( String arg : args )
+            {
+
+                if( arg.startsWith(ENGINE_OPTION) )
+                    engine = AnalysisEngine.of( arg.substring(ENGINE_OPTION.length()) );
+                else if( AnalyzerServer.SERVER_OPTION.equals(arg) )
+                    server = true;
+                else if( arg.startsWith(FORMAT_OPTION) )
+                    format = OutputFormat.of( arg.substring(FORMAT_OPTION.length()) );
+                else if( AnalysisCache.HASH_OPTION.equals(arg) )
+                    hashing = true;
+                else if( arg.startsWith(AnalyzerServer.TIMEOUT_OPTION) )
+                    timeout = parseNumericOption( arg, AnalyzerServer.TIMEOUT_OPTION, 0, Long.MAX_VALUE );
+                else if( arg.startsWith(THREADS_OPTION) )
+                    threads = (int) parseNumericOption( arg, THREADS_OPTION, 1, Integer.MAX_VALUE );
+                else if( BATCH_OPTION.equals(arg) )
+                    batch = true;
+                else if( arg.startsWith(BATCH_OPTION + "=") )
+                {
+                    batch = true;
+                    batchFile = arg.substring( BATCH_OPTION.length() + 1 );
+                }
+                else
+                    arguments.add( arg );
+
+            }
+
+        }catch( IllegalArgumentException ex )
+        {
+
+            System.err.println( ex.getMessage() );
+            System.err.println( USAGE );
+            System.exit( 1 );
+            return;
+
+        }
+
+        if( server )
+        {
+            AnalyzerServer.main( engine, format, hashing, timeout, arguments );
+            return;
+        }
+
+        if( batch )
+        {
+
+            try( BufferedReader reader = batchFile != null
+                 ? Files.newBufferedReader( Paths.get(batchFile), StandardCharsets.UTF_8 )
+                 : new BufferedReader( new InputStreamReader(System.in, StandardCharsets.UTF_8) ) )
+            {
+
+                final List<String> classNames = readClassNames( reader );
+                final AccessorType[] accessorTypes = AccessorType.parse( arguments.size() > 0 ? arguments.get(0) : null );
+
+                final ClassModel.Loader loader = engine.newLoader( ClassLoader.getSystemClassLoader() );
+
+                analyzeBatch( loader, classNames, accessorTypes, format, threads, System.out );
+
+            }catch( Throwable ex )
+            {
+
+                System.err.println( ex.getClass() + " " + ex.getMessage() );
+
+            }
+
+            return;
+
+        }
+
+        if( arguments.size() < 1 )
+        {
+            System.err.println( USAGE );
+            System.exit( 1 );
+            return;
+        }
+
+        try{
+
+            /* Get the class to analyze. */
+            final ClassModel targetClass = engine.load( arguments.get(0), ClassLoader.getSystemClassLoader() );
 
-            /* Prints the name of the class for reference. */
-            System.out.println( targetClass.getSimpleName() );
+            /* Get the types of accessor to earch for. */
+            final AccessorType[] accessorTypes = AccessorType.parse( arguments.size() > 1 ? arguments.get(1) : null );
 
-            /* Prints the founded fields. */
-            for( AccessibleField field : accessibleFields )
-                System.out.println( field );
+            /* Prints the outcome of the analysis. */
+            for( String line : ClassAnalyzer.analyze(targetClass, accessorTypes, new InheritedFieldCache(), format) )
+                System.out.println( line );
 
         }catch( Throwable ex )
         {
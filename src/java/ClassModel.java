@@ -0,0 +1,219 @@
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Represents the information about a class needed by the {@link ClassAnalyzer}.
+ * <p>
+ * This abstraction allows the analysis to be performed either on classes loaded
+ * through reflection (see {@link ReflectionClassModel}) or on classes read
+ * directly from their {@code .class} files (see {@link BytecodeClassModel})
+ * producing the same outcome.
+ *
+ * @author Massimo Coluzzi
+ */
+interface ClassModel
+{
+
+    /** The name of the root of all class hierarchies. */
+    String OBJECT_CLASS_NAME = "java.lang.Object";
+
+
+    /**
+     * Returns the binary name of the class (like {@code java.util.Map$Entry}).
+     *
+     * @return the binary name of the class
+     */
+    String getName();
+
+    /**
+     * Returns the simple name of the class (like {@code Entry}).
+     *
+     * @return the simple name of the class
+     */
+    String getSimpleName();
+
+    /**
+     * Returns the name of the package of the class,
+     * or an empty string for the default package.
+     *
+     * @return the name of the package
+     */
+    String getPackageName();
+
+    /**
+     * Returns the model of the direct superclass,
+     * or {@code null} if the class has no superclass.
+     *
+     * @return the model of the superclass if any
+     * @throws ClassNotFoundException if the superclass cannot be found
+     */
+    ClassModel getSuperclass() throws ClassNotFoundException;
+
+    /**
+     * Returns the models of the interfaces directly implemented by the class,
+     * or directly extended if the class is an interface.
+     *
+     * @return the models of the direct interfaces
+     * @throws ClassNotFoundException if an interface cannot be found
+     */
+    List<ClassModel> getInterfaces() throws ClassNotFoundException;
+
+    /**
+     * Returns the fields declared by the class in declaration order.
+     *
+     * @return the fields declared by the class
+     */
+    List<FieldModel> getDeclaredFields();
+
+    /**
+     * Returns the signatures of the methods declared by the class,
+     * regardless of their visibility.
+     * <p>
+     * See {@link #signatureOf(String, String)} for the format of the signatures.
+     *
+     * @return the signatures of the declared methods
+     */
+    Collection<String> getDeclaredMethodSignatures();
+
+    /**
+     * Returns the signatures of the public methods declared by the class
+     * or inherited from its ancestors, following the same rules as
+     * {@link Class#getMethods()}.
+     * <p>
+     * See {@link #signatureOf(String, String)} for the format of the signatures.
+     *
+     * @return the signatures of the public methods
+     */
+    Collection<String> getPublicMethodSignatures();
+
+    /**
+     * Tells if this class is {@link Object}.
+     *
+     * @return {@code true} if this class is {@link Object}
+     */
+    default boolean isObject()
+    {
+
+        return OBJECT_CLASS_NAME.equals( getName() );
+
+    }
+
+
+    /**
+     * Returns the signature of the method with the given name and parameters.
+     * <p>
+     * The signature is made of the method name followed by the parameters part
+     * of the method descriptor, like {@code setName(Ljava/lang/String;)}.
+     * The return type is not part of the signature.
+     *
+     * @param name                 the name of the method
+     * @param parametersDescriptor the type descriptors of the parameters
+     * @return the signature of the method
+     */
+    static String signatureOf( String name, String parametersDescriptor )
+    {
+
+        return new StringBuilder( name.length() + parametersDescriptor.length() + 2 )
+            .append( name )
+            .append( '(' ).append( parametersDescriptor ).append( ')' )
+            .toString();
+
+    }
+
+
+    /* *************** */
+    /*  INNER CLASSES  */
+    /* *************** */
+
+
+    /**
+     * Provides the models of the classes to analyze.
+     * <p>
+     * A loader is expected to share the information already read
+     * among all the classes it loads, therefore the same loader
+     * should be used to analyze related classes.
+     * <p>
+     * Loaders must be thread safe because the same loader
+     * can be used by concurrent analyses.
+     *
+     * @author Massimo Coluzzi
+     */
+    @FunctionalInterface
+    interface Loader
+    {
+
+        /**
+         * Returns the model of the class with the given name.
+         *
+         * @param className the fully qualified name of the class
+         * @return the model of the class
+         * @throws ClassNotFoundException if the class cannot be found
+         */
+        ClassModel load( String className ) throws ClassNotFoundException;
+
+    }
+
+
+    /**
+     * Represents a field declared by a class.
+     *
+     * @author Massimo Coluzzi
+     */
+    final class FieldModel
+    {
+
+        /** The name of the field. */
+        final String name;
+
+        /** The modifiers of the field as defined by {@link java.lang.reflect.Modifier}. */
+        final int modifiers;
+
+        /** The type descriptor of the field (like {@code Ljava/lang/String;}). */
+        final String descriptor;
+
+        /** The simple name of the type of the field. */
+        final String simpleTypeName;
+
+        /** The fully qualified name of the type of the field as defined by {@link Class#getTypeName()}. */
+        final String typeName;
+
+        /** The name of the generic type of the field as defined by {@link java.lang.reflect.Type#getTypeName()}. */
+        final String genericTypeName;
+
+        /** The binary name of the class declaring the field. */
+        final String declaringClassName;
+
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param name               the name of the field
+         * @param modifiers          the modifiers of the field
+         * @param descriptor         the type descriptor of the field
+         * @param simpleTypeName     the simple name of the type of the field
+         * @param typeName           the fully qualified name of the type of the field
+         * @param genericTypeName    the name of the generic type of the field
+         * @param declaringClassName the binary name of the class declaring the field
+         */
+        FieldModel(
+            String name, int modifiers, String descriptor, String simpleTypeName,
+            String typeName, String genericTypeName, String declaringClassName
+        )
+        {
+
+            super();
+
+            this.name = name;
+            this.modifiers = modifiers;
+            this.descriptor = descriptor;
+            this.simpleTypeName = simpleTypeName;
+            this.typeName = typeName;
+            this.genericTypeName = genericTypeName;
+            this.declaringClassName = declaringClassName;
+
+        }
+
+    }
+
+}
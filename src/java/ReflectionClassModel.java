@@ -0,0 +1,228 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Implementation of the {@link ClassModel} based on Java reflection.
+ * <p>
+ * This model requires the class to be loaded by the JVM.
+ *
+ * @author Massimo Coluzzi
+ */
+final class ReflectionClassModel implements ClassModel
+{
+
+    /** The class to represent. */
+    private final Class<?> type;
+
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param type the class to represent
+     */
+    private ReflectionClassModel( Class<?> type )
+    {
+
+        super();
+
+        this.type = type;
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the signatures of the given methods.
+     *
+     * @param methods the methods to convert
+     * @return the related signatures
+     * @see ClassModel#signatureOf(String, String)
+     */
+    private static List<String> signaturesOf( Method[] methods )
+    {
+
+        final List<String> signatures = new ArrayList<>( methods.length );
+        for( Method method : methods )
+        {
+
+            final StringBuilder parametersDescriptor = new StringBuilder();
+            for( Class<?> parameterType : method.getParameterTypes() )
+                parametersDescriptor.append( parameterType.descriptorString() );
+
+            signatures.add( ClassModel.signatureOf(method.getName(), parametersDescriptor.toString()) );
+
+        }
+
+        return signatures;
+
+    }
+
+
+    /**
+     * Returns the name of the generic type of the given field.
+     * <p>
+     * If the generic type refers to classes that cannot be found,
+     * the name of the erased type is returned.
+     *
+     * @param field the field to check
+     * @return the name of the generic type
+     */
+    private static String genericTypeNameOf( Field field )
+    {
+
+        try{
+
+            return field.getGenericType().getTypeName();
+
+        }catch( RuntimeException | LinkageError ex )
+        {
+
+            return field.getType().getTypeName();
+
+        }
+
+    }
+
+
+    /* ***************** */
+    /*  FACTORY METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Returns the model representing the given class.
+     *
+     * @param type the class to represent
+     * @return the related model
+     */
+    static ReflectionClassModel of( Class<?> type )
+    {
+
+        return new ReflectionClassModel( type );
+
+    }
+
+
+    /* ******************* */
+    /*  INTERFACE METHODS  */
+    /* ******************* */
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName()
+    {
+
+        return type.getName();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSimpleName()
+    {
+
+        return type.getSimpleName();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPackageName()
+    {
+
+        return type.getPackageName();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClassModel getSuperclass()
+    {
+
+        final Class<?> superclass = type.getSuperclass();
+        return superclass != null ? new ReflectionClassModel( superclass ) : null;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ClassModel> getInterfaces()
+    {
+
+        final Class<?>[] interfaces = type.getInterfaces();
+        final List<ClassModel> models = new ArrayList<>( interfaces.length );
+        for( Class<?> i : interfaces )
+            models.add( new ReflectionClassModel(i) );
+
+        return models;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FieldModel> getDeclaredFields()
+    {
+
+        final Field[] fields = type.getDeclaredFields();
+        final List<FieldModel> models = new ArrayList<>( fields.length );
+        for( Field field : fields )
+        {
+
+            final Class<?> fieldType = field.getType();
+            models.add( new FieldModel(
+                field.getName(), field.getModifiers(),
+                fieldType.descriptorString(), fieldType.getSimpleName(),
+                fieldType.getTypeName(), genericTypeNameOf( field ),
+                type.getName()
+            ));
+
+        }
+
+        return models;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getDeclaredMethodSignatures()
+    {
+
+        return signaturesOf( type.getDeclaredMethods() );
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getPublicMethodSignatures()
+    {
+
+        return signaturesOf( type.getMethods() );
+
+    }
+
+}
@@ -0,0 +1,432 @@
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+
+/**
+ * Collects the internal metrics of the {@link AnalyzerServer}.
+ * <p>
+ * The metrics are reported by a {@code stats} request, one metric per
+ * line in the form {@code <name> <value>}, sorted by name:
+ * <ul>
+ * <li>{@code requests.<command>} the number of requests received by command.</li>
+ * <li>{@code responses.<outcome>} the number of responses by outcome
+ *     ({@code ok}, {@code error}, {@code cancelled} or {@code deadline}).</li>
+ * <li>{@code analysisCache.*} and {@code fieldCache.*} the hits, the misses and
+ *     the hit rate of the outcome cache and of the inherited field cache.</li>
+ * <li>{@code analyses.<engine>} the number of analyses performed by each engine.</li>
+ * <li>{@code loaders.*} the number of project and dependency class loaders created so far,
+ *     {@code files.*} the number of files they currently track.</li>
+ * <li>{@code classes.*} the number of classes loaded and unloaded by the JVM.</li>
+ * <li>{@code <command>.time.*} and {@code <command>.allocated.*} the time in milliseconds
+ *     and the bytes allocated by the thread serving each request, by command.</li>
+ * <li>{@code gc.*} the number, the total and the longest duration in milliseconds
+ *     of the garbage collections.</li>
+ * <li>{@code heap.*} the heap memory in bytes.</li>
+ * </ul>
+ * <p>
+ * The JVM management beans are looked up in background shortly after the server
+ * starts, so that they do not compete with the first analysis for the processor
+ * and the class loading. Until they are available, the
+ * allocations and the garbage collections are not measured and the JVM wide
+ * metrics are not reported.
+ * <p>
+ * The counters are thread safe.
+ *
+ * @author Massimo Coluzzi
+ */
+final class ServerStats
+{
+
+    /** Delay in milliseconds before looking up the JVM management beans. */
+    private static final long INITIALIZATION_DELAY = 1000;
+
+
+    /** The time the server started in milliseconds. */
+    private final long startTime;
+
+    /** The number of requests by command. */
+    private final Map<String,LongAdder> requests;
+
+    /** The number of responses by outcome. */
+    private final Map<String,LongAdder> responses;
+
+    /** The number of analyses by engine. */
+    private final Map<ClassAnalyzer.AnalysisEngine,LongAdder> analyses;
+
+    /** The time spent and the memory allocated serving the requests, by command. */
+    private final Map<String,Usage> usages;
+
+    /** The number of analyses answered by the outcome cache. */
+    final LongAdder analysisCacheHits;
+
+    /** The number of analyses not answered by the outcome cache. */
+    final LongAdder analysisCacheMisses;
+
+    /** The number of inherited field lookups answered by the cache. */
+    final LongAdder fieldCacheHits;
+
+    /** The number of inherited field lookups not answered by the cache. */
+    final LongAdder fieldCacheMisses;
+
+    /** The number of project class loaders created. */
+    final LongAdder projectLoaders;
+
+    /** The number of dependency class loaders created. */
+    final LongAdder dependencyLoaders;
+
+    /** The number of garbage collections. */
+    private final LongAdder gcCount;
+
+    /** The total duration of the garbage collections in milliseconds. */
+    private final LongAdder gcTime;
+
+    /** The longest garbage collection in milliseconds. */
+    private final LongAccumulator gcMaxTime;
+
+    /** The bean measuring the memory allocated by each thread, {@code null} if not available. */
+    private volatile com.sun.management.ThreadMXBean threadBean;
+
+    /** Tells if the JVM management beans have been looked up. */
+    private volatile boolean initialized;
+
+
+    /**
+     * Tracks the time spent and the memory allocated by the requests of a command.
+     *
+     * @author Massimo Coluzzi
+     */
+    private static final class Usage
+    {
+
+        /** The number of requests measured. */
+        final LongAdder count = new LongAdder();
+
+        /** The total time in nanoseconds. */
+        final LongAdder time = new LongAdder();
+
+        /** The longest time in nanoseconds. */
+        final LongAccumulator maxTime = new LongAccumulator( Long::max, 0 );
+
+        /** The number of requests whose allocations have been measured. */
+        final LongAdder allocationCount = new LongAdder();
+
+        /** The total allocated bytes. */
+        final LongAdder allocated = new LongAdder();
+
+        /** The largest allocation of a single request in bytes. */
+        final LongAccumulator maxAllocated = new LongAccumulator( Long::max, 0 );
+
+    }
+
+
+    /**
+     * Default constructor.
+     *
+     */
+    ServerStats()
+    {
+
+        super();
+
+        this.startTime = System.currentTimeMillis();
+        this.requests = new ConcurrentHashMap<>();
+        this.responses = new ConcurrentHashMap<>();
+        this.analyses = new ConcurrentHashMap<>();
+        this.usages = new ConcurrentHashMap<>();
+        this.analysisCacheHits = new LongAdder();
+        this.analysisCacheMisses = new LongAdder();
+        this.fieldCacheHits = new LongAdder();
+        this.fieldCacheMisses = new LongAdder();
+        this.projectLoaders = new LongAdder();
+        this.dependencyLoaders = new LongAdder();
+        this.gcCount = new LongAdder();
+        this.gcTime = new LongAdder();
+        this.gcMaxTime = new LongAccumulator( Long::max, 0 );
+        this.threadBean = null;
+        this.initialized = false;
+
+    }
+
+
+    /* ***************** */
+    /*  PRIVATE METHODS  */
+    /* ***************** */
+
+
+    /**
+     * Looks up the JVM management beans and starts
+     * listening to the garbage collections.
+     *
+     */
+    private void initialize()
+    {
+
+        for( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() )
+            if( collector instanceof NotificationEmitter )
+                ((NotificationEmitter) collector).addNotificationListener( (notification, handback) ->
+                {
+
+                    if( ! GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()) )
+                        return;
+
+                    final long duration = GarbageCollectionNotificationInfo
+                        .from( (CompositeData) notification.getUserData() ).getGcInfo().getDuration();
+
+                    gcCount.increment();
+                    gcTime.add( duration );
+                    gcMaxTime.accumulate( duration );
+
+                }, null, null );
+
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if( bean instanceof com.sun.management.ThreadMXBean )
+        {
+
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if( sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled() )
+                threadBean = sunBean;
+
+        }
+
+        initialized = true;
+
+    }
+
+
+    /**
+     * Increments the counter with the given key.
+     *
+     * @param counters the counters by key
+     * @param key      the key of the counter to increment
+     * @param <K>      the type of the key
+     */
+    private static <K> void increment( Map<K,LongAdder> counters, K key )
+    {
+
+        counters.computeIfAbsent( key, k -> new LongAdder() ).increment();
+
+    }
+
+
+    /**
+     * Returns the ratio between the hits and the total lookups.
+     *
+     * @param hits   the number of hits
+     * @param misses the number of misses
+     * @return the hit rate formatted with three decimals
+     */
+    private static String hitRate( LongAdder hits, LongAdder misses )
+    {
+
+        final long total = hits.sum() + misses.sum();
+        return String.format( Locale.ROOT, "%.3f", total > 0 ? (double) hits.sum() / total : 0.0 );
+
+    }
+
+
+    /* **************** */
+    /*  PUBLIC METHODS  */
+    /* **************** */
+
+
+    /**
+     * Looks up the JVM management beans in a background thread
+     * after a short delay.
+     *
+     */
+    void start()
+    {
+
+        final Thread thread = new Thread( () ->
+        {
+
+            try{
+
+                Thread.sleep( INITIALIZATION_DELAY );
+                initialize();
+
+            }catch( InterruptedException ex )
+            {
+
+                /* The server is exiting, the metrics are no longer needed. */
+
+            }
+
+        }, "analyzer-stats" );
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start();
+
+    }
+
+
+    /**
+     * Records a request received for the given command.
+     *
+     * @param command the requested command
+     */
+    void request( String command )
+    {
+
+        increment( requests, command );
+
+    }
+
+
+    /**
+     * Records a response with the given outcome.
+     *
+     * @param outcome the outcome of the request
+     */
+    void response( String outcome )
+    {
+
+        increment( responses, outcome );
+
+    }
+
+
+    /**
+     * Records an analysis performed with the given engine.
+     *
+     * @param engine the engine used to read the classes
+     */
+    void analysis( ClassAnalyzer.AnalysisEngine engine )
+    {
+
+        increment( analyses, engine );
+
+    }
+
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes, {@code -1} if not available
+     */
+    long allocatedBytes()
+    {
+
+        final com.sun.management.ThreadMXBean bean = threadBean;
+        return bean != null ? bean.getThreadAllocatedBytes( Thread.currentThread().getId() ) : -1;
+
+    }
+
+
+    /**
+     * Records the time spent and the memory allocated by a request of the given command.
+     *
+     * @param command   the requested command
+     * @param time      the time spent in nanoseconds
+     * @param allocated the allocated bytes, negative if not available
+     */
+    void usage( String command, long time, long allocated )
+    {
+
+        final Usage usage = usages.computeIfAbsent( command, c -> new Usage() );
+        usage.count.increment();
+        usage.time.add( time );
+        usage.maxTime.accumulate( time );
+
+        if( allocated < 0 )
+            return;
+
+        usage.allocationCount.increment();
+        usage.allocated.add( allocated );
+        usage.maxAllocated.accumulate( allocated );
+
+    }
+
+
+    /**
+     * Returns the current value of all the metrics.
+     *
+     * @param engine           the engine in use
+     * @param projectFiles     the number of files tracked by the project class loader
+     * @param dependencyFiles  the number of files tracked by the dependency class loader
+     * @return the metrics in the form {@code <name> <value>}, sorted by name
+     */
+    List<String> report( ClassAnalyzer.AnalysisEngine engine, int projectFiles, int dependencyFiles )
+    {
+
+        final Map<String,Object> metrics = new TreeMap<>();
+        metrics.put( "uptime.ms", System.currentTimeMillis() - startTime );
+        metrics.put( "engine", engine.name().toLowerCase() );
+
+        requests.forEach( (command, count) -> metrics.put("requests." + command, count.sum()) );
+        responses.forEach( (outcome, count) -> metrics.put("responses." + outcome, count.sum()) );
+        for( ClassAnalyzer.AnalysisEngine e : ClassAnalyzer.AnalysisEngine.values() )
+            metrics.put( "analyses." + e.name().toLowerCase(), analyses.containsKey(e) ? analyses.get(e).sum() : 0 );
+
+        metrics.put( "analysisCache.hits", analysisCacheHits.sum() );
+        metrics.put( "analysisCache.misses", analysisCacheMisses.sum() );
+        metrics.put( "analysisCache.hitRate", hitRate(analysisCacheHits, analysisCacheMisses) );
+        metrics.put( "fieldCache.hits", fieldCacheHits.sum() );
+        metrics.put( "fieldCache.misses", fieldCacheMisses.sum() );
+        metrics.put( "fieldCache.hitRate", hitRate(fieldCacheHits, fieldCacheMisses) );
+
+        metrics.put( "loaders.project", projectLoaders.sum() );
+        metrics.put( "loaders.dependency", dependencyLoaders.sum() );
+        metrics.put( "files.project", projectFiles );
+        metrics.put( "files.dependency", dependencyFiles );
+
+        usages.forEach( (command, usage) ->
+        {
+
+            final long count = usage.count.sum();
+            metrics.put( command + ".time.avg", String.format(Locale.ROOT, "%.3f", usage.time.sum() / 1e6 / Math.max(1, count)) );
+            metrics.put( command + ".time.max", String.format(Locale.ROOT, "%.3f", usage.maxTime.get() / 1e6) );
+
+            final long allocationCount = usage.allocationCount.sum();
+            if( allocationCount == 0 )
+                return;
+
+            metrics.put( command + ".allocated.avg", usage.allocated.sum() / allocationCount );
+            metrics.put( command + ".allocated.max", usage.maxAllocated.get() );
+
+        });
+
+        /* The JVM wide metrics are available only after the initialization. */
+        if( initialized )
+        {
+
+            final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+            metrics.put( "classes.loaded", classLoading.getLoadedClassCount() );
+            metrics.put( "classes.total", classLoading.getTotalLoadedClassCount() );
+            metrics.put( "classes.unloaded", classLoading.getUnloadedClassCount() );
+
+            final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            metrics.put( "heap.used", heap.getUsed() );
+            metrics.put( "heap.committed", heap.getCommitted() );
+            metrics.put( "heap.max", heap.getMax() );
+
+            metrics.put( "gc.count", gcCount.sum() );
+            metrics.put( "gc.time.total", gcTime.sum() );
+            metrics.put( "gc.time.max", gcMaxTime.get() );
+
+        }
+
+        final List<String> lines = new ArrayList<>( metrics.size() );
+        metrics.forEach( (name, value) -> lines.add(name + ' ' + value) );
+
+        return lines;
+
+    }
+
+}
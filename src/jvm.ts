@@ -4,10 +4,12 @@ import * as which from 'which';
 import * as vscode from 'vscode';
 
 import * as maven from './maven';
+import * as gradle from './gradle';
 import * as plain from './plain';
+import * as timing from './timing';
 
 import { exec } from 'child_process';
-import { CommandKey } from './config';
+import { AnalysisEngine, AnalyzerJvmProfile, CommandKey, Nerd4JSetting } from './config';
 import { JavaClass, JvmSettings } from './commons';
 
 /* Name of the Java analyzer class. */
@@ -16,6 +18,24 @@ const JAVA_CLASS_ANALYZER_FILE : string = 'ClassAnalyzer';
 /* Location of the Java analyzer class. */
 const JAVA_CLASS_ANALYZER_FOLDER : string = path.join(__dirname, '..', 'src', 'java'); 
 
+/* Folder where the build defined in src/pom.xml packages the Java analyzer class. */
+const JAVA_CLASS_ANALYZER_BUILD_FOLDER : string = path.join(__dirname, '..', 'src', 'target');
+
+/* JAR file containing the Java analyzer class. */
+const JAVA_CLASS_ANALYZER_JAR : string = path.join(JAVA_CLASS_ANALYZER_BUILD_FOLDER, 'class-analyzer.jar');
+
+/* Class data sharing archive of the classes used by the Java analyzer class. */
+const JAVA_CLASS_ANALYZER_ARCHIVE : string = path.join(JAVA_CLASS_ANALYZER_BUILD_FOLDER, 'class-analyzer.jsa');
+
+/* File containing the Java home of the JDK used to create the archive. */
+const JAVA_CLASS_ANALYZER_ARCHIVE_JDK : string = path.join(JAVA_CLASS_ANALYZER_BUILD_FOLDER, 'class-analyzer.jsa.jdk');
+
+/* JVM options of the bounded profile, see AnalyzerJvmProfile. */
+const BOUNDED_PROFILE_OPTIONS : string[] = [ '-XX:+UseSerialGC', '-XX:TieredStopAtLevel=1', '-XX:CICompilerCount=1' ];
+
+/* Option selecting the output format of the Java analyzer class. */
+const JAVA_CLASS_ANALYZER_FORMAT : string = '--format=json';
+
 /* Key of the Java home property in vscode settings. */
 const JAVA_HOME = 'java.jdt.ls.java.home';
 
@@ -23,6 +43,21 @@ const JAVA_HOME = 'java.jdt.ls.java.home';
 const NERD4J_JAVA_COMMAND = 'nerd4j.java.command';
 
 
+/**
+ * Represents a Java command in a form suitable to be spawned
+ * as a child process without the need of a shell.
+ */
+export interface JavaCommand {
+
+    /** The path to the Java executable. */
+    readonly command : string;
+
+    /** The arguments to pass to the Java executable. */
+    readonly args : string[];
+
+}
+
+
 /* ******************* */
 /*  PRIVATE FUNCTIONS  */
 /* ******************* */
@@ -50,16 +85,28 @@ async function getDefaultJavaCommand(): Promise<string|null> {
 
 
 /**
- * Return the classpath of the project, built with the dependencies in the pom.xml file.
+ * Returns the separator used to join class path entries on the current OS.
+ * 
+ * @returns the class path separator
+ */
+function getClassPathSeparator() : string {
+
+    return process.platform === 'win32' ? ';' : ':';
+
+}
+
+
+/**
+ * Return the classpath of the project, built with the dependencies
+ * and the Java output folder, without the ClassAnalyzer folder.
  * 
- * @param javaFilePath the path to the java file
  * @param jvmSettings  the JVM settings to use
  * @returns the classpath of the project
  */
-function getJavaClassPath( javaFilePath : string, jvmSettings : JvmSettings ): string|null {
+function getProjectClassPath( jvmSettings : JvmSettings ): string {
     
     /* Get the right separator based on the OS. */
-    const separator = process.platform === 'win32' ? ';' : ':';
+    const separator = getClassPathSeparator();
     
     /* Extract the paths of the dependency jar files from the pom.xml file. */
     const dependecyPaths = jvmSettings.dependencyPaths;
@@ -70,12 +117,138 @@ function getJavaClassPath( javaFilePath : string, jvmSettings : JvmSettings ): s
     /* Create the full class path for the java project. */
     const javaOutputFolderPath = jvmSettings.outFolder;
     return mavenClassPath
-    ? `${JAVA_CLASS_ANALYZER_FOLDER}${separator}${mavenClassPath}${separator}${javaOutputFolderPath}`
-    : `${JAVA_CLASS_ANALYZER_FOLDER}${separator}${javaOutputFolderPath}`;
+    ? `${mavenClassPath}${separator}${javaOutputFolderPath}`
+    : javaOutputFolderPath;
     
 }
 
 
+/**
+ * Return the classpath of the project, built with the dependencies in the pom.xml file.
+ * 
+ * @param analyzerClassPath the class path of the ClassAnalyzer
+ * @param jvmSettings       the JVM settings to use
+ * @returns the classpath of the project
+ */
+function getJavaClassPath( analyzerClassPath : string, jvmSettings : JvmSettings ): string|null {
+    
+    /* Create the full class path including the ClassAnalyzer. */
+    return `${analyzerClassPath}${getClassPathSeparator()}${getProjectClassPath(jvmSettings)}`;
+    
+}
+
+
+/**
+ * Tells if the class data sharing archive created by the build can be used
+ * with the given Java command.
+ * 
+ * The archive can be used only by the same JDK used to create it.
+ * Therefore, the Java home recorded by the build is compared with
+ * the one of the given Java command.
+ * 
+ * @param javaCommandPath the path to the Java command
+ * @returns true if the archive can be used
+ */
+function isSharedArchiveUsable( javaCommandPath : string ) : boolean {
+
+    try{
+
+        if( ! fs.existsSync(JAVA_CLASS_ANALYZER_JAR) || ! fs.existsSync(JAVA_CLASS_ANALYZER_ARCHIVE) ) {
+            return false;
+        }
+
+        const archiveJavaHome = fs.readFileSync( JAVA_CLASS_ANALYZER_ARCHIVE_JDK, 'utf-8' ).trim();
+        const javaHome = path.dirname( path.dirname(fs.realpathSync(javaCommandPath)) );
+
+        return fs.realpathSync( archiveJavaHome ) === javaHome;
+
+    }catch( error ) {
+
+        return false;
+
+    }
+
+}
+
+
+/**
+ * Returns the JVM options and the class path to use to run the ClassAnalyzer.
+ * 
+ * If the build defined in src/pom.xml created a class data sharing archive
+ * for the same JDK, the packaged ClassAnalyzer is used together with the
+ * archive to reduce the startup time. Otherwise, the ClassAnalyzer folder
+ * is used. Any CDS logging is disabled, so that an archive refused by the
+ * JVM does not pollute the output and the JVM falls back silently.
+ * 
+ * @param javaCommandPath the path to the Java command
+ * @returns the JVM options and the class path of the ClassAnalyzer
+ */
+function getClassAnalyzerLaunchSettings( javaCommandPath : string ) : { options : string[], classPath : string } {
+
+    if( ! isSharedArchiveUsable(javaCommandPath) ) {
+        return { options: [], classPath: JAVA_CLASS_ANALYZER_FOLDER };
+    }
+
+    return {
+        options   : [ `-XX:SharedArchiveFile=${JAVA_CLASS_ANALYZER_ARCHIVE}`, '-Xshare:auto', '-Xlog:cds=off,cds+dynamic=off' ],
+        classPath : JAVA_CLASS_ANALYZER_JAR
+    };
+
+}
+
+
+/**
+ * Returns the option selecting the engine used by the ClassAnalyzer.
+ * 
+ * @returns the engine option to pass to the ClassAnalyzer
+ */
+function getAnalysisEngineOption() : string {
+
+    const engine = vscode.workspace.getConfiguration().get( Nerd4JSetting.analyzerEngine, AnalysisEngine.bytecode );
+    return `--engine=${engine}`;
+
+}
+
+
+/**
+ * Returns the option defining the deadline of each analysis
+ * performed by the ClassAnalyzer in server mode.
+ * 
+ * @returns the timeout option to pass to the ClassAnalyzer
+ */
+function getAnalysisTimeoutOption() : string {
+
+    const timeout = vscode.workspace.getConfiguration().get( Nerd4JSetting.analyzerTimeout, 10000 );
+    return `--timeout=${Math.max( 0, Math.trunc(timeout) )}`;
+
+}
+
+
+/**
+ * Returns the JVM options defined by the analyzer profile, the memory
+ * cap and the additional options configured in the settings.
+ * 
+ * The additional options come last, so that they take precedence.
+ * 
+ * @returns the options to pass to the JVM running the ClassAnalyzer
+ */
+function getAnalyzerJvmOptions() : string[] {
+
+    const config = vscode.workspace.getConfiguration();
+
+    const profile = config.get( Nerd4JSetting.analyzerJvmProfile, AnalyzerJvmProfile.bounded );
+    const profileOptions = profile === AnalyzerJvmProfile.bounded ? BOUNDED_PROFILE_OPTIONS : [];
+
+    const maxMemory = Math.trunc( config.get(Nerd4JSetting.analyzerMaxMemory, 256) );
+    const memoryOptions = maxMemory > 0 ? [ `-Xmx${maxMemory}m` ] : [];
+
+    const customOptions = config.get<string[]>( Nerd4JSetting.analyzerJvmOptions, [] ).filter( option => option.trim() );
+
+    return [ ...profileOptions, ...memoryOptions, ...customOptions ];
+
+}
+
+
 /**
  * Tells if the provided path points to a Java source file.
  * 
@@ -112,9 +285,19 @@ export async function getJvmSettings( javaFilePath : string ) : Promise<JvmSetti
         return null;
     }
 
-    return maven.isMavenProject()
-    ? await maven.getJvmSettings( javaFilePath )
-    : plain.getJvmSettings();
+    return timing.measure( 'jvm.getJvmSettings', async () => {
+
+        if( maven.isMavenProject() ) {
+            return maven.getJvmSettings( javaFilePath );
+        }
+
+        if( gradle.isGradleProject() ) {
+            return gradle.getJvmSettings( javaFilePath );
+        }
+
+        return plain.getJvmSettings();
+
+    });
 
 }
 
@@ -263,9 +446,44 @@ export async function getClassAnalyzerJavaCommand(
     }
                             
     /* Get the class path to use in the java command. */
-    const classPath = getJavaClassPath( javaFilePath, jvmSettings );
+    const launchSettings = getClassAnalyzerLaunchSettings( javaCommandPath );
+    const classPath = getJavaClassPath( launchSettings.classPath, jvmSettings );
+    const options = [ ...launchSettings.options, ...getAnalyzerJvmOptions() ].map( option => `'${option}' ` ).join( '' );
                 
     /* Create the java command to execute. */
-    return `${javaCommandPath} -cp '${classPath}' ${JAVA_CLASS_ANALYZER_FILE}`;
+    return `${javaCommandPath} ${options}-cp '${classPath}' ${JAVA_CLASS_ANALYZER_FILE} ${getAnalysisEngineOption()} ${JAVA_CLASS_ANALYZER_FORMAT}`;
+
+}
 
-}
\ No newline at end of file
+/**
+ * Returns the command and the arguments to start the ClassAnalyzer in server mode.
+ * 
+ * In server mode, the project class path is passed as arguments
+ * and not as JVM class path. The output folder and the dependencies
+ * are passed separately, this way, the ClassAnalyzer can reload the
+ * project classes when they get recompiled while keeping the
+ * dependencies loaded.
+ * 
+ * @param jvmSettings the JVM settings to use
+ * @returns the command to start the ClassAnalyzer server
+ */
+export async function getClassAnalyzerServerCommand( jvmSettings : JvmSettings ) : Promise<JavaCommand|null> {
+
+    /* Retrieve the java command. */
+    const javaCommandPath = await getJavaCommandPath();
+    if( ! javaCommandPath ) {
+        return null;
+    }
+
+    const launchSettings = getClassAnalyzerLaunchSettings( javaCommandPath );
+    return {
+        command : javaCommandPath,
+        args    : [
+            ...launchSettings.options, ...getAnalyzerJvmOptions(),
+            '-cp', launchSettings.classPath, JAVA_CLASS_ANALYZER_FILE,
+            '--server', getAnalysisEngineOption(), getAnalysisTimeoutOption(), JAVA_CLASS_ANALYZER_FORMAT,
+            jvmSettings.outFolder, jvmSettings.dependencyPaths.join( getClassPathSeparator() )
+        ]
+    };
+
+}
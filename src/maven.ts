@@ -2,11 +2,173 @@ import * as vscode from 'vscode';
 import * as xml2js from 'xml2js';
 import * as path from 'path';
 import * as fs from 'fs';
+import * as os from 'os';
+import * as timing from './timing';
 
 import { JvmSettings, getProjectRootFolder } from './commons';
 import { JavaProjectType, Nerd4JSetting } from './config';
 
 
+/** Glob pattern matching the POM files of the workspace. */
+const POM_GLOB = '**/pom.xml';
+
+/** Prefix of the keys of the Nerd4J settings. */
+const NERD4J_SETTINGS = 'nerd4j';
+
+/** Maximum number of nested property references resolved in a POM value. */
+const MAX_INTERPOLATION_DEPTH = 10;
+
+/** Matches a property reference in a POM value. */
+const PROPERTY_REFERENCE = /\$\{([^}]+)\}/g;
+
+
+/** The POM file of each source folder, null if the folder belongs to no Maven module. */
+const pomPaths = new Map<string,string|null>();
+
+/** The JVM settings of each Maven module by POM file. */
+const jvmSettingsCache = new Map<string,JvmSettings>();
+
+/** The dependencies declared by the artifacts of the local repository by GAV, only the complete ones are kept. */
+const artifactDependencies = new Map<string,Promise<MavenDependency[]>>();
+
+/** The POM models by POM file, parents are shared by all their modules. */
+const pomModels = new Map<string,Promise<PomModel|null>>();
+
+/** The parent POM file each POM file being read is waiting for. */
+const pendingParents = new Map<string,string>();
+
+/** The dependency management of the imported BOMs by GAV. */
+const importedBoms = new Map<string,Promise<Map<string,MavenDependency>>>();
+
+/** The modules of the workspace by "groupId:artifactId", indexed on first use. */
+let reactorModules : Promise<Map<string,ReactorModule>>|null = null;
+
+
+/**
+ * A dependency declared in a POM file.
+ */
+interface MavenDependency {
+
+    /** The group of the dependency. */
+    readonly groupId : string;
+
+    /** The name of the dependency artifact. */
+    readonly artifactId : string;
+
+    /** The version of the dependency artifact. */
+    readonly version : string;
+
+    /** The classifier of the dependency artifact if any. */
+    readonly classifier : string|null;
+
+    /** The scope of the dependency, "compile" if not declared. */
+    readonly scope : string;
+
+    /** Tells if the dependency is not inherited by the dependent artifacts. */
+    readonly optional : boolean;
+
+    /** The path to the JAR file of a dependency with system scope. */
+    readonly systemPath : string|null;
+
+    /** The excluded transitive dependencies as "groupId:artifactId" patterns. */
+    readonly exclusions : string[];
+
+}
+
+
+/**
+ * A POM file merged with its parents, before property interpolation.
+ * Properties are interpolated only in the effective POM, so that
+ * a module can override the properties used by its parents.
+ */
+interface PomModel {
+
+    /** The artifact described by the POM file. */
+    readonly artifactId : string|null;
+
+    /** The properties including the ones inherited from the parents. */
+    readonly properties : Map<string,string>;
+
+    /** The dependencies including the ones inherited from the parents. */
+    readonly dependencies : any[];
+
+    /** The managed dependencies including the ones inherited from the parents. */
+    readonly managed : any[];
+
+    /** The <build> block of the POM file or the inherited one. */
+    readonly build : any;
+
+    /** The paths of the modules aggregated by the POM file. */
+    readonly modules : string[];
+
+    /** Tells if all the declared parents have been found. */
+    readonly complete : boolean;
+
+}
+
+
+/**
+ * A Maven module of the workspace.
+ */
+interface ReactorModule {
+
+    /** The path of the POM file of the module. */
+    readonly pomPath : string;
+
+    /** The Java output folder of the module. */
+    readonly outFolder : string;
+
+}
+
+
+/**
+ * The dependencies of a POM file with all values resolved.
+ */
+interface EffectivePom {
+
+    /** The properties used to resolve the values. */
+    readonly properties : Map<string,string>;
+
+    /** The declared dependencies with the managed values applied. */
+    readonly dependencies : MavenDependency[];
+
+    /** The managed dependencies, including the imported ones, by dependency key. */
+    readonly managed : Map<string,MavenDependency>;
+
+    /** Tells if all the declared parents and the imported BOMs have been found. */
+    readonly complete : boolean;
+
+}
+
+
+/**
+ * A dependency reached while walking the dependency graph.
+ */
+interface DependencyNode {
+
+    /** The reached dependency. */
+    readonly dependency : MavenDependency;
+
+    /** The exclusions declared along the path to the dependency. */
+    readonly exclusions : string[];
+
+}
+
+
+/**
+ * The result of walking the dependency graph.
+ */
+interface ResolvedDependencies {
+
+    /** The paths to the dependency JAR files and module output folders. */
+    readonly dependencyPaths : string[];
+
+    /** Tells if all the POM files in the graph have been found. */
+    readonly complete : boolean;
+
+}
+
+
 /* ******************* */
 /*  PRIVATE FUNCTIONS  */
 /* ******************* */
@@ -15,29 +177,41 @@ import { JavaProjectType, Nerd4JSetting } from './config';
 /**
  * Return the path to the Maven POM file if any.
  * 
+ * The POM file is searched once for each source folder,
+ * the outcome is kept until a POM file is created or deleted.
+ * 
  * @return the POM path or null
  */
 function getPomPath( javaFilePath : string ) : string|null {
 
+    const sourceFolder = path.dirname( javaFilePath );
+    const cached = pomPaths.get( sourceFolder );
+    if( cached !== undefined ) {
+        return cached;
+    }
+
     /* Extract the project root folder. */
     const projectRoot = getProjectRootFolder();
     if( ! projectRoot ) {
         return null;
     }
     
-    let parentPath = path.dirname( javaFilePath );
+    let pomPath : string|null = null;
+    let parentPath = sourceFolder;
     do {
 
-        const pomPath = path.join( parentPath, 'pom.xml' );
-        if( fs.existsSync(pomPath) ) {
-            return pomPath;
+        const candidate = path.join( parentPath, 'pom.xml' );
+        if( fs.existsSync(candidate) ) {
+            pomPath = candidate;
+            break;
         }
 
         parentPath = path.dirname( parentPath );
 
     }while( parentPath && parentPath.startsWith(projectRoot) );
 
-    return null;
+    pomPaths.set( sourceFolder, pomPath );
+    return pomPath;
 
 }
 
@@ -136,43 +310,189 @@ function getDependencyPath( localMavenRepoPath : string, dependency : string ) :
 
 
 /**
- * Given the dependency definition, extracts the required values and returns
- * the path to the dependecy jar file.
+ * Returns the text of the given single valued xml element if any.
  * 
- * @param localMavenRepoPath the path to the local maven repository
- * @param dependency         the dependency to parse
- * @return the path to the dependency jar file
+ * @param element the element parsed by xml2js
+ * @returns the trimmed text of the element or null
+ */
+function textOf( element : any ) : string|null {
+
+    if( ! element || element.length !== 1 || typeof element[0] !== 'string' ) {
+        return null;
+    }
+
+    const text = element[0].trim();
+    return text ? text : null;
+
+}
+
+
+/**
+ * Removes the given entry from the given memo,
+ * unless it has been replaced in the meanwhile.
+ * 
+ * @param memo  the memo to update
+ * @param key   the key of the entry
+ * @param value the value to remove
+ */
+function forget<T>( memo : Map<string,T>, key : string, value : T ) : void {
+
+    if( memo.get(key) === value ) {
+        memo.delete( key );
+    }
+
+}
+
+
+/**
+ * Replaces the property references in the given value.
+ * Undefined properties are left as they are.
+ * 
+ * @param value      the value to interpolate
+ * @param properties the properties of the POM file
+ * @returns the interpolated value
+ */
+function interpolate( value : string|null, properties : Map<string,string> ) : string|null {
+
+    let interpolated = value;
+    for( let depth = 0; interpolated && interpolated.includes('${') && depth < MAX_INTERPOLATION_DEPTH; ++depth ) {
+
+        interpolated = interpolated.replace( PROPERTY_REFERENCE, (reference : string, name : string) => {
+
+            /* The "pom." prefix is the deprecated alias of "project.". */
+            const key = name.startsWith( 'pom.' ) ? `project.${name.substring(4)}` : name;
+            const property = properties.get( key )
+                ?? ( key.startsWith('env.') ? process.env[key.substring(4)] : undefined )
+                ?? ( key === 'user.home' ? os.homedir() : undefined );
+
+            return property ?? reference;
+
+        });
+
+    }
+
+    return interpolated;
+
+}
+
+
+/**
+ * Returns the key identifying the artifact of a dependency,
+ * regardless of its version.
+ * 
+ * @param groupId    the group of the dependency
+ * @param artifactId the name of the dependency artifact
+ * @param classifier the classifier of the dependency artifact if any
+ * @returns the dependency key
  */
-function parseDependency( localMavenRepoPath : string, dependency : any ) : string|null {
+function dependencyKey( groupId : string|null, artifactId : string|null, classifier : string|null ) : string {
+
+    return `${groupId}:${artifactId}:${classifier || ''}`;
+
+}
+
+
+/**
+ * Given the dependency definition, extracts the coordinates
+ * and the attributes of the dependency.
+ * 
+ * The missing version, scope and exclusions are taken
+ * from the given managed dependencies.
+ * 
+ * @param dependency the dependency to parse
+ * @param properties the properties used to resolve the values
+ * @param managed    the managed dependencies by dependency key
+ * @return the parsed dependency or null if not applicable
+ */
+function parseDependency( dependency : any, properties : Map<string,string>, managed : Map<string,MavenDependency> ) : MavenDependency|null {
 
     if( ! dependency ) {
         return null;
     }
 
+    const valueOf = ( element : any ) => interpolate( textOf(element), properties );
+
     /*
      * We are interested only in dependencies of type jar.
      * All other dependencies will be ignored.
      */
-    if( dependency.type && dependency.type.length === 1 ) {
-        const type = dependency.type[0].trim();
-        if( type !== 'jar' ) {
-            return null;
-        }
+    const type = valueOf( dependency.type );
+    if( type && type !== 'jar' ) {
+        return null;
     }
 
     /* We extract the different fields of the dependency. */
-    const groupId    = dependency.groupId && dependency.groupId.length === 1 ? dependency.groupId[0].trim() : null;
-    const artifactId = dependency.artifactId && dependency.artifactId.length === 1 ? dependency.artifactId[0].trim() : null;
-    const version    = dependency.version && dependency.version.length === 1 ? dependency.version[0].trim() : null;
-
-    /* If some value is missing we cannot proceed. */
-    if( ! groupId || ! artifactId || ! version ) {
+    const groupId    = valueOf( dependency.groupId );
+    const artifactId = valueOf( dependency.artifactId );
+    const classifier = valueOf( dependency.classifier );
+    const management = managed.get( dependencyKey(groupId, artifactId, classifier) );
+    const version    = valueOf( dependency.version ) || management?.version;
+
+    /* If some value is missing or not resolved we cannot proceed. */
+    if( ! groupId || ! artifactId || ! version || version.includes('${') ) {
         return null;
     }
 
-    /* Otherwise, we build the path to the jar file of the dependecy. */
+    /* Each exclusion is stored as a "groupId:artifactId" pattern. */
+    const exclusions : string[] = [];
+    const exclusionList = dependency.exclusions?.[0]?.exclusion || [];
+    for( const exclusion of exclusionList ) {
+
+        const excludedGroupId    = valueOf( exclusion.groupId ) || '*';
+        const excludedArtifactId = valueOf( exclusion.artifactId ) || '*';
+        exclusions.push( `${excludedGroupId}:${excludedArtifactId}` );
+
+    }
+
+    return {
+        groupId    : groupId,
+        artifactId : artifactId,
+        version    : version,
+        classifier : classifier,
+        scope      : valueOf( dependency.scope ) || management?.scope || 'compile',
+        optional   : valueOf( dependency.optional ) === 'true',
+        systemPath : valueOf( dependency.systemPath ) || management?.systemPath || null,
+        exclusions : exclusionList.length > 0 ? exclusions : management?.exclusions || []
+    };
+
+}
+
+
+/**
+ * Returns the path to the given file of the given artifact
+ * in the local Maven repository.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param dependency         the dependency to locate
+ * @param extension          the extension of the file
+ * @returns the path to the file
+ */
+function getArtifactPath( localMavenRepoPath : string, dependency : MavenDependency, extension : string ) : string {
+
+    const { groupId, artifactId, version } = dependency;
+    const classifier = extension === 'jar' && dependency.classifier ? `-${dependency.classifier}` : '';
+
     const groupSplit = groupId.split( '.' );
-    return path.join( localMavenRepoPath, ...groupSplit, artifactId, version, `${artifactId}-${version}.jar` );
+    return path.join( localMavenRepoPath, ...groupSplit, artifactId, version, `${artifactId}-${version}${classifier}.${extension}` );
+
+}
+
+
+/**
+ * Returns the path to the dependecy jar file.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param dependency         the dependency to locate
+ * @returns the path to the dependency jar file or null
+ */
+function getJarPath( localMavenRepoPath : string, dependency : MavenDependency ) : string|null {
+
+    /* The dependencies with system scope are not stored in the local repository. */
+    if( dependency.scope === 'system' ) {
+        return dependency.systemPath && path.isAbsolute( dependency.systemPath ) ? dependency.systemPath : null;
+    }
+
+    return getArtifactPath( localMavenRepoPath, dependency, 'jar' );
 
 }
 
@@ -181,29 +501,31 @@ function parseDependency( localMavenRepoPath : string, dependency : any ) : stri
  * Searches for a custom Java output folder in the POM xml.
  * If not found retuns the default Maven output folder.
  * 
- * @param pomPath path of the POM file
- * @param xml     content of the POM file
+ * @param pomPath    path of the POM file
+ * @param build      the <build> block of the POM file if any
+ * @param properties the properties used to resolve the values
  * @returns the Java output folder
  */
-function parseOutFolder( pomPath : string, xml : any ) : string|null {
+function parseOutFolder( pomPath : string, build : any, properties : Map<string,string> ) : string|null {
+    
+    const pomFolder = path.dirname( pomPath );
     
     /*
      * In POM file, the Java output folder is defined in the <build> block.
      * If such a block is not defined we move forward.
      */
-    const build = xml.project?.build;
-    if( build && build.length === 1 ) {
+    if( build && typeof build === 'object' ) {
 
         /*
          * Inside the <build> block the output folder is defined
          * by the <outputDirectory> block.
          */
-        const outputDirectory = build[0].outputDirectory;
+        const outputDirectory = build.outputDirectory;
         if( outputDirectory && outputDirectory.length === 1 ) {
             
-            const outFolder = outputDirectory[0].trim();
+            const outFolder = interpolate( textOf(outputDirectory), properties );
             if( outFolder ) {
-                return outFolder;
+                return path.resolve( pomFolder, outFolder );
             }
 
         }
@@ -214,12 +536,12 @@ function parseOutFolder( pomPath : string, xml : any ) : string|null {
          * defined in the <directory> block and the "classes"
          * suffix.
          */
-        const buildDirectory = build[0].directory;
+        const buildDirectory = build.directory;
         if( buildDirectory && buildDirectory.length === 1 ) {
 
-            const targetFolder = buildDirectory[0].trim();
+            const targetFolder = interpolate( textOf(buildDirectory), properties );
             if( targetFolder ) {
-                return path.join( targetFolder, 'classes' );
+                return path.resolve( pomFolder, targetFolder, 'classes' );
             }
 
         }
@@ -231,44 +553,684 @@ function parseOutFolder( pomPath : string, xml : any ) : string|null {
      * the default value is "target". Therefore, the default
      * output folder is "target/classes".
      */
-    const pomFolder = path.dirname( pomPath );
     return path.join( pomFolder, 'target', 'classes' );
 
 }
 
 
 /**
- * Parses the given POM xml to search for dependencies ann
- * returns the paths to the dependecy JAR files.
+ * Returns the properties declared in the given POM xml.
  * 
- * @param localMavenRepoPath the path to the local Maven repo
- * @param xml the content of the POM file to parse
- * @returns the paths to the dependecy JAR files
+ * @param project the <project> block of the POM file
+ * @returns the declared properties
  */
-function parseDependencies( localMavenRepoPath : string, xml : any ) : string[] {
+function parseProperties( project : any ) : Map<string,string> {
 
-    const dependencyPaths : string[] = [];
+    const properties = new Map<string,string>();
+
+    const declared = project.properties?.[0];
+    if( declared && typeof declared === 'object' ) {
+        for( const name of Object.keys(declared) ) {
+
+            /* xml2js stores the attributes of the block under "$". */
+            const value = name !== '$' ? textOf( declared[name] ) : null;
+            properties.set( name, value || '' );
+
+        }
+    }
+
+    return properties;
+
+}
+
+
+/**
+ * Finds the parent POM declared by the given POM file.
+ * 
+ * As in Maven, the parent is searched in the relative path,
+ * "../pom.xml" by default, and then in the local repository.
+ * 
+ * @param pomPath            path of the POM file
+ * @param parent             the <parent> block of the POM file
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param children           the POM files inheriting from the parent, to break cycles
+ * @returns the parent model if available
+ */
+async function loadParentPom( pomPath : string, parent : any, localMavenRepoPath : string, children : Set<string> ) : Promise<PomModel|null> {
+
+    const groupId    = textOf( parent.groupId );
+    const artifactId = textOf( parent.artifactId );
+    const version    = textOf( parent.version );
+
+    /* The parent being waited for is recorded, so that the concurrent reads can detect the cycles. */
+    const loadParent = ( parentPath : string ) => {
+
+        pendingParents.set( pomPath, parentPath );
+        return loadPom( parentPath, localMavenRepoPath, children ).finally( () => pendingParents.delete(pomPath) );
+
+    };
+
+    /* An empty <relativePath/> disables the search in the file system. */
+    const relativePath = parent.relativePath ? textOf( parent.relativePath ) : path.join( '..', 'pom.xml' );
+    if( relativePath ) {
+
+        let parentPath = path.resolve( path.dirname(pomPath), relativePath );
+        if( ! parentPath.endsWith('.xml') ) {
+            parentPath = path.join( parentPath, 'pom.xml' );
+        }
+
+        if( fs.existsSync(parentPath) ) {
+            const model = await loadParent( parentPath );
+            if( model && model.artifactId === artifactId ) {
+                return model;
+            }
+        }
+
+    }
+
+    if( ! groupId || ! artifactId || ! version ) {
+        return null;
+    }
+
+    const coordinates = { groupId, artifactId, version, classifier: null, scope: 'import', optional: false, systemPath: null, exclusions: [] };
+    return loadParent( getArtifactPath(localMavenRepoPath, coordinates, 'pom') );
+
+}
+
+
+/**
+ * Tells if the given POM file, being read, is waiting
+ * for one of the given POM files through its parents.
+ * 
+ * @param pomPath  path of the POM file
+ * @param children the POM files to search for
+ * @returns true if waiting for the given POM file would never end
+ */
+function isWaitingFor( pomPath : string, children : Set<string> ) : boolean {
+
+    const visited = new Set<string>();
+    let parentPath = pendingParents.get( pomPath );
+    while( parentPath && ! visited.has(parentPath) ) {
+
+        if( children.has(parentPath) ) {
+            return true;
+        }
+
+        visited.add( parentPath );
+        parentPath = pendingParents.get( parentPath );
+
+    }
+
+    return false;
+
+}
+
+
+/**
+ * Reads the given POM file and merges it with its parents.
+ * 
+ * @param pomPath            path of the POM file
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param children           the POM files inheriting from this one, to break cycles
+ * @returns the POM model
+ */
+async function readPom( pomPath : string, localMavenRepoPath : string, children : Set<string> ) : Promise<PomModel> {
+
+    const xml = await xml2js.parseStringPromise( await fs.promises.readFile(pomPath, 'utf-8') );
+    const project = xml.project || {};
+
+    const parentBlock = project.parent?.[0];
+    const parent = parentBlock && typeof parentBlock === 'object'
+                 ? await loadParentPom( pomPath, parentBlock, localMavenRepoPath, new Set([...children, pomPath]) )
+                 : null;
+
+    /* The properties of the module override the ones of the parents. */
+    const properties = new Map<string,string>( parent?.properties );
+    parseProperties( project ).forEach( (value, name) => properties.set(name, value) );
+
+    const artifactId = textOf( project.artifactId );
+    const groupId    = textOf( project.groupId ) || textOf( parentBlock?.groupId );
+    const version    = textOf( project.version ) || textOf( parentBlock?.version );
+    const basedir    = path.dirname( pomPath );
+    const build      = project.build?.[0] || parent?.build;
+
+    const builtIn : [string, string|null][] = [
+        [ 'project.groupId', groupId ], [ 'project.artifactId', artifactId ], [ 'project.version', version ],
+        [ 'project.parent.groupId', textOf(parentBlock?.groupId) ], [ 'project.parent.version', textOf(parentBlock?.version) ],
+        [ 'project.basedir', basedir ], [ 'basedir', basedir ],
+        [ 'project.build.directory', textOf(build?.directory) || path.join(basedir, 'target') ]
+    ];
+    for( const [name, value] of builtIn ) {
+
+        if( value ) {
+            properties.set( name, value );
+        } else {
+            properties.delete( name );
+        }
+
+    }
+
+    /* The dependencies declared by the module override the inherited ones. */
+    const key = ( dependency : any ) => dependencyKey(
+        textOf(dependency.groupId), textOf(dependency.artifactId), textOf(dependency.classifier)
+    );
+
+    const dependencies : any[] = project.dependencies?.[0]?.dependency || [];
+    const declared = new Set<string>( dependencies.map(key) );
+    const inherited = ( parent?.dependencies || [] ).filter( dependency => ! declared.has(key(dependency)) );
+
+    const managed : any[] = project.dependencyManagement?.[0]?.dependencies?.[0]?.dependency || [];
+
+    /* The modules are not inherited by the children. */
+    const modules : any[] = project.modules?.[0]?.module || [];
+
+    return {
+        artifactId   : artifactId,
+        properties   : properties,
+        dependencies : dependencies.concat( inherited ),
+        managed      : managed.concat( parent?.managed || [] ),
+        build        : build,
+        modules      : modules.filter( module => typeof module === 'string' && module.trim() ).map( module => module.trim() ),
+        complete     : parent ? parent.complete : ! parentBlock
+    };
+
+}
+
+
+/**
+ * Returns the model of the given POM file merged with its parents.
+ * 
+ * Each POM file is read once, so the parent POM files
+ * are shared by all the modules of a project.
+ * 
+ * @param pomPath            path of the POM file
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param children           the POM files inheriting from this one, to break cycles
+ * @returns the POM model, null if not available
+ */
+function loadPom( pomPath : string, localMavenRepoPath : string, children : Set<string> = new Set() ) : Promise<PomModel|null> {
+
+    /* A POM file inheriting from itself would wait for itself forever. */
+    if( children.has(pomPath) ) {
+        return Promise.resolve( null );
+    }
 
-    const dependencies = xml.project?.dependencies;
-    if( ! dependencies || dependencies.length <= 0 ) {
-        return dependencyPaths;
+    /* The same holds if a concurrent read of this file is waiting for one of its children. */
+    let model = pomModels.get( pomPath );
+    if( model && isWaitingFor(pomPath, children) ) {
+        return Promise.resolve( null );
     }
 
-    const dependencyList = dependencies[0].dependency;
-    if( ! dependencyList || dependencyList.length <= 0 ) {
-        return dependencyPaths;
+    if( ! model ) {
+
+        /* A missing or incomplete POM file is read again next time, it may be downloaded in the meanwhile. */
+        const loading : Promise<PomModel|null> = readPom( pomPath, localMavenRepoPath, children )
+            .then( read => {
+
+                if( ! read.complete ) {
+                    forget( pomModels, pomPath, loading );
+                }
+
+                return read;
+
+            })
+            .catch( () => {
+
+                forget( pomModels, pomPath, loading );
+                return null;
+
+            });
+
+        model = loading;
+        pomModels.set( pomPath, model );
+
+    }
+
+    return model;
+
+}
+
+
+/**
+ * Returns the dependency management of the given BOM.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param bom                the imported BOM
+ * @param importing          the GAVs of the BOMs being imported, to break cycles
+ * @returns the managed dependencies by dependency key, null if the BOM is not available
+ */
+function getImportedBom( localMavenRepoPath : string, bom : MavenDependency, importing : Set<string> ) : Promise<Map<string,MavenDependency>|null> {
+
+    const gav = `${bom.groupId}:${bom.artifactId}:${bom.version}`;
+    if( importing.has(gav) ) {
+        return Promise.resolve( new Map<string,MavenDependency>() );
+    }
+
+    let managed = importedBoms.get( gav );
+    if( ! managed ) {
+
+        /* A missing or incomplete BOM is read again next time, it may be downloaded in the meanwhile. */
+        const loading : Promise<Map<string,MavenDependency>|null> = loadPom( getArtifactPath(localMavenRepoPath, bom, 'pom'), localMavenRepoPath )
+            .then( model => model ? getEffectivePom(model, localMavenRepoPath, new Set([...importing, gav])) : null )
+            .then( effective => {
+
+                if( ! effective || ! effective.complete ) {
+                    forget( importedBoms, gav, loading );
+                }
+
+                return effective ? effective.managed : null;
+
+            });
+
+        managed = loading;
+        importedBoms.set( gav, managed );
+
+    }
+
+    return managed;
+
+}
+
+
+/**
+ * Resolves the properties and the dependency management
+ * of the given POM model.
+ * 
+ * As in Maven, the dependencies managed explicitly take precedence
+ * over the imported ones, and the BOMs imported first take precedence
+ * over the following ones.
+ * 
+ * @param model              the POM model to resolve
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param importing          the GAVs of the BOMs being imported, to break cycles
+ * @returns the effective POM
+ */
+async function getEffectivePom( model : PomModel, localMavenRepoPath : string, importing : Set<string> = new Set() ) : Promise<EffectivePom> {
+
+    const properties = model.properties;
+    const managed = new Map<string,MavenDependency>();
+    const imports : MavenDependency[] = [];
+
+    for( const block of model.managed ) {
+
+        const scope = interpolate( textOf(block.scope), properties );
+        const type  = interpolate( textOf(block.type), properties );
+        if( scope === 'import' ) {
+
+            /* The imported BOMs are declared with type pom, parsed here as a plain artifact. */
+            const bom = type === 'pom' ? parseDependency( { ...block, type: undefined }, properties, new Map() ) : null;
+            if( bom ) {
+                imports.push( bom );
+            }
+
+        } else {
+
+            const dependency = parseDependency( block, properties, new Map() );
+            const key = dependency ? dependencyKey( dependency.groupId, dependency.artifactId, dependency.classifier ) : null;
+            if( dependency && key && ! managed.has(key) ) {
+                managed.set( key, dependency );
+            }
+
+        }
+
     }
 
-    for( const dependency of dependencyList ) {
+    const boms = await Promise.all( imports.map(bom => getImportedBom(localMavenRepoPath, bom, importing)) );
+    boms.forEach( bom => bom?.forEach( (dependency, key) => {
+
+        if( ! managed.has(key) ) {
+            managed.set( key, dependency );
+        }
+
+    }));
+
+    const dependencies : MavenDependency[] = [];
+    for( const block of model.dependencies ) {
 
-        const dependencyPath = parseDependency( localMavenRepoPath,dependency ); 
-        if( dependencyPath ) {
-            dependencyPaths.push( dependencyPath );
+        const dependency = parseDependency( block, properties, managed );
+        if( dependency ) {
+            dependencies.push( dependency );
         }
 
     }
 
-    return dependencyPaths;
+    return {
+        properties   : properties,
+        dependencies : dependencies,
+        managed      : managed,
+        complete     : model.complete && boms.every( bom => bom !== null )
+    };
+
+}
+
+
+/**
+ * Returns the dependencies declared by the POM file of the given
+ * artifact in the local Maven repository.
+ * 
+ * Artifacts in the repository do not change, so each POM file
+ * is resolved once and shared by all the dependency graphs.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param dependency         the artifact to read
+ * @returns the dependencies of the artifact, empty if the POM is not available
+ */
+function getArtifactDependencies( localMavenRepoPath : string, dependency : MavenDependency ) : Promise<MavenDependency[]> {
+
+    const gav = `${dependency.groupId}:${dependency.artifactId}:${dependency.version}`;
+    let dependencies = artifactDependencies.get( gav );
+    if( ! dependencies ) {
+
+        /*
+         * A POM file missing, unreadable or with missing parents or BOMs is read again next time,
+         * so that the artifacts downloaded in the meanwhile, for instance by a Maven build, are found.
+         */
+        const pomPath = getArtifactPath( localMavenRepoPath, dependency, 'pom' );
+        const loading : Promise<MavenDependency[]> = loadPom( pomPath, localMavenRepoPath )
+            .then( model => model ? getEffectivePom(model, localMavenRepoPath) : null )
+            .then( effective => {
+
+                if( ! effective || ! effective.complete ) {
+                    forget( artifactDependencies, gav, loading );
+                }
+
+                return effective ? effective.dependencies : [];
+
+            })
+            .catch( () => {
+
+                forget( artifactDependencies, gav, loading );
+                return [];
+
+            });
+
+        dependencies = loading;
+        artifactDependencies.set( gav, dependencies );
+
+    }
+
+    return dependencies;
+
+}
+
+
+/**
+ * Adds the given POM file and the modules it aggregates,
+ * recursively, to the given index.
+ * 
+ * @param pomPath            path of the POM file
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param modules            the index of the modules by "groupId:artifactId"
+ * @param visited            the POM files already indexed
+ * @returns a promise to wait for
+ */
+async function indexModules( pomPath : string, localMavenRepoPath : string, modules : Map<string,ReactorModule>, visited : Set<string> ) : Promise<void> {
+
+    if( visited.has(pomPath) ) {
+        return;
+    }
+    visited.add( pomPath );
+
+    const model = await loadPom( pomPath, localMavenRepoPath );
+    if( ! model ) {
+        return;
+    }
+
+    const properties = model.properties;
+    const groupId    = interpolate( properties.get('project.groupId') || null, properties );
+    const artifactId = interpolate( model.artifactId, properties );
+    const outFolder  = parseOutFolder( pomPath, model.build, properties );
+    if( groupId && artifactId && outFolder ) {
+        modules.set( `${groupId}:${artifactId}`, { pomPath: pomPath, outFolder: outFolder } );
+    }
+
+    await Promise.all( model.modules.map(module => {
+
+        /* A module can be declared by its folder or by its POM file. */
+        const modulePath = path.resolve( path.dirname(pomPath), module );
+        const modulePom = modulePath.endsWith( '.xml' ) ? modulePath : path.join( modulePath, 'pom.xml' );
+        return indexModules( modulePom, localMavenRepoPath, modules, visited );
+
+    }));
+
+}
+
+
+/**
+ * Returns the Maven modules of the workspace, indexed by "groupId:artifactId".
+ * 
+ * The index starts from the POM file in the root of each workspace
+ * folder and follows the <modules> blocks. It is built once and kept
+ * until a POM file changes.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @returns the modules of the workspace
+ */
+function getReactorModules( localMavenRepoPath : string ) : Promise<Map<string,ReactorModule>> {
+
+    if( ! reactorModules ) {
+
+        const modules = new Map<string,ReactorModule>();
+        const visited = new Set<string>();
+        const aggregators = ( vscode.workspace.workspaceFolders || [] )
+            .map( folder => path.join(folder.uri.fsPath, 'pom.xml') )
+            .filter( pomPath => fs.existsSync(pomPath) );
+
+        reactorModules = Promise.all( aggregators.map(pomPath => indexModules(pomPath, localMavenRepoPath, modules, visited)) )
+            .then( () => modules );
+
+    }
+
+    return reactorModules;
+
+}
+
+
+/**
+ * Returns the dependencies declared by the given module of the workspace.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param module             the module to read
+ * @returns the dependencies of the module, empty if the POM is not available
+ */
+async function getModuleDependencies( localMavenRepoPath : string, module : ReactorModule ) : Promise<MavenDependency[]> {
+
+    const model = await loadPom( module.pomPath, localMavenRepoPath );
+    return model ? ( await getEffectivePom(model, localMavenRepoPath) ).dependencies : [];
+
+}
+
+
+/**
+ * Tells if the given dependency matches one of the given exclusions.
+ * 
+ * @param exclusions the "groupId:artifactId" patterns, "*" matches any value
+ * @param dependency the dependency to check
+ * @returns true if the dependency is excluded
+ */
+function isExcluded( exclusions : string[], dependency : MavenDependency ) : boolean {
+
+    return exclusions.some( exclusion => {
+
+        const [groupId, artifactId] = exclusion.split( ':' );
+        return ( groupId === '*' || groupId === dependency.groupId )
+            && ( artifactId === '*' || artifactId === dependency.artifactId );
+
+    });
+
+}
+
+
+/**
+ * Tells if the given dependency of a dependency is part of the classpath.
+ * As in Maven, dependencies with scope provided, test or system
+ * and optional dependencies are not transitive.
+ * 
+ * @param dependency the dependency of a dependency
+ * @returns true if the dependency is transitive
+ */
+function isTransitive( dependency : MavenDependency ) : boolean {
+
+    return ! dependency.optional && ( dependency.scope === 'compile' || dependency.scope === 'runtime' );
+
+}
+
+
+/**
+ * Walks the dependency graph starting from the given direct dependencies
+ * and returns the paths to the JAR files of all the reached dependencies.
+ * 
+ * The graph is walked breadth first, so that each artifact is taken
+ * in the version nearest to the project and, at the same depth,
+ * in the version declared first, as Maven does.
+ * 
+ * The dependency management of the project overrides
+ * the versions of the transitive dependencies.
+ * 
+ * The dependencies on other modules of the workspace are taken
+ * from their output folders, so that they do not need to be
+ * installed in the local repository.
+ * 
+ * @param localMavenRepoPath the path to the local maven repository
+ * @param project            the effective POM of the project
+ * @param modules            the modules of the workspace by "groupId:artifactId"
+ * @returns the paths to the dependecy JAR files and module output folders
+ */
+async function resolveDependencies( localMavenRepoPath : string, project : EffectivePom, modules : Map<string,ReactorModule> ) : Promise<ResolvedDependencies> {
+
+    const managedVersion = ( dependency : MavenDependency ) => {
+
+        const management = project.managed.get( dependencyKey(dependency.groupId, dependency.artifactId, dependency.classifier) );
+        return management ? { ...dependency, version: management.version } : dependency;
+
+    };
+
+    const dependencyPaths : string[] = [];
+    const reached = new Set<string>();
+    let complete = project.complete;
+
+    let level : DependencyNode[] = project.dependencies.map( dependency => ({ dependency: dependency, exclusions: [] }) );
+    while( level.length > 0 ) {
+
+        /* Only the nearest version of each artifact is taken. */
+        const accepted = level.filter( node => {
+
+            const key = `${node.dependency.groupId}:${node.dependency.artifactId}:${node.dependency.classifier || ''}`;
+            if( reached.has(key) || isExcluded(node.exclusions, node.dependency) ) {
+                return false;
+            }
+
+            reached.add( key );
+            return true;
+
+        });
+
+        /* The POM files of the same level are read in parallel. */
+        const acceptedModules = accepted.map( node => modules.get(`${node.dependency.groupId}:${node.dependency.artifactId}`) );
+        const children = await Promise.all( accepted.map( (node, index) => {
+
+            const module = acceptedModules[index];
+            return module ? getModuleDependencies( localMavenRepoPath, module )
+                          : getArtifactDependencies( localMavenRepoPath, node.dependency );
+
+        }));
+
+        level = [];
+        accepted.forEach( (node, index) => {
+
+            const module = acceptedModules[index];
+            const dependencyPath = module ? module.outFolder : getJarPath( localMavenRepoPath, node.dependency );
+            if( dependencyPath ) {
+                dependencyPaths.push( dependencyPath );
+            }
+
+            /* The artifacts whose POM could not be fully read are not memoized. */
+            if( ! module && ! artifactDependencies.has(`${node.dependency.groupId}:${node.dependency.artifactId}:${node.dependency.version}`) ) {
+                complete = false;
+            }
+
+            const exclusions = node.exclusions.concat( node.dependency.exclusions );
+            children[index]
+                .filter( child => isTransitive(child) )
+                .forEach( child => level.push({ dependency: managedVersion(child), exclusions: exclusions }) );
+
+        });
+
+    }
+
+    return {
+        dependencyPaths : dependencyPaths,
+        complete : complete
+    };
+
+}
+
+
+/**
+ * Reads the given POM file and returns the related JVM settings.
+ * 
+ * The JVM settings are cached only if all the involved POM files
+ * have been found, so that the artifacts downloaded later are
+ * added to the classpath.
+ * 
+ * @param pomPath        the path of the POM file
+ * @param localMavenRepo the path to the local Maven repository
+ * @returns the JVM settings if available
+ */
+async function readJvmSettings( pomPath : string, localMavenRepo : string ) : Promise<JvmSettings|null> {
+
+    const model = await timing.measure( 'maven.parsePom', () => loadPom(pomPath, localMavenRepo) );
+    if( ! model ) {
+        vscode.window.showErrorMessage( `Cannot read the POM file ${pomPath}.` );
+        return null;
+    }
+
+    const project = await timing.measure( 'maven.effectivePom', () => getEffectivePom(model, localMavenRepo) );
+
+    const outFolder = parseOutFolder( pomPath, model.build, project.properties );
+    if( ! outFolder ) {
+        vscode.window.showErrorMessage( 'Cannot identify the java output folder.' );
+        return null;
+    }
+    
+    const resolved = await timing.measure(
+        'maven.resolveDependencies', async () => resolveDependencies( localMavenRepo, project, await getReactorModules(localMavenRepo) )
+    );
+
+    const jvmSettings = {
+        outFolder : outFolder,
+        dependencyPaths : resolved.dependencyPaths
+    };
+
+    if( resolved.complete ) {
+        jvmSettingsCache.set( pomPath, jvmSettings );
+    }
+
+    return jvmSettings;
+
+}
+
+
+/**
+ * Discards the cached JVM settings and, if required,
+ * the cached locations of the POM files.
+ * 
+ * @param pomPathsChanged   tells if the POM files have been created or deleted
+ * @param repositoryChanged tells if the local Maven repository may have changed
+ */
+function invalidate( pomPathsChanged : boolean, repositoryChanged : boolean = false ) : void {
+
+    jvmSettingsCache.clear();
+    pomModels.clear();
+    reactorModules = null;
+    if( pomPathsChanged ) {
+        pomPaths.clear();
+    }
+
+    if( repositoryChanged ) {
+        artifactDependencies.clear();
+        importedBoms.clear();
+    }
 
 }
 
@@ -278,6 +1240,47 @@ function parseDependencies( localMavenRepoPath : string, xml : any ) : string[]
 /* ****************** */
 
 
+/**
+ * Starts watching the POM files of the workspace and the Nerd4J settings,
+ * so that the cached JVM settings are discarded when they change.
+ * 
+ * Since a module inherits from its parent POM, any change
+ * to a POM file discards the settings of all modules.
+ * 
+ * @returns the disposable stopping the watchers
+ */
+export function initialize() : vscode.Disposable {
+
+    const watcher = vscode.workspace.createFileSystemWatcher( POM_GLOB );
+    return vscode.Disposable.from(
+        watcher,
+        watcher.onDidChange( () => invalidate(false) ),
+        watcher.onDidCreate( () => invalidate(true) ),
+        watcher.onDidDelete( () => invalidate(true) ),
+        vscode.workspace.onDidChangeWorkspaceFolders( () => invalidate(true) ),
+        vscode.workspace.onDidChangeConfiguration( event => {
+            if( event.affectsConfiguration(NERD4J_SETTINGS) ) {
+                invalidate( true, true );
+            }
+        })
+    );
+
+}
+
+
+/**
+ * Discards all the cached data, so that the next request
+ * reads the POM files and the local repository as after
+ * a restart.
+ * 
+ */
+export function reset() : void {
+
+    invalidate( true, true );
+
+}
+
+
 /**
  * Returns if the Nerd4J extension is configured
  * to work in Maven project mode.
@@ -323,6 +1326,9 @@ export function getDefaultLocalMavenRepository(): string|null {
  * Returns the JVM settings if available.
  * Otherwise, returns null.
  * 
+ * The settings of each Maven module are computed once and kept
+ * until a POM file or the Nerd4J settings change, see initialize().
+ * 
  * @param javaFilePath path to the Java file if any.
  * @returns the JVM settings if available
  */
@@ -344,25 +1350,17 @@ export async function getJvmSettings( javaFilePath : string ) : Promise<JvmSetti
         return null;
     }
     
+    const cached = jvmSettingsCache.get( pomPath );
+    if( cached ) {
+        return cached;
+    }
+
     const localMavenRepo = mavenRepoConf as string;
     if( ! fs.existsSync(localMavenRepo) ) {
         vscode.window.showErrorMessage( 'The configured path to the Maven local repository ${localMavenRepo} does not exist. Please, change the Maven repo in the Nerd4J settings.' );
         return null;
     }
     
-    const pomContent = fs.readFileSync( pomPath, 'utf-8' );
-    const xml = await xml2js.parseStringPromise( pomContent );
-    
-    const outFolder = parseOutFolder( pomPath, xml );
-    if( ! outFolder ) {
-        vscode.window.showErrorMessage( 'Cannot identify the java output folder.' );
-        return null;
-    }
-    
-    const dependencyPaths = parseDependencies( localMavenRepo, xml );
-    return {
-        outFolder : outFolder,
-        dependencyPaths : dependencyPaths
-    };
+    return readJvmSettings( pomPath, localMavenRepo );
 
 }
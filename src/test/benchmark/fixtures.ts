@@ -0,0 +1,213 @@
+import * as fs from 'fs';
+import * as path from 'path';
+import { execFileSync } from 'child_process';
+
+
+/** Number of lines of the generated Java files. */
+export const FILE_LINES = [ 1000, 10000, 50000 ];
+
+/** Number of dependencies declared by the generated POM files. */
+export const DEPENDENCY_COUNTS = [ 10, 100, 500 ];
+
+/** Number of fields declared by each generated class. */
+const FIELD_COUNT = 40;
+
+/** Number of statements in the body of each generated method. */
+const STATEMENTS_PER_METHOD = 45;
+
+/** The types of the generated fields, used in turn. */
+const FIELD_TYPES = [ 'int', 'String', 'long', 'java.util.List<String>', 'boolean' ];
+
+/** A JAR file with no entries: the End Of Central Directory record only. */
+const EMPTY_JAR = Buffer.concat( [Buffer.from([0x50, 0x4B, 0x05, 0x06]), Buffer.alloc(18)] );
+
+
+/**
+ * Represents a generated Java source file.
+ */
+export interface JavaFileFixture {
+
+    /** The number of lines of the file. */
+    readonly lines : number;
+
+    /** The absolute path of the file. */
+    readonly path : string;
+
+    /** The line inside the class body where to place the cursor. */
+    readonly cursorLine : number;
+
+}
+
+
+/**
+ * Represents a generated Maven project.
+ */
+export interface ProjectFixture {
+
+    /** The number of dependencies declared in the POM file. */
+    readonly dependencies : number;
+
+    /** The root folder of the project. */
+    readonly folder : string;
+
+    /** The Java files of the project. */
+    readonly javaFiles : JavaFileFixture[];
+
+}
+
+
+/**
+ * Represents the generated workspace used by the benchmark.
+ */
+export interface WorkspaceFixture {
+
+    /** The root folder of the workspace. */
+    readonly root : string;
+
+    /** The local Maven repository containing the dependencies. */
+    readonly repository : string;
+
+    /** The Maven projects in the workspace. */
+    readonly projects : ProjectFixture[];
+
+}
+
+
+/* ******************* */
+/*  PRIVATE FUNCTIONS  */
+/* ******************* */
+
+
+/**
+ * Returns the source code of a class with the given name
+ * and approximately the given number of lines.
+ *
+ * @param className the simple name of the class
+ * @param lines     the number of lines to generate
+ * @returns the source code of the class
+ */
+function javaSourceOf( className : string, lines : number ) : string {
+
+    const source = [ 'package bench;', '', `public class ${className}`, '{', '' ];
+
+    for( let i = 0; i < FIELD_COUNT; ++i ) {
+        source.push( `    private ${FIELD_TYPES[i % FIELD_TYPES.length]} field${i};` );
+    }
+
+    /* Methods are added until the requested size is reached. */
+    for( let method = 0; source.length < lines - 2; ++method ) {
+
+        source.push( '', `    public int method${method}()`, '    {', '        int value = 0;' );
+        for( let i = 0; i < STATEMENTS_PER_METHOD; ++i ) {
+            source.push( `        value += ${i} * field0;` );
+        }
+        source.push( '        return value;', '    }' );
+
+    }
+
+    source.push( '', '}' );
+    return source.join( '\n' );
+
+}
+
+
+/**
+ * Returns the POM of a project declaring the given number of dependencies.
+ *
+ * @param dependencies the number of dependencies
+ * @returns the content of the POM file
+ */
+function pomOf( dependencies : number ) : string {
+
+    const pom = [
+        '<project xmlns="http://maven.apache.org/POM/4.0.0">',
+        '  <modelVersion>4.0.0</modelVersion>',
+        '  <groupId>bench</groupId>',
+        `  <artifactId>deps-${dependencies}</artifactId>`,
+        '  <version>1.0.0</version>',
+        '  <dependencies>'
+    ];
+
+    for( let i = 0; i < dependencies; ++i ) {
+        pom.push(
+            '    <dependency>',
+            '      <groupId>bench.dependency</groupId>',
+            `      <artifactId>dep${i}</artifactId>`,
+            '      <version>1.0</version>',
+            '    </dependency>'
+        );
+    }
+
+    pom.push( '  </dependencies>', '</project>' );
+    return pom.join( '\n' );
+
+}
+
+
+/* ****************** */
+/*  PUBLIC FUNCTIONS  */
+/* ****************** */
+
+
+/**
+ * Generates the workspace used by the benchmark in the given folder.
+ *
+ * The workspace contains a local Maven repository with empty JAR files,
+ * and one Maven project for each number of dependencies. Each project
+ * contains one compiled Java class for each file size.
+ *
+ * @param root the folder where to generate the workspace, it is cleared if exists
+ * @returns the description of the generated workspace
+ */
+export function createFixtures( root : string ) : WorkspaceFixture {
+
+    fs.rmSync( root, { recursive: true, force: true } );
+
+    const repository = path.join( root, 'repository' );
+    const maxDependencies = Math.max( ...DEPENDENCY_COUNTS );
+    for( let i = 0; i < maxDependencies; ++i ) {
+
+        const folder = path.join( repository, 'bench', 'dependency', `dep${i}`, '1.0' );
+        fs.mkdirSync( folder, { recursive: true } );
+        fs.writeFileSync( path.join(folder, `dep${i}-1.0.jar`), EMPTY_JAR );
+
+    }
+
+    /* The sources are compiled once and copied into each project. */
+    const sources = path.join( root, 'sources', 'bench' );
+    const classes = path.join( root, 'classes' );
+    fs.mkdirSync( sources, { recursive: true } );
+
+    const sourceFiles = FILE_LINES.map( lines => {
+
+        const sourceFile = path.join( sources, `Lines${lines}.java` );
+        fs.writeFileSync( sourceFile, javaSourceOf(`Lines${lines}`, lines) );
+        return sourceFile;
+
+    });
+    execFileSync( 'javac', ['-d', classes, ...sourceFiles] );
+
+    const projects = DEPENDENCY_COUNTS.map( dependencies => {
+
+        const folder = path.join( root, `deps-${dependencies}` );
+        const javaFolder = path.join( folder, 'src', 'main', 'java', 'bench' );
+
+        fs.mkdirSync( javaFolder, { recursive: true } );
+        fs.writeFileSync( path.join(folder, 'pom.xml'), pomOf(dependencies) );
+        fs.cpSync( classes, path.join(folder, 'target', 'classes'), { recursive: true } );
+
+        const javaFiles = FILE_LINES.map( lines => {
+
+            const javaFile = path.join( javaFolder, `Lines${lines}.java` );
+            fs.copyFileSync( path.join(sources, `Lines${lines}.java`), javaFile );
+            return { lines: lines, path: javaFile, cursorLine: 4 };
+
+        });
+
+        return { dependencies: dependencies, folder: folder, javaFiles: javaFiles };
+
+    });
+
+    return { root: root, repository: repository, projects: projects };
+
+}
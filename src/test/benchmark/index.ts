@@ -0,0 +1,257 @@
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import * as vscode from 'vscode';
+import * as jvm from '../../jvm';
+import * as maven from '../../maven';
+import { JavaClassProcessor } from '../../java';
+import { JavaProjectType, Nerd4JSetting } from '../../config';
+import { createFixtures, JavaFileFixture, ProjectFixture } from './fixtures';
+
+
+/** Number of measured iterations for each scenario. */
+const ITERATIONS = Number( process.env.NERD4J_BENCHMARK_ITERATIONS || 20 );
+
+/** Number of iterations run before measuring, to let the JVM and the caches warm up. */
+const WARM_UP_ITERATIONS = Number( process.env.NERD4J_BENCHMARK_WARM_UP || 3 );
+
+/** The file where to write the results in JSON format, if any. */
+const RESULTS_FILE = process.env.NERD4J_BENCHMARK_RESULTS;
+
+/**
+ * The stages of the chain executed by the commands.
+ * The JVM settings are measured both resolving the POM files
+ * from scratch, as the first command after a change does,
+ * and taking them from the cache.
+ */
+const STAGES = [ 'jvmSettingsCold', 'jvmSettings', 'build', 'getFields', 'insert' ];
+
+/** The percentiles reported for each stage. */
+const PERCENTILES = [ 50, 95, 99 ];
+
+
+/**
+ * The ways the ClassAnalyzer can be run.
+ */
+const MODES : { name : string, settings : [string, boolean][] }[] = [
+    { name: 'exec',   settings: [[Nerd4JSetting.analyzerServer, false]] },
+    { name: 'server', settings: [[Nerd4JSetting.analyzerServer, true], [Nerd4JSetting.analyzerCache, false]] }
+];
+
+
+/**
+ * The outcome of the measurements of a scenario.
+ */
+interface ScenarioResult {
+
+    /** The way the ClassAnalyzer is run. */
+    readonly mode : string;
+
+    /** The number of dependencies in the POM file. */
+    readonly dependencies : number;
+
+    /** The number of lines of the Java file. */
+    readonly lines : number;
+
+    /** The percentiles of each stage in milliseconds. */
+    readonly stages : { [stage : string] : { [percentile : string] : number } };
+
+}
+
+
+/* ******************* */
+/*  PRIVATE FUNCTIONS  */
+/* ******************* */
+
+
+/**
+ * Returns the given percentile of the given sorted samples
+ * using the nearest-rank method.
+ *
+ * @param sorted     the samples sorted in ascending order
+ * @param percentile the percentile to compute
+ * @returns the value of the percentile
+ */
+function percentileOf( sorted : number[], percentile : number ) : number {
+
+    const rank = Math.ceil( percentile / 100 * sorted.length );
+    return sorted[Math.max( 0, rank - 1 )];
+
+}
+
+
+/**
+ * Runs the given stage and stores its duration in the given samples.
+ *
+ * @param samples the samples where to store the duration
+ * @param stage   the name of the stage
+ * @param action  the action to measure
+ * @returns the value returned by the action
+ */
+async function measure<T>( samples : Map<string,number[]>, stage : string, action : () => Promise<T> ) : Promise<T> {
+
+    const start = process.hrtime.bigint();
+    const result = await action();
+    const elapsed = Number( process.hrtime.bigint() - start ) / 1e6;
+
+    samples.get( stage )?.push( elapsed );
+    return result;
+
+}
+
+
+/**
+ * Runs once the full chain of the toString generator
+ * on the given Java file, as the command would do
+ * without asking the user.
+ *
+ * @param javaFile the Java file to process
+ * @param samples  the samples where to store the durations
+ */
+async function runChain( javaFile : JavaFileFixture, samples : Map<string,number[]> ) : Promise<void> {
+
+    const document = await vscode.workspace.openTextDocument( javaFile.path );
+    const editor = await vscode.window.showTextDocument( document );
+
+    const cursor = new vscode.Position( javaFile.cursorLine, 0 );
+    editor.selection = new vscode.Selection( cursor, cursor );
+
+    maven.reset();
+    await measure( samples, 'jvmSettingsCold', () => jvm.getJvmSettings(javaFile.path) );
+
+    const jvmSettings = await measure( samples, 'jvmSettings', () => jvm.getJvmSettings(javaFile.path) );
+    if( ! jvmSettings ) {
+        throw new Error( `Unable to get the JVM settings for ${javaFile.path}` );
+    }
+
+    const processor = await measure( samples, 'build', () => JavaClassProcessor.build() );
+    if( ! processor ) {
+        throw new Error( `Unable to process ${javaFile.path}` );
+    }
+
+    const fields = await measure( samples, 'getFields', () => processor.getFields() );
+    if( ! fields ) {
+        throw new Error( `Unable to analyze ${javaFile.path}` );
+    }
+
+    const fieldNames = fields.map( field => field.name );
+    await measure( samples, 'insert', () => processor.insertOrReplaceToString(fieldNames, false, 'likeIntellij()') );
+
+    /* The file is restored, so that the next iteration does not find the method to replace. */
+    await vscode.commands.executeCommand( 'workbench.action.files.revert' );
+
+}
+
+
+/**
+ * Measures the given Java file of the given project.
+ *
+ * @param mode     the way the ClassAnalyzer is run
+ * @param project  the project containing the file
+ * @param javaFile the Java file to process
+ * @returns the outcome of the measurements
+ */
+async function runScenario( mode : string, project : ProjectFixture, javaFile : JavaFileFixture ) : Promise<ScenarioResult> {
+
+    const discarded = new Map<string,number[]>();
+    for( let i = 0; i < WARM_UP_ITERATIONS; ++i ) {
+        await runChain( javaFile, discarded );
+    }
+
+    const samples = new Map<string,number[]>( STAGES.map(stage => [stage, []]) );
+    for( let i = 0; i < ITERATIONS; ++i ) {
+        await runChain( javaFile, samples );
+    }
+
+    const stages : { [stage : string] : { [percentile : string] : number } } = {};
+    samples.forEach( (values, stage) => {
+
+        const sorted = values.sort( (a, b) => a - b );
+        stages[stage] = {};
+        PERCENTILES.forEach( percentile => stages[stage][`p${percentile}`] = percentileOf(sorted, percentile) );
+
+    });
+
+    return { mode: mode, dependencies: project.dependencies, lines: javaFile.lines, stages: stages };
+
+}
+
+
+/**
+ * Returns the given results formatted as a table.
+ *
+ * @param results the results to format
+ * @returns the lines of the table
+ */
+function toTable( results : ScenarioResult[] ) : string[] {
+
+    const header = [ 'mode', 'deps', 'lines' ];
+    STAGES.forEach( stage => PERCENTILES.forEach(percentile => header.push(`${stage} p${percentile}`)) );
+
+    const rows = results.map( result => {
+
+        const row = [ result.mode, String(result.dependencies), String(result.lines) ];
+        STAGES.forEach( stage => PERCENTILES.forEach(percentile => row.push(result.stages[stage][`p${percentile}`].toFixed(2))) );
+        return row;
+
+    });
+
+    const widths = header.map( (title, column) => Math.max(title.length, ...rows.map(row => row[column].length)) );
+    return [header, ...rows].map( row => row.map((cell, column) => cell.padStart(widths[column])).join('  ') );
+
+}
+
+
+/* ****************** */
+/*  PUBLIC FUNCTIONS  */
+/* ****************** */
+
+
+/**
+ * Measures the latency of each stage of the chain executed by the
+ * code generators: JVM settings, with and without the cached POM
+ * resolution, class parsing, code analysis and code insertion. The chain is run on generated Java files of different
+ * sizes in generated Maven projects with different numbers of dependencies,
+ * once running the ClassAnalyzer as a process per request and once as
+ * a server without the persistent cache.
+ *
+ * The number of iterations can be set with NERD4J_BENCHMARK_ITERATIONS and
+ * the results are written in JSON format in the file NERD4J_BENCHMARK_RESULTS.
+ *
+ * @returns a promise to wait for
+ */
+export async function run() : Promise<void> {
+
+    const workspaceFolder = vscode.workspace.workspaceFolders?.[0]?.uri.fsPath
+        || path.join( os.tmpdir(), 'nerd4j-benchmark' );
+    const workspace = createFixtures( path.join(workspaceFolder, 'fixtures') );
+
+    const config = vscode.workspace.getConfiguration();
+    await config.update( Nerd4JSetting.projectType, JavaProjectType.maven, vscode.ConfigurationTarget.Global );
+    await config.update( Nerd4JSetting.mavenLocalRepo, workspace.repository, vscode.ConfigurationTarget.Global );
+
+    const results : ScenarioResult[] = [];
+    for( const mode of MODES ) {
+
+        for( const [key, value] of mode.settings ) {
+            await vscode.workspace.getConfiguration().update( key, value, vscode.ConfigurationTarget.Global );
+        }
+
+        for( const project of workspace.projects ) {
+            for( const javaFile of project.javaFiles ) {
+
+                results.push( await runScenario(mode.name, project, javaFile) );
+
+            }
+        }
+
+    }
+
+    await vscode.commands.executeCommand( 'workbench.action.closeAllEditors' );
+
+    toTable( results ).forEach( line => console.log(line) );
+    if( RESULTS_FILE ) {
+        fs.writeFileSync( RESULTS_FILE, JSON.stringify({ iterations: ITERATIONS, results: results }, null, 2) );
+    }
+
+}
@@ -0,0 +1,41 @@
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import { runTests } from '@vscode/test-electron';
+
+
+async function main() {
+	try {
+
+		/*
+		 * The folder containing the Extension Manifest package.json
+		 * Passed to `--extensionDevelopmentPath`
+		 */
+		const extensionDevelopmentPath = path.resolve(__dirname, '../../');
+
+		/*
+		 * The path to benchmark runner
+		 * Passed to --extensionTestsPath
+		 */
+		const extensionTestsPath = path.resolve(__dirname, './benchmark/index');
+
+		/* The workspace opened by VS Code, the fixtures are generated inside it. */
+		const workspaceFolder = fs.mkdtempSync(path.join(os.tmpdir(), 'nerd4j-benchmark-'));
+
+		/* Download VS Code, unzip it and run the benchmark. */
+		await runTests({
+			extensionDevelopmentPath,
+			extensionTestsPath,
+			launchArgs: [workspaceFolder, '--user-data-dir', `${os.tmpdir()}`, '--disable-extensions'],
+			extensionTestsEnv: {
+				NERD4J_BENCHMARK_RESULTS: process.env.NERD4J_BENCHMARK_RESULTS || path.join(extensionDevelopmentPath, 'benchmark-results.json')
+			}
+		});
+
+	} catch (err) {
+		console.error('Failed to run benchmark', err);
+		process.exit(1);
+	}
+}
+
+main();
@@ -1,3 +1,4 @@
+import * as fs from 'fs';
 import * as os from 'os';
 import * as path from 'path';
 import { runTests } from '@vscode/test-electron';
@@ -18,11 +19,15 @@ async function main() {
 		 */
 		const extensionTestsPath = path.resolve(__dirname, './suite/index');
 
+		/* The workspace opened by VS Code is a copy of the fixtures, so that the tests can change it. */
+		const workspaceFolder = fs.mkdtempSync(path.join(os.tmpdir(), 'nerd4j-test-'));
+		fs.cpSync(path.join(extensionDevelopmentPath, 'src', 'test', 'fixtures', 'workspace'), workspaceFolder, { recursive: true });
+
 		/* Download VS Code, unzip it and run the integration test/ */
 		await runTests({
 			extensionDevelopmentPath,
 			extensionTestsPath,
-			launchArgs: ['--user-data-dir', `${os.tmpdir()}`]
+			launchArgs: [workspaceFolder, '--user-data-dir', `${os.tmpdir()}`]
 		});
 
 	} catch (err) {
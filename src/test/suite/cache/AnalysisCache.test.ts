@@ -0,0 +1,187 @@
+import * as assert from 'assert';
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import { describe, it } from 'node:test';
+import { AnalysisCache, FileFingerprint, fingerprintOf } from '../../../cache';
+
+
+/** The folder containing the cache file and the analyzed classes. */
+const folder = fs.mkdtempSync( path.join(os.tmpdir(), 'nerd4j-cache-test-') );
+
+/** The path of the cache file. */
+const cacheFile = path.join( folder, 'analysis-cache', 'cache.bin' );
+
+/** The key identifying the class path. */
+const KEY = `${folder}/classes\n${folder}/lib.jar`;
+
+
+/**
+ * Writes the class file with the given name and content.
+ *
+ * @param name    the simple name of the class
+ * @param content the content of the class file
+ * @returns the path of the class file
+ */
+function writeClass( name : string, content : string ) : string {
+
+    const classFile = path.join( folder, 'classes', `${name}.class` );
+    fs.mkdirSync( path.dirname(classFile), { recursive: true } );
+    fs.writeFileSync( classFile, content );
+
+    return classFile;
+
+}
+
+
+/**
+ * Returns the current fingerprint of the given file,
+ * as reported by the server before reading it.
+ *
+ * @param file the path of the file
+ * @returns the fingerprint of the file
+ */
+function stateOf( file : string ) : FileFingerprint {
+
+    const fingerprint = fingerprintOf( file );
+    assert.ok( fingerprint );
+
+    return fingerprint;
+
+}
+
+
+/**
+ * Stores the outcome of the analysis of the given classes
+ * in a new cache file and opens it again from disk.
+ *
+ * @param classNames the simple names of the classes to store
+ * @returns the cache read from disk
+ */
+function storeAndReopen( ...classNames : string[] ) : AnalysisCache {
+
+    fs.rmSync( cacheFile, { force: true } );
+
+    const cache = AnalysisCache.open( cacheFile, KEY );
+    classNames.forEach( name => cache.put(`fixture.${name}`, 'get', [`${name}:field:String`, `${name}:other:int`], [stateOf(writeClass(name, name))]) );
+    cache.flush();
+
+    return AnalysisCache.open( cacheFile, KEY );
+
+}
+
+
+describe( 'Test for the analysis cache', () => {
+
+    it( 'should read the stored outcomes from disk', () => {
+
+        const cache = storeAndReopen( 'A', 'B' );
+
+        assert.deepStrictEqual( cache.classNames(), [ 'fixture.A', 'fixture.B' ] );
+        assert.deepStrictEqual( cache.get('fixture.A', 'get'), [ 'A:field:String', 'A:other:int' ] );
+        assert.deepStrictEqual( cache.get('fixture.B', 'get'), [ 'B:field:String', 'B:other:int' ] );
+
+        /* The outcome depends on the accessor prefix. */
+        assert.strictEqual( cache.get('fixture.A', 'is'), null );
+
+    });
+
+    it( 'should decode each stored outcome only once', () => {
+
+        const cache = storeAndReopen( 'A' );
+
+        assert.strictEqual( cache.get('fixture.A', 'get'), cache.get('fixture.A', 'get') );
+
+    });
+
+    it( 'should keep the entries never requested when written again', () => {
+
+        let cache = storeAndReopen( 'A', 'B' );
+        cache.put( 'fixture.C', 'get', [ 'C:field:String' ], [ stateOf(writeClass('C', 'C')) ] );
+        cache.flush();
+
+        cache = AnalysisCache.open( cacheFile, KEY );
+        assert.deepStrictEqual( cache.get('fixture.A', 'get'), [ 'A:field:String', 'A:other:int' ] );
+        assert.deepStrictEqual( cache.get('fixture.C', 'get'), [ 'C:field:String' ] );
+
+    });
+
+    it( 'should discard the outcome when the class file changes', () => {
+
+        let cache = storeAndReopen( 'A', 'B' );
+
+        /* The size of A changes, the modification time of B changes. */
+        writeClass( 'A', 'A changed' );
+        const classB = path.join( folder, 'classes', 'B.class' );
+        const mtime = fs.statSync( classB ).mtime;
+        fs.utimesSync( classB, mtime, new Date(mtime.getTime() + 5000) );
+
+        assert.strictEqual( cache.get('fixture.A', 'get'), null );
+        assert.strictEqual( cache.get('fixture.B', 'get'), null );
+
+        /* The outdated entries are not written again. */
+        cache.flush();
+        cache = AnalysisCache.open( cacheFile, KEY );
+        assert.deepStrictEqual( cache.classNames(), [] );
+
+    });
+
+    it( 'should discard the outcome when the class file is removed', () => {
+
+        const cache = storeAndReopen( 'A' );
+        fs.rmSync( path.join(folder, 'classes', 'A.class') );
+
+        assert.strictEqual( cache.get('fixture.A', 'get'), null );
+
+    });
+
+    it( 'should not store the outcome of a class file changed during the analysis', () => {
+
+        const cache = storeAndReopen( 'A' );
+
+        /* The server read A before it was recompiled. */
+        const read = stateOf( path.join(folder, 'classes', 'A.class') );
+        writeClass( 'A', 'A recompiled' );
+        cache.put( 'fixture.A', 'get', [ 'A:stale:String' ], [ read ] );
+
+        /* The previous outcome is discarded as well. */
+        assert.strictEqual( cache.get('fixture.A', 'get'), null );
+        cache.flush();
+        assert.deepStrictEqual( AnalysisCache.open(cacheFile, KEY).classNames(), [] );
+
+    });
+
+    it( 'should discard the stored outcomes of a different class path', () => {
+
+        storeAndReopen( 'A' );
+        const cache = AnalysisCache.open( cacheFile, `${folder}/classes` );
+
+        assert.deepStrictEqual( cache.classNames(), [] );
+        assert.strictEqual( cache.get('fixture.A', 'get'), null );
+
+    });
+
+    it( 'should discard a corrupted cache file', () => {
+
+        storeAndReopen( 'A' );
+        const content = fs.readFileSync( cacheFile );
+        fs.writeFileSync( cacheFile, content.subarray(0, content.length - 3) );
+
+        const cache = AnalysisCache.open( cacheFile, KEY );
+        assert.strictEqual( cache.get('fixture.A', 'get'), null );
+
+    });
+
+    it( 'should not store the outcomes depending on missing files', () => {
+
+        const cache = AnalysisCache.open( cacheFile, KEY );
+        const missing = path.join( folder, 'classes', 'D.class' );
+        cache.put( 'fixture.D', 'get', [ 'D:field:String' ], [ { path: missing, mtime: 1, size: 1 } ] );
+        cache.put( 'fixture.E', 'get', [ 'E:field:String' ], [] );
+
+        assert.strictEqual( cache.get('fixture.D', 'get'), null );
+        assert.strictEqual( cache.get('fixture.E', 'get'), null );
+
+    });
+
+});
@@ -1,6 +1,6 @@
 import * as assert from 'assert';
 import { describe, it } from 'node:test';
-import { Field } from '../../../commons';
+import { AccessorImplementation, Field, parseAnalysisOutcome } from '../../../commons';
 
 describe( 'Test for class Field', () => {
 
@@ -19,4 +19,28 @@ describe( 'Test for class Field', () => {
 
     });
 
+    it( 'should decode the outcome of the analysis in JSON format', () => {
+
+        const outcome = parseAnalysisOutcome([
+            '{"version":1,"name":"p.Dto","simpleName":"Dto"}',
+            '{"name":"tags","type":"java.util.List","genericType":"java.util.List<java.lang.String>","simpleType":"List","declaringClass":"p.Dto","modifiers":18,"accessors":[1,null]}',
+            '{"name":"entry","type":"java.util.Map$Entry","genericType":"java.util.Map$Entry<T, int[]>","simpleType":"Entry","declaringClass":"p.Base","modifiers":4,"accessors":[2,0]}'
+        ]);
+
+        assert.strictEqual( outcome.className, 'p.Dto' );
+        assert.strictEqual( outcome.fields.length, 2 );
+        assert.strictEqual( outcome.fields[0].accessors[1], null );
+
+        const tags = Field.fromAnalysis( 'Dto', outcome.className, outcome.fields[0], 0 );
+        const entry = Field.fromAnalysis( 'Dto', outcome.className, outcome.fields[1], 0 );
+
+        assert.strictEqual( tags.type, 'List<String>' );
+        assert.strictEqual( tags.accessorImplementation, AccessorImplementation.inCurrentClass );
+        assert.strictEqual( entry.type, 'Entry' );
+        assert.strictEqual( entry.accessorImplementation, AccessorImplementation.inAncestorClass );
+
+        assert.throws( () => parseAnalysisOutcome(['{"version":2}']) );
+
+    });
+
 });
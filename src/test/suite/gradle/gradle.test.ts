@@ -0,0 +1,99 @@
+import * as assert from 'assert';
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import * as vscode from 'vscode';
+import * as gradle from '../../../gradle';
+import { before, describe, it } from 'node:test';
+import { fingerprintOf } from '../../../cache';
+import { Nerd4JSetting } from '../../../config';
+
+
+/** The root folder of the Gradle build in the fixture workspace, see src/test/fixtures/workspace. */
+const buildRoot = path.join( vscode.workspace.workspaceFolders?.[0]?.uri.fsPath || '', 'gradle' );
+
+/** A Gradle command that does not exist, so that any attempt to run Gradle fails. */
+const MISSING_GRADLE = 'nerd4j-missing-gradle';
+
+/** The folder where the build models are stored. */
+const storageFolder = fs.mkdtempSync( path.join(os.tmpdir(), 'nerd4j-gradle-test-') );
+
+/** A Java file of the app project. */
+const javaFile = path.join( buildRoot, 'app', 'src', 'main', 'java', 'fixture', 'Fixture.java' );
+
+
+/**
+ * Stores a model of the fixture build as described by
+ * the init script, depending on the current build files.
+ *
+ * @param complete tells if all the dependencies have been found
+ */
+function storeModel( complete : boolean ) : void {
+
+    const appFolder = path.join( buildRoot, 'app' );
+    const model = {
+        command  : MISSING_GRADLE,
+        files    : [ 'settings.gradle', path.join('app', 'build.gradle') ].map( file => fingerprintOf(path.join(buildRoot, file)) ),
+        projects : [{
+            projectDir : appFolder,
+            buildFile  : path.join( appFolder, 'build.gradle' ),
+            sourceSets : [{
+                name        : 'main',
+                srcDirs     : [ path.join(appFolder, 'src', 'main', 'java') ],
+                classesDirs : [ path.join(appFolder, 'build', 'classes', 'java', 'main'), path.join(appFolder, 'build', 'classes', 'kotlin', 'main') ],
+                classpath   : [ path.join(storageFolder, 'lib.jar') ],
+                unresolved  : complete ? [] : [ 'Could not resolve fixture:missing:1.' ]
+            }]
+        }],
+        complete : complete
+    };
+
+    fs.writeFileSync( path.join(storageFolder, 'gradle-models.json'), JSON.stringify({ [buildRoot]: model }) );
+    gradle.initialize( storageFolder );
+
+}
+
+
+describe( 'Test for the Gradle build models', () => {
+
+    before( async () => {
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.gradleCommand, MISSING_GRADLE, vscode.ConfigurationTarget.Global );
+
+    });
+
+    it( 'should take the JVM settings from the stored model', async () => {
+
+        storeModel( true );
+
+        const jvmSettings = await gradle.getJvmSettings( javaFile );
+        assert.ok( jvmSettings );
+
+        /* The Java output folder is analyzed, the output of the other languages is part of the classpath. */
+        assert.strictEqual( jvmSettings.outFolder, path.join(buildRoot, 'app', 'build', 'classes', 'java', 'main') );
+        assert.deepStrictEqual( jvmSettings.dependencyPaths, [
+            path.join( buildRoot, 'app', 'build', 'classes', 'kotlin', 'main' ),
+            path.join( storageFolder, 'lib.jar' )
+        ]);
+
+    });
+
+    it( 'should describe the build again when a build file changes', async () => {
+
+        storeModel( true );
+        fs.appendFileSync( path.join(buildRoot, 'app', 'build.gradle'), '\n' );
+
+        /* Gradle runs again and fails, the stored model is not used. */
+        assert.strictEqual( await gradle.getJvmSettings(javaFile), null );
+
+    });
+
+    it( 'should not use the stored models missing some dependencies', async () => {
+
+        storeModel( false );
+
+        assert.strictEqual( await gradle.getJvmSettings(javaFile), null );
+
+    });
+
+});
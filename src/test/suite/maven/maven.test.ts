@@ -0,0 +1,244 @@
+import * as assert from 'assert';
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import * as vscode from 'vscode';
+import * as maven from '../../../maven';
+import { after, before, describe, it } from 'node:test';
+import { Nerd4JSetting } from '../../../config';
+
+
+/** The root folder of the fixture workspace, see src/test/fixtures/workspace. */
+const root = vscode.workspace.workspaceFolders?.[0]?.uri.fsPath || '';
+
+/** The local Maven repository of the fixture workspace. */
+const repository = path.join( root, 'repository' );
+
+
+/**
+ * Returns the path of the given artifact relative to the workspace.
+ *
+ * @param artifactId the id of an artifact of the "fixture" group
+ * @param version    the version of the artifact
+ * @param extension  the extension of the file
+ * @returns the path of the artifact
+ */
+function artifact( artifactId : string, version : string, extension : string = 'jar' ) : string {
+
+    return path.join( 'repository', 'fixture', artifactId, version, `${artifactId}-${version}.${extension}` );
+
+}
+
+
+/**
+ * Returns the class path of the given module relative to the workspace.
+ *
+ * @param module the folder of the module
+ * @returns the output folder and the dependency paths
+ */
+async function classPathOf( module : string ) : Promise<string[]> {
+
+    const jvmSettings = await maven.getJvmSettings( path.join(root, module, 'src', 'main', 'java', 'fixture', 'Fixture.java') );
+    assert.ok( jvmSettings );
+
+    return [ jvmSettings.outFolder, ...jvmSettings.dependencyPaths ].map( entry => path.relative(root, entry) );
+
+}
+
+
+/**
+ * Uses a copy of the local repository of the fixture workspace.
+ *
+ * @returns the folder of the copy
+ */
+async function useRepositoryCopy() : Promise<string> {
+
+    const copy = fs.mkdtempSync( path.join(os.tmpdir(), 'nerd4j-repository-') );
+    fs.cpSync( repository, copy, { recursive: true } );
+    await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, copy, vscode.ConfigurationTarget.Global );
+
+    return copy;
+
+}
+
+
+/**
+ * Waits for the given condition to hold,
+ * failing after a few seconds.
+ *
+ * @param condition the condition to wait for
+ */
+async function waitFor( condition : () => Promise<boolean> ) : Promise<void> {
+
+    const deadline = Date.now() + 5000;
+    while( ! await condition() ) {
+
+        assert.ok( Date.now() < deadline, 'The condition did not hold in time.' );
+        await new Promise( resolve => setTimeout(resolve, 100) );
+
+    }
+
+}
+
+
+describe( 'Test for the Maven dependency resolution', () => {
+
+    /** Discards the cached JVM settings when the POM files or the settings change. */
+    let watchers : vscode.Disposable;
+
+    before( async () => {
+
+        watchers = maven.initialize();
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, repository, vscode.ConfigurationTarget.Global );
+
+    });
+
+    after( async () => {
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, repository, vscode.ConfigurationTarget.Global );
+        watchers.dispose();
+
+    });
+
+    it( 'should walk the dependency graph level by level', async () => {
+
+        assert.deepStrictEqual( await classPathOf('svc'), [
+            path.join( 'svc', 'out', 'classes' ),
+            artifact( 'lib-a', '2' ), artifact( 'lib-b', '3' ), artifact( 'lib-c', '5' ), path.join( 'domain', 'bin' ),
+            artifact( 'lib-d', '1' ), artifact( 'lib-f', '7' ), artifact( 'lib-g', '4' ),
+            artifact( 'lib-h', '1' )
+        ]);
+
+    });
+
+    it( 'should take the nearest version of each artifact', async () => {
+
+        const classPath = await classPathOf( 'svc' );
+
+        /* lib-a declares lib-d 1 before lib-c declares lib-d 9, lib-b inherits lib-f 7 before domain declares lib-f 8. */
+        assert.ok( classPath.includes(artifact('lib-d', '1')) );
+        assert.ok( ! classPath.includes(artifact('lib-d', '9')) );
+        assert.ok( classPath.includes(artifact('lib-f', '7')) );
+        assert.ok( ! classPath.includes(artifact('lib-f', '8')) );
+
+    });
+
+    it( 'should apply the exclusions and the scopes', async () => {
+
+        const classPath = await classPathOf( 'svc' );
+
+        /* x is excluded from lib-a by coordinates and from lib-c by wildcard, lib-e is a test dependency of lib-a. */
+        assert.ok( ! classPath.includes(artifact('x', '1')) );
+        assert.ok( ! classPath.includes(artifact('lib-e', '1')) );
+
+    });
+
+    it( 'should interpolate the properties inherited from the parents', async () => {
+
+        const classPath = await classPathOf( 'svc' );
+
+        /* The version of lib-b is managed by the root through a property overridden by svc. */
+        assert.ok( classPath.includes(artifact('lib-b', '3')) );
+
+        /* The output folder is defined by the root in terms of the base folder of svc. */
+        assert.strictEqual( classPath[0], path.join('svc', 'out', 'classes') );
+
+    });
+
+    it( 'should apply the managed versions of the parents and of the imported BOMs', async () => {
+
+        const classPath = await classPathOf( 'svc' );
+
+        /* The version of lib-a comes from the BOM, the one of the transitive lib-g from the root. */
+        assert.ok( classPath.includes(artifact('lib-a', '2')) );
+        assert.ok( classPath.includes(artifact('lib-g', '4')) );
+        assert.ok( ! classPath.includes(artifact('lib-g', '1')) );
+
+    });
+
+    it( 'should take the modules of the workspace from their output folders', async () => {
+
+        const classPath = await classPathOf( 'svc' );
+
+        assert.ok( classPath.includes(path.join('domain', 'bin')) );
+        assert.ok( ! classPath.some(entry => entry.includes(`${path.sep}domain${path.sep}5${path.sep}`)) );
+
+    });
+
+    it( 'should read again the POM files missing at the previous resolution', async () => {
+
+        const copy = await useRepositoryCopy();
+        const libH = path.join( 'lib-h', '1', 'lib-h-1.jar' );
+        const pomFile = path.join( copy, 'fixture', 'lib-g', '4', 'lib-g-4.pom' );
+        const content = fs.readFileSync( pomFile );
+        fs.rmSync( pomFile );
+
+        try{
+
+            assert.ok( ! (await classPathOf('svc')).some(entry => entry.endsWith(libH)) );
+
+        }finally{
+
+            fs.writeFileSync( pomFile, content );
+
+        }
+
+        /* The dependencies of lib-g are found without discarding the cached data. */
+        assert.ok( (await classPathOf('svc')).some(entry => entry.endsWith(libH)) );
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, repository, vscode.ConfigurationTarget.Global );
+
+    });
+
+    it( 'should resolve the artifacts inheriting from each other', { timeout: 5000 }, async () => {
+
+        const classPath = await classPathOf( 'cyclic' );
+
+        assert.ok( classPath.includes(artifact('cycle-a', '1')) );
+        assert.ok( classPath.includes(artifact('cycle-b', '1')) );
+
+    });
+
+    it( 'should resolve again when the local repository changes', async () => {
+
+        assert.ok( (await classPathOf('svc')).includes(artifact('lib-a', '2')) );
+
+        /* The class path refers to the new repository. */
+        const copy = await useRepositoryCopy();
+        await waitFor( async () => (await classPathOf('svc')).includes(path.relative(root, path.join(copy, 'fixture', 'lib-a', '2', 'lib-a-2.jar'))) );
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.mavenLocalRepo, repository, vscode.ConfigurationTarget.Global );
+        await waitFor( async () => (await classPathOf('svc')).includes(artifact('lib-a', '2')) );
+
+    });
+
+    it( 'should resolve again when a POM file changes', async () => {
+
+        const pomFile = path.join( root, 'svc', 'pom.xml' );
+        const content = fs.readFileSync( pomFile, 'utf-8' );
+        assert.ok( (await classPathOf('svc')).includes(artifact('lib-b', '3')) );
+
+        /* svc depends on lib-h in place of lib-b, so lib-f comes from domain. */
+        const libB = '<artifactId>lib-b</artifactId>';
+        fs.writeFileSync( pomFile, content.replace(libB, `<artifactId>lib-h</artifactId><version>1</version>`) );
+
+        try{
+
+            await waitFor( async () => ! (await classPathOf('svc')).includes(artifact('lib-b', '3')) );
+            assert.deepStrictEqual( await classPathOf('svc'), [
+                path.join( 'svc', 'out', 'classes' ),
+                artifact( 'lib-a', '2' ), artifact( 'lib-h', '1' ), artifact( 'lib-c', '5' ), path.join( 'domain', 'bin' ),
+                artifact( 'lib-d', '1' ), artifact( 'lib-g', '4' ), artifact( 'lib-f', '8' )
+            ]);
+
+        }finally{
+
+            fs.writeFileSync( pomFile, content );
+
+        }
+
+        await waitFor( async () => (await classPathOf('svc')).includes(artifact('lib-b', '3')) );
+
+    });
+
+});
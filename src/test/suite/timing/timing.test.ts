@@ -0,0 +1,99 @@
+import * as assert from 'assert';
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import * as vscode from 'vscode';
+import * as timing from '../../../timing';
+import { after, before, describe, it } from 'node:test';
+import { Nerd4JSetting } from '../../../config';
+
+
+/** The trace file written by the tests. */
+const traceFile = path.join( fs.mkdtempSync(path.join(os.tmpdir(), 'nerd4j-timing-test-')), 'trace.jsonl' );
+
+
+/**
+ * Writes the pending records and returns those
+ * in the trace file related to the given span.
+ *
+ * @param name the name of the span
+ * @returns the records of the span
+ */
+function recordsOf( name : string ) : any[] {
+
+    timing.shutdown();
+
+    return fs.readFileSync( traceFile, 'utf-8' )
+        .split( '\n' )
+        .filter( line => line.length > 0 )
+        .map( line => JSON.parse(line) )
+        .filter( record => record.name === name );
+
+}
+
+
+describe( 'Test for the performance trace', () => {
+
+    before( async () => {
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.performanceTraceFile, traceFile, vscode.ConfigurationTarget.Global );
+
+    });
+
+    after( async () => {
+
+        await vscode.workspace.getConfiguration().update( Nerd4JSetting.performanceTraceFile, undefined, vscode.ConfigurationTarget.Global );
+
+    });
+
+    it( 'should write a span for each measured action', () => {
+
+        for( let i = 0; i < 3; ++i ) {
+            assert.strictEqual( timing.measureSync('test.span', () => i), i );
+        }
+
+        const spans = recordsOf( 'test.span' );
+        assert.strictEqual( spans.length, 3 );
+        spans.forEach( span => {
+
+            assert.strictEqual( span.type, 'span' );
+            assert.strictEqual( span.failed, false );
+            assert.ok( span.duration >= 0 );
+            assert.ok( ! isNaN(Date.parse(span.start)) );
+
+        });
+
+    });
+
+    it( 'should record the failed actions', async () => {
+
+        await assert.rejects( timing.measure('test.failure', () => Promise.reject(new Error('failure'))) );
+
+        const spans = recordsOf( 'test.failure' );
+        assert.strictEqual( spans.length, 1 );
+        assert.strictEqual( spans[0].failed, true );
+
+    });
+
+    it( 'should write the histogram of the durations every 20 spans', () => {
+
+        for( let i = 0; i < 20; ++i ) {
+            timing.measureSync( 'test.histogram', () => i );
+        }
+
+        const records = recordsOf( 'test.histogram' );
+        assert.strictEqual( records.filter(record => record.type === 'span').length, 20 );
+
+        const histograms = records.filter( record => record.type === 'histogram' );
+        assert.strictEqual( histograms.length, 1 );
+
+        const histogram = histograms[0];
+        assert.strictEqual( histogram.count, 20 );
+        assert.strictEqual( histogram.window, 20 );
+        assert.strictEqual( histogram.buckets.length, histogram.bounds.length + 1 );
+        assert.strictEqual( histogram.buckets.reduce((sum : number, bucket : number) => sum + bucket, 0), 20 );
+        assert.ok( histogram.p50 <= histogram.p95 && histogram.p95 <= histogram.p99 && histogram.p99 <= histogram.max );
+
+    });
+
+});
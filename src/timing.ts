@@ -0,0 +1,295 @@
+import * as fs from 'fs';
+import * as vscode from 'vscode';
+
+import { Nerd4JSetting } from './config';
+
+
+/** The name of the output channel where the timings are written. */
+const CHANNEL_NAME = 'Nerd4J Performance';
+
+/** Number of most recent durations of each span used to compute the histograms. */
+const HISTOGRAM_WINDOW = 100;
+
+/** Number of spans with the same name between two histograms in the trace file. */
+const HISTOGRAM_INTERVAL = 20;
+
+/** Upper bounds in milliseconds of the buckets of the histograms, the last bucket is unbounded. */
+const HISTOGRAM_BUCKETS = [ 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 ];
+
+/** Delay in milliseconds before the pending records are written to the trace file. */
+const FLUSH_DELAY = 1000;
+
+
+/**
+ * Keeps the most recent durations of the spans with the same name.
+ *
+ * @author Massimo Coluzzi
+ */
+class RollingWindow {
+
+    /** The most recent durations in milliseconds, used as a ring buffer. */
+    private readonly durations : number[] = [];
+
+    /** The position where to store the next duration. */
+    private next : number = 0;
+
+    /** The total number of durations recorded. */
+    public count : number = 0;
+
+
+    /**
+     * Records the given duration, replacing the oldest one if the window is full.
+     *
+     * @param duration the duration in milliseconds
+     */
+    public add( duration : number ) : void {
+
+        this.durations[this.next] = duration;
+        this.next = ( this.next + 1 ) % HISTOGRAM_WINDOW;
+        ++this.count;
+
+    }
+
+
+    /**
+     * Returns the histogram of the durations in the window
+     * together with the main percentiles.
+     *
+     * @param name the name of the span
+     * @returns the record describing the histogram
+     */
+    public histogram( name : string ) : object {
+
+        const sorted = [ ...this.durations ].sort( (a, b) => a - b );
+        const percentile = ( p : number ) => sorted[Math.max( 0, Math.ceil(p / 100 * sorted.length) - 1 )];
+
+        const buckets = new Array<number>( HISTOGRAM_BUCKETS.length + 1 ).fill( 0 );
+        sorted.forEach( duration => {
+
+            const index = HISTOGRAM_BUCKETS.findIndex( bound => duration <= bound );
+            ++buckets[index < 0 ? HISTOGRAM_BUCKETS.length : index];
+
+        });
+
+        return {
+            type: 'histogram', name: name, count: this.count, window: sorted.length,
+            p50: percentile( 50 ), p95: percentile( 95 ), p99: percentile( 99 ), max: sorted[sorted.length - 1],
+            bounds: HISTOGRAM_BUCKETS, buckets: buckets
+        };
+
+    }
+
+}
+
+
+/** The output channel where the timings are written, created on first use. */
+let channel : vscode.OutputChannel|null = null;
+
+/** The rolling windows of durations by span name. */
+const windows = new Map<string,RollingWindow>();
+
+/** The records waiting to be written to the trace file. */
+let pending : string[] = [];
+
+/** The trace file the pending records belong to. */
+let pendingFile : string|null = null;
+
+/** The timer writing the pending records, if scheduled. */
+let flushTimer : NodeJS.Timeout|null = null;
+
+
+/* ******************* */
+/*  PRIVATE FUNCTIONS  */
+/* ******************* */
+
+
+/**
+ * Writes the pending records to the trace file.
+ *
+ * @param sync tells if the records must be written before returning
+ */
+function flush( sync : boolean ) : void {
+
+    if( flushTimer ) {
+        clearTimeout( flushTimer );
+        flushTimer = null;
+    }
+
+    if( ! pendingFile || pending.length === 0 ) {
+        return;
+    }
+
+    const data = pending.join( '' );
+    const file = pendingFile;
+    pending = [];
+
+    try{
+
+        if( sync ) {
+            fs.appendFileSync( file, data );
+        } else {
+            fs.appendFile( file, data, () => { /* The trace is a diagnostic aid, a failure is not relevant. */ } );
+        }
+
+    }catch( error ) {
+
+        /* The trace is a diagnostic aid, a failure is not relevant. */
+
+    }
+
+}
+
+
+/**
+ * Appends the given record to the trace file, if configured.
+ *
+ * @param record the record to append
+ */
+function trace( record : object ) : void {
+
+    const traceFile = vscode.workspace.getConfiguration().get<string>( Nerd4JSetting.performanceTraceFile );
+    if( ! traceFile ) {
+        return;
+    }
+
+    if( pendingFile !== traceFile ) {
+        flush( false );
+        pendingFile = traceFile;
+    }
+
+    pending.push( JSON.stringify(record) + '\n' );
+    if( ! flushTimer ) {
+        flushTimer = setTimeout( () => flush(false), FLUSH_DELAY );
+    }
+
+}
+
+
+/**
+ * Records the given span in the output channel,
+ * in the rolling histograms and in the trace file.
+ *
+ * @param name     the name of the span
+ * @param start    the time the span started
+ * @param duration the duration of the span in milliseconds
+ * @param failed   tells if the span ended with an error
+ */
+function record( name : string, start : Date, duration : number, failed : boolean ) : void {
+
+    if( ! channel ) {
+        channel = vscode.window.createOutputChannel( CHANNEL_NAME );
+    }
+
+    const outcome = failed ? ' (failed)' : '';
+    channel.appendLine( `${start.toISOString()} ${name} ${duration.toFixed(2)} ms${outcome}` );
+
+    let window = windows.get( name );
+    if( ! window ) {
+        window = new RollingWindow();
+        windows.set( name, window );
+    }
+    window.add( duration );
+
+    trace({ type: 'span', name: name, start: start.toISOString(), duration: duration, failed: failed });
+    if( window.count % HISTOGRAM_INTERVAL === 0 ) {
+        trace( window.histogram(name) );
+    }
+
+}
+
+
+/* ****************** */
+/*  PUBLIC FUNCTIONS  */
+/* ****************** */
+
+
+/**
+ * Runs the given asynchronous action and records its duration
+ * with the given name, even if the action fails.
+ *
+ * @param name   the name of the span
+ * @param action the action to measure
+ * @returns the value returned by the action
+ */
+export async function measure<T>( name : string, action : () => PromiseLike<T> ) : Promise<T> {
+
+    const start = new Date();
+    const begin = process.hrtime.bigint();
+    let failed = true;
+
+    try{
+
+        const result = await action();
+        failed = false;
+        return result;
+
+    }finally{
+
+        record( name, start, Number(process.hrtime.bigint() - begin) / 1e6, failed );
+
+    }
+
+}
+
+
+/**
+ * Runs the given synchronous action and records its duration
+ * with the given name, even if the action fails.
+ *
+ * @param name   the name of the span
+ * @param action the action to measure
+ * @returns the value returned by the action
+ */
+export function measureSync<T>( name : string, action : () => T ) : T {
+
+    const start = new Date();
+    const begin = process.hrtime.bigint();
+    let failed = true;
+
+    try{
+
+        const result = action();
+        failed = false;
+        return result;
+
+    }finally{
+
+        record( name, start, Number(process.hrtime.bigint() - begin) / 1e6, failed );
+
+    }
+
+}
+
+
+/**
+ * Writes the given report in the output channel and shows it.
+ *
+ * @param title the title of the report
+ * @param lines the lines of the report
+ */
+export function report( title : string, lines : string[] ) : void {
+
+    if( ! channel ) {
+        channel = vscode.window.createOutputChannel( CHANNEL_NAME );
+    }
+
+    channel.appendLine( `${new Date().toISOString()} ${title}` );
+    lines.forEach( line => channel?.appendLine(`    ${line}`) );
+    channel.show( true );
+
+}
+
+
+/**
+ * Writes the pending records to the trace file
+ * and releases the output channel.
+ *
+ */
+export function shutdown() : void {
+
+    flush( true );
+
+    channel?.dispose();
+    channel = null;
+
+}